@@ -529,7 +529,7 @@ public class Cglib2AopProxy implements AopProxy, Serializable {
 		private final Class targetClass;
 
 		public FixedChainStaticTargetInterceptor(List adviceChain, Object target, Class targetClass) {
-			this.adviceChain = adviceChain;
+			this.adviceChain = FrozenInterceptorList.freeze(adviceChain);
 			this.target = target;
 			this.targetClass = targetClass;
 		}
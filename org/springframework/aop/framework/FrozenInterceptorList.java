@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Internal framework class.
+ *
+ * <p>Unmodifiable List of MethodInterceptors and InterceptorAndDynamicMethodMatchers,
+ * backed by an array that ReflectiveMethodInvocation walks directly. Determines
+ * once whether the chain contains any dynamic method matchers, so that purely
+ * static chains can be invoked without any runtime checks.
+ *
+ * @since 1.2
+ * @see ReflectiveMethodInvocation#proceed
+ * @see HashMapCachingAdvisorChainFactory
+ */
+final class FrozenInterceptorList extends AbstractList implements Serializable {
+
+	private final Object[] interceptors;
+
+	private final boolean dynamic;
+
+
+	/**
+	 * Return a frozen version of the given interceptor chain.
+	 * @param interceptorsAndDynamicMethodMatchers the chain to freeze
+	 * @return the given List if it is already frozen, else a frozen copy
+	 */
+	public static FrozenInterceptorList freeze(List interceptorsAndDynamicMethodMatchers) {
+		if (interceptorsAndDynamicMethodMatchers instanceof FrozenInterceptorList) {
+			return (FrozenInterceptorList) interceptorsAndDynamicMethodMatchers;
+		}
+		return new FrozenInterceptorList(interceptorsAndDynamicMethodMatchers.toArray());
+	}
+
+	private FrozenInterceptorList(Object[] interceptors) {
+		this.interceptors = interceptors;
+		boolean dynamic = false;
+		for (int i = 0; i < interceptors.length; i++) {
+			if (interceptors[i] instanceof InterceptorAndDynamicMethodMatcher) {
+				dynamic = true;
+				break;
+			}
+		}
+		this.dynamic = dynamic;
+	}
+
+
+	public Object get(int index) {
+		return this.interceptors[index];
+	}
+
+	public int size() {
+		return this.interceptors.length;
+	}
+
+	/**
+	 * Return the backing array. Must not be modified by the caller.
+	 */
+	Object[] getInterceptorArray() {
+		return this.interceptors;
+	}
+
+	/**
+	 * Return whether this chain contains any InterceptorAndDynamicMethodMatcher,
+	 * i.e. whether method matchers need to be evaluated at invocation time.
+	 */
+	boolean containsDynamicMethodMatchers() {
+		return this.dynamic;
+	}
+
+}
@@ -25,27 +25,47 @@ import org.springframework.core.CollectionFactory;
 /**
  * AdvisorChainFactory implementation that caches by method.
  *
- * <p>Uses IdentityHashMap on JDK >= 1.4 or Commons Collections 3.x' IdentityMap
- * (if available), which skip expensive Method.hashCode() calls.
- * Falls back to standard HashMap on plain JDK 1.3.
+ * <p>Uses a ConcurrentHashMap on JDK >= 1.5, so that lookups do not need
+ * any locking. Falls back to a synchronized HashMap on older JDKs.
+ *
+ * <p>Cached chains are frozen into arrays, with purely static chains marked
+ * as such, to allow for fast iteration in ReflectiveMethodInvocation.
+ * A change in advice clears the cache and starts a new generation: a chain
+ * calculated concurrently for the previous advice is not cached anymore.
  *
  * @author Rod Johnson
  * @author Juergen Hoeller
- * @see org.springframework.core.CollectionFactory#createIdentityMapIfPossible
- * @see java.lang.reflect.Method#hashCode
+ * @see FrozenInterceptorList
+ * @see org.springframework.core.CollectionFactory#createConcurrentMapIfPossible
  */
 public final class HashMapCachingAdvisorChainFactory implements AdvisorChainFactory {
 
-	private final Map methodCache = CollectionFactory.createIdentityMapIfPossible(32);
-	
+	/** Method --> frozen interceptor chain */
+	private final Map methodCache = CollectionFactory.createConcurrentMapIfPossible(32);
+
+	/** Incremented on each change in advice; guarded by generationMonitor */
+	private int generation = 0;
+
+	private final Object generationMonitor = new Object();
+
 	public List getInterceptorsAndDynamicInterceptionAdvice(
 			Advised config, Object proxy, Method method, Class targetClass) {
 		List cached = (List) this.methodCache.get(method);
 		if (cached == null) {
+			int generation;
+			synchronized (this.generationMonitor) {
+				generation = this.generation;
+			}
 			// recalculate
-			cached = AdvisorChainFactoryUtils.calculateInterceptorsAndDynamicInterceptionAdvice(
-					config, proxy, method, targetClass);
-			this.methodCache.put(method, cached);
+			cached = FrozenInterceptorList.freeze(
+					AdvisorChainFactoryUtils.calculateInterceptorsAndDynamicInterceptionAdvice(
+							config, proxy, method, targetClass));
+			synchronized (this.generationMonitor) {
+				// Don't cache a chain calculated for advice that has changed meanwhile.
+				if (generation == this.generation) {
+					this.methodCache.put(method, cached);
+				}
+			}
 		}
 		return cached;
 	}
@@ -54,7 +74,10 @@ public final class HashMapCachingAdvisorChainFactory implements AdvisorChainFact
 	}
 
 	public void adviceChanged(AdvisedSupport advisedSupport) {
-		this.methodCache.clear();
+		synchronized (this.generationMonitor) {
+			this.generation++;
+			this.methodCache.clear();
+		}
 	}
 
 }
@@ -71,6 +71,12 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	/** Config used to configure this proxy */
 	private AdvisedSupport advised;
 
+	/**
+	 * Shared invokers for the class of the last target, kept here to hold
+	 * them strongly while this proxy is in use
+	 */
+	private transient JoinpointInvokerCache joinpointInvokers;
+
 
 	/**
 	 * Construct a new JDK proxy.
@@ -160,15 +166,21 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 				// We can skip creating a MethodInvocation: just invoke the target directly
 				// Note that the final invoker must be an InvokerInterceptor so we know it does
 				// nothing but a reflective operation on the target, and no hot swapping or fancy proxying
-				retVal = AopUtils.invokeJoinpointUsingReflection(target, method, args);
+				if (target != null) {
+					retVal = getJoinpointInvokers(targetClass).invokeJoinpoint(target, method, args);
+				}
+				else {
+					retVal = AopUtils.invokeJoinpointUsingReflection(target, method, args);
+				}
 			}
 			else {
 				// We need to create a method invocation...
 				// invocation = advised.getMethodInvocationFactory().getMethodInvocation(
 				//		 proxy, method, targetClass, target, args, chain, advised);
 
-				invocation = new ReflectiveMethodInvocation(
-						proxy, target, method, args, targetClass, chain);
+				invocation = new JdkMethodInvocation(
+						proxy, target, method, args, targetClass, chain,
+						(target != null ? getJoinpointInvokers(targetClass) : null));
 
 				// proceed to the joinpoint through the interceptor chain
 				retVal = invocation.proceed();
@@ -197,6 +209,21 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 	}
 
 
+	/**
+	 * Return the shared invokers for the given target class.
+	 * Not synchronized: the field just remembers the last cache used.
+	 * @param targetClass the class of the current target
+	 * @see JoinpointInvokerCache#forClass
+	 */
+	private JoinpointInvokerCache getJoinpointInvokers(Class targetClass) {
+		JoinpointInvokerCache invokers = this.joinpointInvokers;
+		if (invokers == null || invokers.getTargetClass() != targetClass) {
+			invokers = JoinpointInvokerCache.forClass(targetClass);
+			this.joinpointInvokers = invokers;
+		}
+		return invokers;
+	}
+
 	/**
 	 * Proxy uses the hash code of the TargetSource.
 	 */
@@ -237,4 +264,32 @@ final class JdkDynamicAopProxy implements AopProxy, InvocationHandler, Serializa
 		return AopProxyUtils.equalsInProxy(this.advised, aopr2.advised);
 	}
 
+
+	/**
+	 * Implementation of AOP Alliance MethodInvocation used by this AOP proxy.
+	 */
+	private static class JdkMethodInvocation extends ReflectiveMethodInvocation {
+
+		private final JoinpointInvokerCache joinpointInvokers;
+
+		public JdkMethodInvocation(Object proxy, Object target, Method method, Object[] arguments,
+				Class targetClass, List interceptorsAndDynamicMethodMatchers,
+				JoinpointInvokerCache joinpointInvokers) {
+			super(proxy, target, method, arguments, targetClass, interceptorsAndDynamicMethodMatchers);
+			this.joinpointInvokers = joinpointInvokers;
+		}
+
+		/**
+		 * Invokes the target through a generated FastClass, if possible,
+		 * rather than through reflection.
+		 * @see JoinpointInvokerCache#invokeJoinpoint
+		 */
+		protected Object invokeJoinpoint() throws Throwable {
+			if (this.joinpointInvokers == null) {
+				return super.invokeJoinpoint();
+			}
+			return this.joinpointInvokers.invokeJoinpoint(this.target, this.method, this.arguments);
+		}
+	}
+
 }
@@ -0,0 +1,344 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.aop.framework;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import net.sf.cglib.reflect.FastClass;
+import org.aopalliance.aop.AspectException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Internal framework class.
+ *
+ * <p>Cache of invokers for the joinpoints of JDK dynamic proxies, with one
+ * instance per target class, holding the invokers for that class per method.
+ * Instances are shared by all proxies for the same target class: obtain them
+ * via <code>forClass</code>.
+ *
+ * <p>Like CachedIntrospectionResults, instances for classes that are not
+ * loaded by this class's ClassLoader or one of its parents are only weakly
+ * referenced, with weak keys: the cache does not prevent such classes and
+ * their ClassLoader from being garbage-collected. Proxies keep a strong
+ * reference to the instance they use, so that the invokers survive for as
+ * long as a proxy for the class is in use.
+ *
+ * <p>If CGLIB2 is available, targets are invoked through a generated FastClass,
+ * which dispatches by index instead of going through <code>Method.invoke</code>.
+ * Falls back to reflection if CGLIB2 is not available, if the method is not
+ * public, or if no FastClass can be generated for the target class (e.g. for
+ * classes in <code>java.*</code> packages).
+ *
+ * <p>CGLIB proxies don't need this, as they already invoke their targets
+ * through CGLIB's MethodProxy.
+ *
+ * @since 1.2
+ * @see JdkDynamicAopProxy
+ * @see org.springframework.aop.support.AopUtils#invokeJoinpointUsingReflection
+ * @see net.sf.cglib.reflect.FastClass
+ */
+final class JoinpointInvokerCache {
+
+	private static final String CGLIB_FAST_CLASS_NAME = "net.sf.cglib.reflect.FastClass";
+
+	private static final Log logger = LogFactory.getLog(JoinpointInvokerCache.class);
+
+	private static boolean fastClassAvailable;
+
+	static {
+		try {
+			Class.forName(CGLIB_FAST_CLASS_NAME);
+			fastClassAvailable = true;
+		}
+		catch (ClassNotFoundException ex) {
+			fastClassAvailable = false;
+		}
+	}
+
+	/**
+	 * Map keyed by cache-safe target class containing JoinpointInvokerCaches.
+	 * Strong references are fine here, as those classes will live at least
+	 * as long as this class.
+	 */
+	private static final Map strongClassCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/**
+	 * Map keyed by WeakClassKey for non-cache-safe target classes, containing
+	 * WeakReferences to JoinpointInvokerCaches. Neither keys nor values may be
+	 * strong, as the invokers reference the target class and its FastClass.
+	 */
+	private static final Map weakClassCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/** Queue of WeakClassKeys whose class has been garbage-collected */
+	private static final ReferenceQueue collectedClassKeys = new ReferenceQueue();
+
+
+	/**
+	 * Return the shared invoker cache for the given target class,
+	 * creating it if necessary.
+	 * <p>Not synchronized: a concurrently created second instance
+	 * for the same class does no harm.
+	 * @param targetClass the class of the target objects
+	 * @return the invoker cache for the given class
+	 */
+	public static JoinpointInvokerCache forClass(Class targetClass) {
+		JoinpointInvokerCache cache = (JoinpointInvokerCache) strongClassCache.get(targetClass);
+		if (cache == null) {
+			Reference ref = (Reference) weakClassCache.get(new ClassLookupKey(targetClass));
+			if (ref != null) {
+				cache = (JoinpointInvokerCache) ref.get();
+			}
+		}
+		if (cache == null) {
+			cache = new JoinpointInvokerCache(targetClass);
+			purgeCollectedClasses();
+			if (isCacheSafe(targetClass)) {
+				strongClassCache.put(targetClass, cache);
+			}
+			else {
+				weakClassCache.put(new WeakClassKey(targetClass, collectedClassKeys), new WeakReference(cache));
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Remove the entries for garbage-collected classes from the weak class cache.
+	 */
+	private static void purgeCollectedClasses() {
+		Reference collectedKey;
+		while ((collectedKey = collectedClassKeys.poll()) != null) {
+			weakClassCache.remove(collectedKey);
+		}
+	}
+
+	/**
+	 * Check whether the given class is cache-safe,
+	 * i.e. whether it is loaded by the same class loader as this class
+	 * or a parent of it.
+	 * @param clazz the class to analyze
+	 */
+	private static boolean isCacheSafe(Class clazz) {
+		ClassLoader cur = JoinpointInvokerCache.class.getClassLoader();
+		ClassLoader target = clazz.getClassLoader();
+		if (target == null || cur == target) {
+			return true;
+		}
+		while (cur != null) {
+			cur = cur.getParent();
+			if (cur == target) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+
+	private final Class targetClass;
+
+	/** Method to JoinpointInvoker */
+	private final Map invokers = CollectionFactory.createConcurrentMapIfPossible(16);
+
+
+	private JoinpointInvokerCache(Class targetClass) {
+		this.targetClass = targetClass;
+	}
+
+	/**
+	 * Return the target class that this cache holds invokers for.
+	 */
+	public Class getTargetClass() {
+		return this.targetClass;
+	}
+
+	/**
+	 * Invoke the given method on the given target.
+	 * @param target the target object, an instance of exactly this cache's
+	 * target class (may be <code>null</code>)
+	 * @param method the method to invoke
+	 * @param args the arguments for the method
+	 * @return the return value of the method, if any
+	 * @throws Throwable if thrown by the target method
+	 * @throws org.aopalliance.aop.AspectException if encountering
+	 * a reflection error
+	 */
+	public Object invokeJoinpoint(Object target, Method method, Object[] args) throws Throwable {
+		if (target == null || !fastClassAvailable) {
+			return AopUtils.invokeJoinpointUsingReflection(target, method, args);
+		}
+		JoinpointInvoker invoker = (JoinpointInvoker) this.invokers.get(method);
+		if (invoker == null) {
+			invoker = FastClassInvokerFactory.createInvoker(this.targetClass, method);
+			this.invokers.put(method, invoker);
+		}
+		return invoker.invoke(target, args);
+	}
+
+
+	/**
+	 * Invoker for one method on one target class.
+	 */
+	private static class JoinpointInvoker {
+
+		protected final Method method;
+
+		public JoinpointInvoker(Method method) {
+			this.method = method;
+		}
+
+		public Object invoke(Object target, Object[] args) throws Throwable {
+			return AopUtils.invokeJoinpointUsingReflection(target, this.method, args);
+		}
+	}
+
+
+	/**
+	 * Invoker that dispatches through a generated FastClass.
+	 */
+	private static class FastClassJoinpointInvoker extends JoinpointInvoker {
+
+		private final FastClass fastClass;
+
+		private final int index;
+
+		public FastClassJoinpointInvoker(Method method, FastClass fastClass, int index) {
+			super(method);
+			this.fastClass = fastClass;
+			this.index = index;
+		}
+
+		public Object invoke(Object target, Object[] args) throws Throwable {
+			try {
+				return this.fastClass.invoke(this.index, target, args);
+			}
+			catch (InvocationTargetException ex) {
+				// Invoked method threw a checked exception.
+				// We must rethrow it. The client won't see the interceptor.
+				throw ex.getTargetException();
+			}
+			catch (IllegalArgumentException ex) {
+				throw new AspectException("AOP configuration seems to be invalid: tried calling " +
+						this.method + " on [" + target + "]: ", ex);
+			}
+			catch (ClassCastException ex) {
+				throw new AspectException("AOP configuration seems to be invalid: tried calling " +
+						this.method + " on [" + target + "]: ", ex);
+			}
+		}
+	}
+
+
+	/**
+	 * Inner class to just introduce a CGLIB2 dependency
+	 * when actually creating a FastClass.
+	 */
+	private static class FastClassInvokerFactory {
+
+		private static JoinpointInvoker createInvoker(Class targetClass, Method method) {
+			try {
+				FastClass fastClass = FastClass.create(targetClass);
+				int index = fastClass.getIndex(method.getName(), method.getParameterTypes());
+				if (index >= 0) {
+					return new FastClassJoinpointInvoker(method, fastClass, index);
+				}
+			}
+			catch (RuntimeException ex) {
+				logFallback(targetClass, method, ex);
+			}
+			catch (LinkageError err) {
+				logFallback(targetClass, method, err);
+			}
+			return new JoinpointInvoker(method);
+		}
+
+		private static void logFallback(Class targetClass, Method method, Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not generate FastClass for [" + targetClass.getName() +
+						"] - invoking " + method + " using reflection", ex);
+			}
+		}
+	}
+
+
+
+	/**
+	 * Key for the weak class cache: weakly references its class,
+	 * comparing by class identity.
+	 */
+	private static class WeakClassKey extends WeakReference {
+
+		private final int hashCode;
+
+		public WeakClassKey(Class clazz, ReferenceQueue queue) {
+			super(clazz, queue);
+			this.hashCode = System.identityHashCode(clazz);
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			Object clazz = get();
+			if (clazz == null) {
+				return false;
+			}
+			if (other instanceof WeakClassKey) {
+				return (clazz == ((WeakClassKey) other).get());
+			}
+			return (other instanceof ClassLookupKey && clazz == ((ClassLookupKey) other).clazz);
+		}
+
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
+	/**
+	 * Key for lookups in the weak class cache, matching the WeakClassKey
+	 * for the same class without creating a WeakReference per lookup.
+	 */
+	private static class ClassLookupKey {
+
+		private final Class clazz;
+
+		public ClassLookupKey(Class clazz) {
+			this.clazz = clazz;
+		}
+
+		public boolean equals(Object other) {
+			if (other instanceof ClassLookupKey) {
+				return (this.clazz == ((ClassLookupKey) other).clazz);
+			}
+			return (other instanceof WeakClassKey && this.clazz == ((WeakClassKey) other).get());
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(this.clazz);
+		}
+	}
+
+}
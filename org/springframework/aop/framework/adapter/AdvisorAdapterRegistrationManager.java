@@ -17,7 +17,7 @@
 package org.springframework.aop.framework.adapter;
 
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 
 /**
  * BeanPostProcessor implementation that "registers" instances of any
@@ -33,7 +33,7 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
  * @see AdvisorAdapterRegistry
  * @see GlobalAdvisorAdapterRegistry
  */
-public class AdvisorAdapterRegistrationManager implements BeanPostProcessor {
+public class AdvisorAdapterRegistrationManager implements SelectiveBeanPostProcessor {
 
 	private AdvisorAdapterRegistry advisorAdapterRegistry = GlobalAdvisorAdapterRegistry.getInstance();
 
@@ -46,6 +46,14 @@ public class AdvisorAdapterRegistrationManager implements BeanPostProcessor {
 		this.advisorAdapterRegistry = advisorAdapterRegistry;
 	}
 
+	public boolean isApplicableBeforeInitialization(Class beanClass, String beanName) {
+		return false;
+	}
+
+	public boolean isApplicableAfterInitialization(Class beanClass, String beanName) {
+		return AdvisorAdapter.class.isAssignableFrom(beanClass);
+	}
+
 	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
 		return bean;
 	}
@@ -16,15 +16,18 @@
 
 package org.springframework.aop.framework.autoproxy;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.aop.Advisor;
 import org.springframework.aop.TargetSource;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.CollectionFactory;
 import org.springframework.core.ControlFlow;
 import org.springframework.core.ControlFlowFactory;
 import org.springframework.core.OrderComparator;
@@ -46,11 +49,18 @@ import org.springframework.core.OrderComparator;
  * the Ordered interface will be considered to be unordered, and will appear
  * at the end of the advisor chain in undefined order.
  *
+ * <p>The eligible advisors are determined once per bean class, as long as
+ * the candidate advisors stay the same, so prototypes and further beans of
+ * the same class do not evaluate every advisor's pointcut again.
+ *
  * @author Rod Johnson
  * @see #findCandidateAdvisors
  */
 public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyCreator {
-	
+
+	/** Class --> EligibleAdvisors, for the candidate advisors they were determined for */
+	private final Map eligibleAdvisorCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
 	/**
 	 * We override this method to ensure that all candidate advisors are materialized
 	 * under a stack trace including this bean. Otherwise, the dependencies won't
@@ -72,12 +82,27 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 
 	/**
 	 * Find all eligible advices and for auto-proxying this class.
+	 * <p>Reuses the eligible advisors determined for the same class before,
+	 * provided that the candidate advisors are still the same instances.
 	 * @return the empty list, not null, if there are no pointcuts or interceptors
 	 * @see #findCandidateAdvisors
 	 */
 	protected List findEligibleAdvisors(Class clazz) {
 		List candidateAdvisors = findCandidateAdvisors();
-		List eligibleAdvisors = new LinkedList();
+		EligibleAdvisors cached = (EligibleAdvisors) this.eligibleAdvisorCache.get(clazz);
+		if (cached == null || !cached.isFor(candidateAdvisors)) {
+			cached = new EligibleAdvisors(candidateAdvisors, determineEligibleAdvisors(candidateAdvisors, clazz));
+			this.eligibleAdvisorCache.put(clazz, cached);
+		}
+		// Return a copy that the caller may sort and modify.
+		return new LinkedList(cached.eligibleAdvisors);
+	}
+
+	/**
+	 * Determine which of the given candidate advisors can apply to the given class.
+	 */
+	private List determineEligibleAdvisors(List candidateAdvisors, Class clazz) {
+		List eligibleAdvisors = new ArrayList();
 		for (Iterator it = candidateAdvisors.iterator(); it.hasNext();) {
 			Advisor candidate = (Advisor) it.next();
 			if (AopUtils.canApply(candidate, clazz)) {
@@ -125,4 +150,38 @@ public abstract class AbstractAdvisorAutoProxyCreator extends AbstractAutoProxyC
 	 */
 	protected abstract List findCandidateAdvisors();
 
+
+	/**
+	 * Eligible advisors per bean class, determined from a particular
+	 * list of candidate advisors.
+	 */
+	private static class EligibleAdvisors {
+
+		private final Advisor[] candidateAdvisors;
+
+		private final List eligibleAdvisors;
+
+		private EligibleAdvisors(List candidateAdvisors, List eligibleAdvisors) {
+			this.candidateAdvisors = (Advisor[]) candidateAdvisors.toArray(new Advisor[candidateAdvisors.size()]);
+			this.eligibleAdvisors = eligibleAdvisors;
+		}
+
+		/**
+		 * Return whether these eligible advisors have been determined for the same
+		 * candidate advisor instances, in the same order.
+		 */
+		private boolean isFor(List candidateAdvisors) {
+			if (candidateAdvisors.size() != this.candidateAdvisors.length) {
+				return false;
+			}
+			int i = 0;
+			for (Iterator it = candidateAdvisors.iterator(); it.hasNext(); i++) {
+				if (it.next() != this.candidateAdvisors[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 }
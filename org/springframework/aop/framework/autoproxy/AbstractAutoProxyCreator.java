@@ -37,6 +37,7 @@ import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 import org.springframework.core.Ordered;
 
 /**
@@ -75,7 +76,7 @@ import org.springframework.core.Ordered;
  * @see BeanNameAutoProxyCreator
  */
 public abstract class AbstractAutoProxyCreator extends ProxyConfig
-		implements InstantiationAwareBeanPostProcessor, BeanFactoryAware, Ordered {
+		implements InstantiationAwareBeanPostProcessor, SelectiveBeanPostProcessor, BeanFactoryAware, Ordered {
 
 	/**
 	 * Convenience constant for subclasses: Return value for "do not proxy".
@@ -112,6 +113,40 @@ public abstract class AbstractAutoProxyCreator extends ProxyConfig
 
 	private BeanFactory beanFactory;
 
+	/** Whether postProcessBeforeInitialization is overridden by the subclass */
+	private final boolean beforeInitializationOverridden;
+
+	/** Whether isInfrastructureClass is overridden by the subclass */
+	private final boolean infrastructureClassOverridden;
+
+
+	/**
+	 * Create a new AbstractAutoProxyCreator, determining once whether
+	 * the subclass overrides <code>postProcessBeforeInitialization</code>
+	 * or <code>isInfrastructureClass</code>.
+	 */
+	public AbstractAutoProxyCreator() {
+		this.beforeInitializationOverridden =
+				isOverridden("postProcessBeforeInitialization", new Class[] {Object.class, String.class});
+		this.infrastructureClassOverridden =
+				isOverridden("isInfrastructureClass", new Class[] {Class.class, String.class});
+	}
+
+	/**
+	 * Check whether the given method is declared by a subclass.
+	 */
+	private boolean isOverridden(String methodName, Class[] parameterTypes) {
+		for (Class clazz = getClass(); clazz != AbstractAutoProxyCreator.class; clazz = clazz.getSuperclass()) {
+			try {
+				clazz.getDeclaredMethod(methodName, parameterTypes);
+				return true;
+			}
+			catch (NoSuchMethodException ex) {
+				// not declared on this class - check superclass
+			}
+		}
+		return false;
+	}
 
 	/**
 	 * Set the ordering which will apply to this class's implementation
@@ -205,6 +240,27 @@ public abstract class AbstractAutoProxyCreator extends ProxyConfig
 		return null;
 	}
 
+	/**
+	 * Not applicable, as postProcessBeforeInitialization does nothing -
+	 * unless overridden by a subclass.
+	 */
+	public boolean isApplicableBeforeInitialization(Class beanClass, String beanName) {
+		return this.beforeInitializationOverridden;
+	}
+
+	/**
+	 * Not applicable to AOP infrastructure classes, which never get proxied -
+	 * unless the subclass overrides <code>isInfrastructureClass</code>, which
+	 * then gets consulted for each bean instance. Note that <code>shouldSkip</code>
+	 * cannot be taken into account here, as its result may vary between calls;
+	 * it does not matter for infrastructure types, though.
+	 * @see #isInfrastructureType
+	 * @see #isInfrastructureClass
+	 */
+	public boolean isApplicableAfterInitialization(Class beanClass, String beanName) {
+		return (this.infrastructureClassOverridden || !isInfrastructureType(beanClass));
+	}
+
 	public Object postProcessBeforeInitialization(Object bean, String beanName) {
 		return bean;
 	}
@@ -232,21 +288,16 @@ public abstract class AbstractAutoProxyCreator extends ProxyConfig
 	/**
 	 * Return whether the given bean class and bean name represents an
 	 * infrastructure class that should never be proxied.
-	 * <p>Default implementation considers Advisors, MethodInterceptors
-	 * and AbstractAutoProxyCreators as infrastructure classes, and
-	 * consults the <code>shouldSkip</coide> method.
+	 * <p>Default implementation checks <code>isInfrastructureType</code>,
+	 * and consults the <code>shouldSkip</code> method.
 	 * @param beanClass the class of the bean
 	 * @param beanName the name of the bean
 	 * @return whether the bean represents an infrastructure class
-	 * @see org.springframework.aop.Advisor
-	 * @see org.aopalliance.intercept.MethodInterceptor
+	 * @see #isInfrastructureType
 	 * @see #shouldSkip
 	 */
 	protected boolean isInfrastructureClass(Class beanClass, String beanName) {
-		boolean retVal = Advisor.class.isAssignableFrom(beanClass) ||
-				MethodInterceptor.class.isAssignableFrom(beanClass) ||
-				AbstractAutoProxyCreator.class.isAssignableFrom(beanClass) ||
-				shouldSkip(beanClass, beanName);
+		boolean retVal = isInfrastructureType(beanClass) || shouldSkip(beanClass, beanName);
 
 		if (retVal && logger.isDebugEnabled()) {
 			logger.debug("Did not attempt to autoproxy infrastructure class [" + beanClass.getName() + "]");
@@ -254,6 +305,24 @@ public abstract class AbstractAutoProxyCreator extends ProxyConfig
 		return retVal;
 	}
 
+	/**
+	 * Return whether the given bean class is an infrastructure type that
+	 * never gets proxied, based on the class alone. Also used to exclude
+	 * such beans from this post-processor upfront.
+	 * <p>Default implementation considers Advisors, MethodInterceptors
+	 * and AbstractAutoProxyCreators as infrastructure types.
+	 * @param beanClass the class of the bean
+	 * @return whether the class is an infrastructure type
+	 * @see org.springframework.aop.Advisor
+	 * @see org.aopalliance.intercept.MethodInterceptor
+	 * @see #isApplicableAfterInitialization
+	 */
+	protected boolean isInfrastructureType(Class beanClass) {
+		return (Advisor.class.isAssignableFrom(beanClass) ||
+				MethodInterceptor.class.isAssignableFrom(beanClass) ||
+				AbstractAutoProxyCreator.class.isAssignableFrom(beanClass));
+	}
+
 	/**
 	 * Subclasses should override this method to return true if this
 	 * bean should not be considered for auto-proxying by this post processor.
@@ -55,6 +55,7 @@ import org.springframework.beans.propertyeditors.LocaleEditor;
 import org.springframework.beans.propertyeditors.PropertiesEditor;
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
 import org.springframework.beans.propertyeditors.URLEditor;
+import org.springframework.core.CollectionFactory;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.ResourceArrayPropertyEditor;
 import org.springframework.util.Assert;
@@ -70,7 +71,9 @@ import org.springframework.util.StringUtils;
  *
  * <p>Note: Auto-registers default property editors from the
  * <code>org.springframework.beans.propertyeditors</code> package, which apply
- * in addition to the JDK's standard PropertyEditors. Applications can call
+ * in addition to the JDK's standard PropertyEditors. Default editors are
+ * created lazily, the first time a value needs to be converted to their
+ * type, as most BeanWrappers only ever need a few of them. Applications can call
  * BeanWrapper's <code>registerCustomEditor</code> method to register an editor
  * for the particular instance (i.e. they're not shared across the application).
  *
@@ -112,6 +115,16 @@ public class BeanWrapperImpl implements BeanWrapper {
 	/** We'll create a lot of these objects, so we don't want a new logger every time */
 	private static final Log logger = LogFactory.getLog(BeanWrapperImpl.class);
 
+	/**
+	 * Maximum number of parsed property names to cache. The cache needs to be
+	 * bounded, as property names may come from request parameters: once full,
+	 * it gets cleared and rebuilt from the property names in current use.
+	 */
+	private static final int PROPERTY_TOKENS_CACHE_LIMIT = 1024;
+
+	/** Cache of parsed property names: property name String --> PropertyTokenHolder */
+	private static final Map propertyTokensCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
 
 	//---------------------------------------------------------------------
 	// Instance data
@@ -125,7 +138,10 @@ public class BeanWrapperImpl implements BeanWrapper {
 
 	private Object rootObject;
 
-	/** Registry for default PropertyEditors */
+	/**
+	 * Default PropertyEditors created so far: Class --> PropertyEditor.
+	 * Shared with nested BeanWrappers; populated on demand.
+	 */
 	private final Map defaultEditors;
 
 	/** Map with custom PropertyEditor instances */
@@ -150,48 +166,8 @@ public class BeanWrapperImpl implements BeanWrapper {
 	 * @see #setWrappedInstance
 	 */
 	public BeanWrapperImpl() {
-		// Register default editors in this class, for restricted environments.
-		// We're not using the JRE's PropertyEditorManager to avoid potential
-		// SecurityExceptions when running in a SecurityManager.
-		this.defaultEditors = new HashMap(32);
-
-		// Simple editors, without parameterization capabilities.
-		// The JDK does not contain a default editor for any of these target types.
-		this.defaultEditors.put(byte[].class, new ByteArrayPropertyEditor());
-		this.defaultEditors.put(Class.class, new ClassEditor());
-		this.defaultEditors.put(File.class, new FileEditor());
-		this.defaultEditors.put(InputStream.class, new InputStreamEditor());
-		this.defaultEditors.put(Locale.class, new LocaleEditor());
-		this.defaultEditors.put(Properties.class, new PropertiesEditor());
-		this.defaultEditors.put(Resource[].class, new ResourceArrayPropertyEditor());
-		this.defaultEditors.put(String[].class, new StringArrayPropertyEditor());
-		this.defaultEditors.put(URL.class, new URLEditor());
-
-		// Default instances of character, boolean and number editors.
-		// Can be overridden by registering custom instances of those as custom editors.
-		PropertyEditor characterEditor = new CharacterEditor(false);
-		PropertyEditor booleanEditor = new CustomBooleanEditor(false);
-		// The JDK does not contain a default editor for char!
-		this.defaultEditors.put(char.class, characterEditor);
-		this.defaultEditors.put(Character.class, characterEditor);
-		// Spring's CustomBooleanEditor accepts more flag values than the JDK's default editor.
-		this.defaultEditors.put(boolean.class, booleanEditor);
-		this.defaultEditors.put(Boolean.class, booleanEditor);
-		// The JDK does not contain default editors for number wrapper types!
-		this.defaultEditors.put(Short.class, new CustomNumberEditor(Short.class, false));
-		this.defaultEditors.put(Integer.class, new CustomNumberEditor(Integer.class, false));
-		this.defaultEditors.put(Long.class, new CustomNumberEditor(Long.class, false));
-		this.defaultEditors.put(BigInteger.class, new CustomNumberEditor(BigInteger.class, false));
-		this.defaultEditors.put(Float.class, new CustomNumberEditor(Float.class, false));
-		this.defaultEditors.put(Double.class, new CustomNumberEditor(Double.class, false));
-		this.defaultEditors.put(BigDecimal.class, new CustomNumberEditor(BigDecimal.class, false));
-
-		// Default instances of collection editors.
-		// Can be overridden by registering custom instances of those as custom editors.
-		this.defaultEditors.put(Collection.class, new CustomCollectionEditor(Collection.class));
-		this.defaultEditors.put(Set.class, new CustomCollectionEditor(Set.class));
-		this.defaultEditors.put(SortedSet.class, new CustomCollectionEditor(SortedSet.class));
-		this.defaultEditors.put(List.class, new CustomCollectionEditor(List.class));
+		// Default editors will be created on demand.
+		this.defaultEditors = new HashMap(4);
 	}
 
 	/**
@@ -536,7 +512,31 @@ public class BeanWrapperImpl implements BeanWrapper {
 		return nestedBw;
 	}
 
+	/**
+	 * Return the parsed tokens for the given property name,
+	 * parsing the name on first access only.
+	 * @param propertyName the property name, without nested path
+	 * @return the shared PropertyTokenHolder (not to be modified)
+	 */
 	private PropertyTokenHolder getPropertyNameTokens(String propertyName) {
+		PropertyTokenHolder tokens = (PropertyTokenHolder) propertyTokensCache.get(propertyName);
+		if (tokens == null) {
+			tokens = parsePropertyNameTokens(propertyName);
+			if (propertyTokensCache.size() >= PROPERTY_TOKENS_CACHE_LIMIT) {
+				propertyTokensCache.clear();
+			}
+			propertyTokensCache.put(propertyName, tokens);
+		}
+		return tokens;
+	}
+
+	/**
+	 * Parse the given property name into its actual name,
+	 * canonical name and index/map keys.
+	 * @param propertyName the property name, without nested path
+	 * @return the new PropertyTokenHolder
+	 */
+	private PropertyTokenHolder parsePropertyNameTokens(String propertyName) {
 		PropertyTokenHolder tokens = new PropertyTokenHolder();
 		String actualName = null;
 		List keys = new ArrayList(2);
@@ -584,7 +584,8 @@ public class BeanWrapperImpl implements BeanWrapper {
 	protected Object getPropertyValue(PropertyTokenHolder tokens) throws BeansException {
 		String propertyName = tokens.canonicalName;
 		String actualName = tokens.actualName;
-		PropertyDescriptor pd = getPropertyDescriptorInternal(tokens.actualName);
+		// The actual name is never nested: no need to resolve a nested BeanWrapper.
+		PropertyDescriptor pd = this.cachedIntrospectionResults.getPropertyDescriptor(actualName);
 		if (pd == null || pd.getReadMethod() == null) {
 			throw new NotReadablePropertyException(getRootClass(), this.nestedPath + propertyName);
 		}
@@ -761,10 +762,12 @@ public class BeanWrapperImpl implements BeanWrapper {
 		}
 
 		else {
-			if (!isWritableProperty(propertyName)) {
+			// The property name is neither nested nor indexed here:
+			// look up the cached descriptor directly.
+			PropertyDescriptor pd = this.cachedIntrospectionResults.getPropertyDescriptor(propertyName);
+			if (pd == null || pd.getWriteMethod() == null) {
 				throw new NotWritablePropertyException(getRootClass(), this.nestedPath + propertyName);
 			}
-			PropertyDescriptor pd = getPropertyDescriptor(propertyName);
 			Method writeMethod = pd.getWriteMethod();
 			Object newValue = null;
 			try {
@@ -871,6 +874,92 @@ public class BeanWrapperImpl implements BeanWrapper {
 				oldValue, newValue);
 	}
 
+	/**
+	 * Return the default editor for the given type, if any,
+	 * creating it on first access.
+	 * <p>PropertyEditors are stateful, so every BeanWrapper (together with its
+	 * nested BeanWrappers) uses its own editor instances.
+	 * @param requiredType the type to find an editor for
+	 * @return the default editor, or null if none registered for the given type
+	 * @see #createDefaultEditor
+	 */
+	private PropertyEditor getDefaultEditor(Class requiredType) {
+		PropertyEditor editor = (PropertyEditor) this.defaultEditors.get(requiredType);
+		if (editor == null) {
+			editor = createDefaultEditor(requiredType);
+			if (editor != null) {
+				this.defaultEditors.put(requiredType, editor);
+			}
+		}
+		return editor;
+	}
+
+	/**
+	 * Create a new instance of the default editor for the given type.
+	 * <p>Default editors are registered in this class, for restricted environments.
+	 * We're not using the JRE's PropertyEditorManager to avoid potential
+	 * SecurityExceptions when running in a SecurityManager.
+	 * @param requiredType the type to create an editor for
+	 * @return the new editor, or null if there is no default editor for the given type
+	 */
+	private static PropertyEditor createDefaultEditor(Class requiredType) {
+		// Simple editors, without parameterization capabilities.
+		// The JDK does not contain a default editor for any of these target types.
+		if (requiredType == byte[].class) {
+			return new ByteArrayPropertyEditor();
+		}
+		if (requiredType == Class.class) {
+			return new ClassEditor();
+		}
+		if (requiredType == File.class) {
+			return new FileEditor();
+		}
+		if (requiredType == InputStream.class) {
+			return new InputStreamEditor();
+		}
+		if (requiredType == Locale.class) {
+			return new LocaleEditor();
+		}
+		if (requiredType == Properties.class) {
+			return new PropertiesEditor();
+		}
+		if (requiredType == Resource[].class) {
+			return new ResourceArrayPropertyEditor();
+		}
+		if (requiredType == String[].class) {
+			return new StringArrayPropertyEditor();
+		}
+		if (requiredType == URL.class) {
+			return new URLEditor();
+		}
+
+		// Default instances of character, boolean and number editors.
+		// Can be overridden by registering custom instances of those as custom editors.
+		// The JDK does not contain a default editor for char!
+		if (requiredType == char.class || requiredType == Character.class) {
+			return new CharacterEditor(false);
+		}
+		// Spring's CustomBooleanEditor accepts more flag values than the JDK's default editor.
+		if (requiredType == boolean.class || requiredType == Boolean.class) {
+			return new CustomBooleanEditor(false);
+		}
+		// The JDK does not contain default editors for number wrapper types!
+		if (requiredType == Short.class || requiredType == Integer.class || requiredType == Long.class ||
+				requiredType == BigInteger.class || requiredType == Float.class || requiredType == Double.class ||
+				requiredType == BigDecimal.class) {
+			return new CustomNumberEditor(requiredType, false);
+		}
+
+		// Default instances of collection editors.
+		// Can be overridden by registering custom instances of those as custom editors.
+		if (requiredType == Collection.class || requiredType == Set.class ||
+				requiredType == SortedSet.class || requiredType == List.class) {
+			return new CustomCollectionEditor(requiredType);
+		}
+
+		return null;
+	}
+
 	/**
 	 * Convert the value to the required type (if necessary from a String).
 	 * Conversions from String to any type use the <code>setAsText</code> method
@@ -915,7 +1004,7 @@ public class BeanWrapperImpl implements BeanWrapper {
 				if (requiredType != null) {
 					if (pe == null) {
 						// No custom editor -> check BeanWrapperImpl's default editors.
-						pe = (PropertyEditor) this.defaultEditors.get(requiredType);
+						pe = getDefaultEditor(requiredType);
 						if (pe == null) {
 							// No BeanWrapper default editor -> check standard JavaBean editors.
 							pe = PropertyEditorManager.findEditor(requiredType);
@@ -1173,6 +1262,10 @@ public class BeanWrapperImpl implements BeanWrapper {
 	}
 
 
+	/**
+	 * Parsed form of a property name. Instances are cached and
+	 * shared, so they must not be modified once parsed.
+	 */
 	private static class PropertyTokenHolder {
 
 		private String canonicalName;
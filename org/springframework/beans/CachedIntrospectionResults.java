@@ -21,17 +21,18 @@ import java.beans.IntrospectionException;
 import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.WeakHashMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.core.CollectionFactory;
+
 /**
  * Class to cache PropertyDescriptor information for a Java class.
  * Package-visible; not for use by application code.
@@ -47,6 +48,13 @@ import org.apache.commons.logging.LogFactory;
  * implements the factory design pattern, using a private constructor
  * and a static <code>forClass</code> method to obtain instances.
  *
+ * <p>Results for classes that are cache-safe with respect to this class'
+ * class loader are kept in a concurrent map that can be read without locking
+ * on JDK 1.5+. Results for all other classes are kept in a second concurrent
+ * map with weakly referenced keys and values, to avoid pinning their class
+ * loaders (for example on webapp redeployment). Entries for collected classes
+ * are purged whenever a class needs to be introspected.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 05 May 2001
@@ -56,11 +64,30 @@ final class CachedIntrospectionResults {
 	private static final Log logger = LogFactory.getLog(CachedIntrospectionResults.class);
 
 	/**
-	 * Map keyed by class containing CachedIntrospectionResults.
-	 * Needs to be a WeakHashMap with WeakReferences as values to allow
-	 * for proper garbage collection in case of multiple classloaders.
+	 * Map keyed by cache-safe class containing CachedIntrospectionResults.
+	 * Strong references are fine here, as those classes will live at least
+	 * as long as this class.
 	 */
-	private static final Map classCache = Collections.synchronizedMap(new WeakHashMap());
+	private static final Map strongClassCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/**
+	 * Map keyed by WeakClassKey for non-cache-safe classes, containing
+	 * WeakReferences to CachedIntrospectionResults. Neither keys nor values
+	 * may be strong, to allow for proper garbage collection in case of
+	 * multiple classloaders.
+	 */
+	private static final Map weakClassCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Queue of WeakClassKeys whose class has been garbage-collected */
+	private static final ReferenceQueue collectedClassKeys = new ReferenceQueue();
+
+	/** Statistics counters for lookups that introspect; guarded by statisticsMonitor */
+	private static long missCount = 0;
+
+	private static long evictionCount = 0;
+
+	private static final Object statisticsMonitor = new Object();
+
 
 	/**
 	 * We might use this from the EJB tier, so we don't want to use synchronization.
@@ -68,27 +95,35 @@ final class CachedIntrospectionResults {
 	 * unnecessary lookup at startup only.
 	 */
 	static CachedIntrospectionResults forClass(Class clazz) throws BeansException {
-		CachedIntrospectionResults results = null;
-		Object value = classCache.get(clazz);
-		if (value instanceof Reference) {
-			Reference ref = (Reference) value;
-			results = (CachedIntrospectionResults) ref.get();
-		}
-		else {
-			results = (CachedIntrospectionResults) value;
+		CachedIntrospectionResults results = (CachedIntrospectionResults) strongClassCache.get(clazz);
+		boolean evicted = false;
+		if (results == null) {
+			Reference ref = (Reference) weakClassCache.get(new ClassLookupKey(clazz));
+			if (ref != null) {
+				results = (CachedIntrospectionResults) ref.get();
+				// Results may have been garbage-collected, while the class is still around.
+				evicted = (results == null);
+			}
 		}
 		if (results == null) {
+			synchronized (statisticsMonitor) {
+				missCount++;
+				if (evicted) {
+					evictionCount++;
+				}
+			}
 			// can throw BeansException
 			results = new CachedIntrospectionResults(clazz);
 			boolean cacheSafe = isCacheSafe(clazz);
 			if (logger.isDebugEnabled()) {
 				logger.debug("Class [" + clazz.getName() + "] is " + (!cacheSafe ? "not " : "") + "cache-safe");
 			}
+			purgeCollectedClasses();
 			if (cacheSafe) {
-				classCache.put(clazz, results);
+				strongClassCache.put(clazz, results);
 			}
 			else {
-				classCache.put(clazz, new WeakReference(results));
+				weakClassCache.put(new WeakClassKey(clazz, collectedClassKeys), new WeakReference(results));
 			}
 		}
 		else {
@@ -99,6 +134,43 @@ final class CachedIntrospectionResults {
 		return results;
 	}
 
+	/**
+	 * Remove the entries for garbage-collected classes from the weak class cache.
+	 */
+	private static void purgeCollectedClasses() {
+		Reference collectedKey;
+		while ((collectedKey = collectedClassKeys.poll()) != null) {
+			weakClassCache.remove(collectedKey);
+		}
+	}
+
+	/**
+	 * Return the number of lookups that required introspecting the class.
+	 */
+	static long getMissCount() {
+		synchronized (statisticsMonitor) {
+			return missCount;
+		}
+	}
+
+	/**
+	 * Return the number of lookups that found weakly cached results
+	 * garbage-collected and had to introspect the class again.
+	 */
+	static long getEvictionCount() {
+		synchronized (statisticsMonitor) {
+			return evictionCount;
+		}
+	}
+
+	/**
+	 * Return the number of classes currently held in the cache,
+	 * including weakly cached results that may have been collected already.
+	 */
+	static int getCacheSize() {
+		return strongClassCache.size() + weakClassCache.size();
+	}
+
 	/**
 	 * Check whether the given class is cache-safe,
 	 * i.e. whether it is loaded by the same class loader as the
@@ -197,4 +269,63 @@ final class CachedIntrospectionResults {
 		return (PropertyDescriptor) this.propertyDescriptorCache.get(propertyName);
 	}
 
+
+
+	/**
+	 * Key for the weak class cache: weakly references its class,
+	 * comparing by class identity.
+	 */
+	private static class WeakClassKey extends WeakReference {
+
+		private final int hashCode;
+
+		public WeakClassKey(Class clazz, ReferenceQueue queue) {
+			super(clazz, queue);
+			this.hashCode = System.identityHashCode(clazz);
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			Object clazz = get();
+			if (clazz == null) {
+				return false;
+			}
+			if (other instanceof WeakClassKey) {
+				return (clazz == ((WeakClassKey) other).get());
+			}
+			return (other instanceof ClassLookupKey && clazz == ((ClassLookupKey) other).clazz);
+		}
+
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
+
+	/**
+	 * Key for lookups in the weak class cache, matching the WeakClassKey
+	 * for the same class without creating a WeakReference per lookup.
+	 */
+	private static class ClassLookupKey {
+
+		private final Class clazz;
+
+		public ClassLookupKey(Class clazz) {
+			this.clazz = clazz;
+		}
+
+		public boolean equals(Object other) {
+			if (other instanceof ClassLookupKey) {
+				return (this.clazz == ((ClassLookupKey) other).clazz);
+			}
+			return (other instanceof WeakClassKey && this.clazz == ((WeakClassKey) other).get());
+		}
+
+		public int hashCode() {
+			return System.identityHashCode(this.clazz);
+		}
+	}
+
 }
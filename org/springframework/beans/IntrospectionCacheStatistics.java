@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans;
+
+/**
+ * Static accessors for the statistics of the JavaBeans introspection cache
+ * that BeanWrapperImpl uses internally, meant for monitoring purposes,
+ * for example to be polled through a JMX bean.
+ *
+ * <p>Only lookups that introspect a class are counted: cache hits are not,
+ * to keep them free of any shared state that all threads would write to.
+ *
+ * @since 1.2
+ * @see BeanWrapperImpl
+ */
+public abstract class IntrospectionCacheStatistics {
+
+	/**
+	 * Return the number of introspection lookups that required
+	 * introspecting the class.
+	 */
+	public static long getMissCount() {
+		return CachedIntrospectionResults.getMissCount();
+	}
+
+	/**
+	 * Return the number of lookups that found weakly cached results
+	 * garbage-collected and had to introspect the class again.
+	 * Only applies to classes from class loaders below the one that
+	 * loaded the Spring beans package.
+	 */
+	public static long getEvictionCount() {
+		return CachedIntrospectionResults.getEvictionCount();
+	}
+
+	/**
+	 * Return the number of classes currently held in the cache.
+	 */
+	public static int getCacheSize() {
+		return CachedIntrospectionResults.getCacheSize();
+	}
+
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.config;
+
+/**
+ * Extension of the BeanPostProcessor interface that allows a post-processor
+ * to declare which beans its callbacks apply to. Bean factories can determine
+ * the applicable post-processors once per bean name and bean class, and skip
+ * the callbacks that do not apply when creating further instances, for
+ * example of prototype beans.
+ *
+ * <p>Typical implementations check for marker interfaces, like the
+ * ApplicationContextAwareProcessor, or never do anything in one of the
+ * callbacks, like auto-proxy creators before initialization.
+ *
+ * <p>The answers must only depend on the given bean class and bean name, and
+ * must not change while the post-processor is registered: they will be cached.
+ * Return <code>true</code> if in doubt.
+ *
+ * @since 1.2
+ * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#applyBeanPostProcessorsBeforeInitialization
+ * @see org.springframework.beans.factory.support.AbstractAutowireCapableBeanFactory#applyBeanPostProcessorsAfterInitialization
+ */
+public interface SelectiveBeanPostProcessor extends BeanPostProcessor {
+
+	/**
+	 * Determine whether <code>postProcessBeforeInitialization</code> may do
+	 * anything for a bean of the given class with the given name. If not,
+	 * it will not be invoked for such beans.
+	 * @param beanClass the class of the bean instance
+	 * @param beanName the name of the bean
+	 * @return whether to invoke <code>postProcessBeforeInitialization</code>
+	 * @see #postProcessBeforeInitialization
+	 */
+	boolean isApplicableBeforeInitialization(Class beanClass, String beanName);
+
+	/**
+	 * Determine whether <code>postProcessAfterInitialization</code> may do
+	 * anything for a bean of the given class with the given name. If not,
+	 * it will not be invoked for such beans.
+	 * @param beanClass the class of the bean instance
+	 * @param beanName the name of the bean
+	 * @return whether to invoke <code>postProcessAfterInitialization</code>
+	 * @see #postProcessAfterInitialization
+	 */
+	boolean isApplicableAfterInitialization(Class beanClass, String beanName);
+
+}
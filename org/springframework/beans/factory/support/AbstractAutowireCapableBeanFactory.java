@@ -49,8 +49,10 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConstructorArgumentValues;
 import org.springframework.beans.factory.config.InstantiationAwareBeanPostProcessor;
 import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 import org.springframework.beans.factory.config.TypedStringValue;
 import org.springframework.core.CollectionFactory;
+import org.springframework.util.ClassUtils;
 
 /**
  * Abstract BeanFactory superclass that implements default bean creation,
@@ -95,6 +97,12 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	private final Set ignoreDependencyTypes = new HashSet();
 
+	/** Cache of BeanPostProcessorChains before initialization, keyed by bean class and name */
+	private final Map beforeInitializationChains = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Cache of BeanPostProcessorChains after initialization, keyed by bean class and name */
+	private final Map afterInitializationChains = CollectionFactory.createConcurrentMapIfPossible(64);
+
 
 	/**
 	 * Create a new AbstractAutowireCapableBeanFactory.
@@ -145,6 +153,15 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		return ignoreDependencyTypes;
 	}
 
+	/**
+	 * Overridden to discard the BeanPostProcessorChains determined so far.
+	 */
+	public void addBeanPostProcessor(BeanPostProcessor beanPostProcessor) {
+		super.addBeanPostProcessor(beanPostProcessor);
+		this.beforeInitializationChains.clear();
+		this.afterInitializationChains.clear();
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of AutowireCapableBeanFactory interface
@@ -212,17 +229,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		if (logger.isDebugEnabled()) {
 			logger.debug("Invoking BeanPostProcessors before initialization of bean '" + beanName + "'");
 		}
-		Object result = existingBean;
-		for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext();) {
-			BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-			result = beanProcessor.postProcessBeforeInitialization(result, beanName);
-			if (result == null) {
-				throw new BeanCreationException(beanName,
-						"postProcessBeforeInitialization method of BeanPostProcessor [" + beanProcessor +
-						"] returned null for bean [" + result + "] with name [" + beanName + "]");
-			}
-		}
-		return result;
+		return applyBeanPostProcessorChain(existingBean, beanName, false);
 	}
 
 	public Object applyBeanPostProcessorsAfterInitialization(Object existingBean, String beanName)
@@ -230,19 +237,89 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		if (logger.isDebugEnabled()) {
 			logger.debug("Invoking BeanPostProcessors after initialization of bean '" + beanName + "'");
 		}
+		return applyBeanPostProcessorChain(existingBean, beanName, true);
+	}
+
+	/**
+	 * Apply the BeanPostProcessors that are applicable to the given bean,
+	 * either before or after initialization.
+	 * <p>If a BeanPostProcessor replaces the bean with an instance of a different
+	 * class, the remaining BeanPostProcessors are determined for the new class.
+	 * @param existingBean the bean instance
+	 * @param beanName the name of the bean
+	 * @param afterInitialization whether to apply the BeanPostProcessors
+	 * after initialization rather than before initialization
+	 * @return the bean instance to use, either the original or a wrapped one
+	 * @throws BeansException if any post-processing failed
+	 * @see #getBeanPostProcessorChain
+	 */
+	private Object applyBeanPostProcessorChain(Object existingBean, String beanName, boolean afterInitialization)
+			throws BeansException {
+		StartupRecorder recorder = getStartupRecorder();
+		String category = (afterInitialization ?
+				StartupRecorder.AFTER_INITIALIZATION : StartupRecorder.BEFORE_INITIALIZATION);
 		Object result = existingBean;
-		for (Iterator it = getBeanPostProcessors().iterator(); it.hasNext();) {
-			BeanPostProcessor beanProcessor = (BeanPostProcessor) it.next();
-			result = beanProcessor.postProcessAfterInitialization(result, beanName);
+		Class beanClass = (result != null ? result.getClass() : null);
+		BeanPostProcessorChain chain = getBeanPostProcessorChain(beanClass, beanName, afterInitialization);
+		int i = 0;
+		while (i < chain.processors.length) {
+			BeanPostProcessor beanProcessor = chain.processors[i];
+			if (recorder != null) {
+				recorder.start(category, ClassUtils.getShortName(beanProcessor.getClass()));
+			}
+			try {
+				result = (afterInitialization ?
+						beanProcessor.postProcessAfterInitialization(result, beanName) :
+						beanProcessor.postProcessBeforeInitialization(result, beanName));
+			}
+			finally {
+				if (recorder != null) {
+					recorder.end();
+				}
+			}
 			if (result == null) {
 				throw new BeanCreationException(beanName,
-						"postProcessAfterInitialization method of BeanPostProcessor [" + beanProcessor +
-				    "] returned null for bean [" + result + "] with name [" + beanName + "]");
+						category + " method of BeanPostProcessor [" + beanProcessor +
+						"] returned null for bean [" + result + "] with name [" + beanName + "]");
+			}
+			if (result.getClass() != beanClass) {
+				// Continue with the BeanPostProcessors that apply to the new class.
+				beanClass = result.getClass();
+				int position = chain.positions[i];
+				chain = getBeanPostProcessorChain(beanClass, beanName, afterInitialization);
+				i = chain.indexAfter(position);
+			}
+			else {
+				i++;
 			}
 		}
 		return result;
 	}
 
+	/**
+	 * Return the BeanPostProcessors to apply to a bean of the given class
+	 * with the given name, skipping SelectiveBeanPostProcessors that declare
+	 * themselves as not applicable. Determined once per bean class and name,
+	 * as long as the list of BeanPostProcessors does not change.
+	 * @param beanClass the class of the bean instance (may be <code>null</code>
+	 * for a <code>null</code> bean, in which case all BeanPostProcessors apply)
+	 * @param beanName the name of the bean
+	 * @param afterInitialization whether to determine the BeanPostProcessors
+	 * to apply after initialization rather than before initialization
+	 * @see SelectiveBeanPostProcessor
+	 */
+	private BeanPostProcessorChain getBeanPostProcessorChain(
+			Class beanClass, String beanName, boolean afterInitialization) {
+		List beanPostProcessors = getBeanPostProcessors();
+		Map chains = (afterInitialization ? this.afterInitializationChains : this.beforeInitializationChains);
+		Object cacheKey = new BeanPostProcessorChainKey(beanClass, beanName);
+		BeanPostProcessorChain chain = (BeanPostProcessorChain) chains.get(cacheKey);
+		if (chain == null || chain.processorCount != beanPostProcessors.size()) {
+			chain = new BeanPostProcessorChain(beanPostProcessors, beanClass, beanName, afterInitialization);
+			chains.put(cacheKey, chain);
+		}
+		return chain;
+	}
 
 	//---------------------------------------------------------------------
 	// Implementation of AbstractBeanFactory's createBean method
@@ -268,11 +345,33 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 * (typically true for normal beans, but false for inner beans)
 	 * @return a new instance of the bean
 	 * @throws BeansException in case of errors
+	 * @see #setStartupRecorder
 	 */
 	protected Object createBean(
 			String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args, boolean allowEagerCaching)
 			throws BeansException {
 
+		StartupRecorder recorder = getStartupRecorder();
+		if (recorder == null) {
+			return doCreateBean(beanName, mergedBeanDefinition, args, allowEagerCaching);
+		}
+		recorder.start(StartupRecorder.BEAN_CREATION, beanName);
+		try {
+			return doCreateBean(beanName, mergedBeanDefinition, args, allowEagerCaching);
+		}
+		finally {
+			recorder.end();
+		}
+	}
+
+	/**
+	 * Actually create a bean instance for the given bean definition.
+	 * @see #createBean(String, RootBeanDefinition, Object[], boolean)
+	 */
+	private Object doCreateBean(
+			String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args, boolean allowEagerCaching)
+			throws BeansException {
+
 		if (logger.isDebugEnabled()) {
 			logger.debug("Creating instance of bean '" + beanName +
 					"' with merged definition [" + mergedBeanDefinition + "]");
@@ -298,7 +397,6 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 		BeanWrapper instanceWrapper = null;
 		Object originalBean = null;
 		String errorMessage = null;
-		boolean eagerlyCached = false;
 
 		try {
 			// Instantiate the bean.
@@ -322,8 +420,7 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			// Eagerly cache singletons to be able to resolve circular references
 			// even when triggered by lifecycle interfaces like BeanFactoryAware.
 			if (allowEagerCaching && mergedBeanDefinition.isSingleton()) {
-				addSingleton(beanName, bean);
-				eagerlyCached = true;
+				addEarlySingletonReference(beanName, bean);
 			}
 
 			// Initialize the bean instance.
@@ -350,15 +447,9 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			bean = applyBeanPostProcessorsAfterInitialization(bean, beanName);
 		}
 		catch (BeanCreationException ex) {
-			if (eagerlyCached) {
-				removeSingleton(beanName);
-			}
 			throw ex;
 		}
 		catch (Throwable ex) {
-			if (eagerlyCached) {
-				removeSingleton(beanName);
-			}
 			throw new BeanCreationException(
 					mergedBeanDefinition.getResourceDescription(), beanName, errorMessage, ex);
 		}
@@ -1107,15 +1198,37 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected void invokeInitMethods(String beanName, Object bean, RootBeanDefinition mergedBeanDefinition)
 			throws Throwable {
 
+		StartupRecorder recorder = getStartupRecorder();
+
 		if (bean instanceof InitializingBean) {
 			if (logger.isDebugEnabled()) {
 				logger.debug("Invoking afterPropertiesSet() on bean with name '" + beanName + "'");
 			}
-			((InitializingBean) bean).afterPropertiesSet();
+			if (recorder != null) {
+				recorder.start(StartupRecorder.INIT_METHOD, "afterPropertiesSet");
+			}
+			try {
+				((InitializingBean) bean).afterPropertiesSet();
+			}
+			finally {
+				if (recorder != null) {
+					recorder.end();
+				}
+			}
 		}
 
 		if (mergedBeanDefinition != null && mergedBeanDefinition.getInitMethodName() != null) {
-			invokeCustomInitMethod(beanName, bean, mergedBeanDefinition.getInitMethodName());
+			if (recorder != null) {
+				recorder.start(StartupRecorder.INIT_METHOD, mergedBeanDefinition.getInitMethodName());
+			}
+			try {
+				invokeCustomInitMethod(beanName, bean, mergedBeanDefinition.getInitMethodName());
+			}
+			finally {
+				if (recorder != null) {
+					recorder.end();
+				}
+			}
 		}
 	}
 
@@ -1170,4 +1283,88 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	 */
 	protected abstract Map findMatchingBeans(Class requiredType) throws BeansException;
 
+
+	/**
+	 * Cache key for a BeanPostProcessorChain: bean class plus bean name.
+	 */
+	private static class BeanPostProcessorChainKey {
+
+		private final Class beanClass;
+
+		private final String beanName;
+
+		private BeanPostProcessorChainKey(Class beanClass, String beanName) {
+			this.beanClass = beanClass;
+			this.beanName = beanName;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof BeanPostProcessorChainKey)) {
+				return false;
+			}
+			BeanPostProcessorChainKey otherKey = (BeanPostProcessorChainKey) other;
+			return (this.beanClass == otherKey.beanClass &&
+					(this.beanName != null ? this.beanName.equals(otherKey.beanName) : otherKey.beanName == null));
+		}
+
+		public int hashCode() {
+			return ((this.beanClass != null ? this.beanClass.hashCode() : 0) * 29 +
+					(this.beanName != null ? this.beanName.hashCode() : 0));
+		}
+	}
+
+
+	/**
+	 * The BeanPostProcessors applicable to a bean of a particular class and name,
+	 * along with their positions in the list of all BeanPostProcessors.
+	 */
+	private static class BeanPostProcessorChain {
+
+		private final BeanPostProcessor[] processors;
+
+		private final int[] positions;
+
+		/** Number of BeanPostProcessors that this chain has been determined from */
+		private final int processorCount;
+
+		private BeanPostProcessorChain(
+				List beanPostProcessors, Class beanClass, String beanName, boolean afterInitialization) {
+			List processors = new ArrayList(beanPostProcessors.size());
+			List positions = new ArrayList(beanPostProcessors.size());
+			for (int i = 0; i < beanPostProcessors.size(); i++) {
+				BeanPostProcessor beanProcessor = (BeanPostProcessor) beanPostProcessors.get(i);
+				if (beanClass != null && beanProcessor instanceof SelectiveBeanPostProcessor) {
+					SelectiveBeanPostProcessor sbpp = (SelectiveBeanPostProcessor) beanProcessor;
+					if (afterInitialization ? !sbpp.isApplicableAfterInitialization(beanClass, beanName) :
+							!sbpp.isApplicableBeforeInitialization(beanClass, beanName)) {
+						continue;
+					}
+				}
+				processors.add(beanProcessor);
+				positions.add(new Integer(i));
+			}
+			this.processors = (BeanPostProcessor[]) processors.toArray(new BeanPostProcessor[processors.size()]);
+			this.positions = new int[positions.size()];
+			for (int i = 0; i < this.positions.length; i++) {
+				this.positions[i] = ((Integer) positions.get(i)).intValue();
+			}
+			this.processorCount = beanPostProcessors.size();
+		}
+
+		/**
+		 * Return the index of the first BeanPostProcessor in this chain
+		 * that comes after the given position in the list of all BeanPostProcessors.
+		 */
+		private int indexAfter(int position) {
+			int index = 0;
+			while (index < this.positions.length && this.positions[index] <= position) {
+				index++;
+			}
+			return index;
+		}
+	}
+
 }
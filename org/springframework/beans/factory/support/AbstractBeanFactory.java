@@ -54,6 +54,7 @@ import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.DestructionAwareBeanPostProcessor;
+import org.springframework.core.CollectionFactory;
 import org.springframework.util.Assert;
 
 /**
@@ -66,6 +67,8 @@ import org.springframework.util.Assert;
  * <p>This class provides singleton/prototype determination, singleton cache,
  * aliases, FactoryBean handling, bean definition merging for child bean definitions,
  * and bean destruction (DisposableBean interface, custom destroy methods).
+ * The singleton cache and alias map can be read without locking on JDK 1.5+;
+ * singleton creation only blocks threads that ask for the same bean name.
  * Furthermore, it can manage a bean factory hierarchy, through implementing the
  * HierarchicalBeanFactory interface (superinterface of ConfigurableBeanFactory).
  *
@@ -89,13 +92,6 @@ import org.springframework.util.Assert;
  */
 public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 
-	/**
-	 * Marker object to be temporarily registered in the singleton cache
-	 * while instantiating a bean, to be able to detect circular references.
-	 */
-	private static final Object CURRENTLY_IN_CREATION = new Object();
-
-
 	/** Logger available to subclasses */
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -110,11 +106,23 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 
 	private boolean hasDestructionAwareBeanPostProcessors;
 
+	/** Recorder for bean creation timing, if any */
+	private StartupRecorder startupRecorder;
+
 	/** Map from alias to canonical bean name */
-	private final Map aliasMap = Collections.synchronizedMap(new HashMap());
+	private final Map aliasMap = CollectionFactory.createConcurrentMapIfPossible(16);
+
+	/**
+	 * Cache of singletons: bean name --> bean instance.
+	 * Serves as monitor for all modifications of the singleton registry.
+	 */
+	private final Map singletonCache = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/** Singletons currently in creation: bean name --> SingletonCreation */
+	private final Map singletonsInCreation = new HashMap();
 
-	/** Cache of singletons: bean name --> bean instance */
-	private final Map singletonCache = Collections.synchronizedMap(new HashMap());
+	/** Threads waiting for a singleton in creation: Thread --> SingletonCreation */
+	private final Map waitingThreads = new HashMap();
 
 	/** Disposable bean instances: bean name --> disposable instance */
 	private final Map disposableBeans = Collections.synchronizedMap(new HashMap());
@@ -179,9 +187,6 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 		// Eagerly check singleton cache for manually registered singletons.
 		Object sharedInstance = this.singletonCache.get(beanName);
 		if (sharedInstance != null) {
-			if (sharedInstance == CURRENTLY_IN_CREATION) {
-				throw new BeanCurrentlyInCreationException(beanName);
-			}
 			if (logger.isDebugEnabled()) {
 				logger.debug("Returning cached instance of singleton bean '" + beanName + "'");
 			}
@@ -211,24 +216,7 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 
 			// Create bean instance.
 			if (mergedBeanDefinition.isSingleton()) {
-				synchronized (this.singletonCache) {
-					// re-check singleton cache within synchronized block
-					sharedInstance = this.singletonCache.get(beanName);
-					if (sharedInstance == null) {
-						if (logger.isInfoEnabled()) {
-							logger.info("Creating shared instance of singleton bean '" + beanName + "'");
-						}
-						this.singletonCache.put(beanName, CURRENTLY_IN_CREATION);
-						try {
-							sharedInstance = createBean(beanName, mergedBeanDefinition, args);
-							this.singletonCache.put(beanName, sharedInstance);
-						}
-						catch (BeansException ex) {
-							this.singletonCache.remove(beanName);
-							throw ex;
-						}
-					}
-				}
+				sharedInstance = getOrCreateSingleton(beanName, mergedBeanDefinition, args);
 				bean = getObjectForSharedInstance(name, sharedInstance);
 			}
 			else {
@@ -270,7 +258,7 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 			boolean singleton = true;
 
 			Object beanInstance = this.singletonCache.get(beanName);
-			if (beanInstance != null && beanInstance != CURRENTLY_IN_CREATION) {
+			if (beanInstance != null) {
 				beanClass = beanInstance.getClass();
 				singleton = true;
 			}
@@ -306,9 +294,6 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 
 			// Check manually registered singletons.
 			Object beanInstance = this.singletonCache.get(beanName);
-			if (beanInstance == CURRENTLY_IN_CREATION) {
-				throw new BeanCurrentlyInCreationException(beanName);
-			}
 			if (beanInstance != null) {
 				beanClass = beanInstance.getClass();
 			}
@@ -424,6 +409,22 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 		return beanPostProcessors;
 	}
 
+	/**
+	 * Set a StartupRecorder to record the timing of bean creation,
+	 * BeanPostProcessor application and init methods with.
+	 * Default is none.
+	 */
+	public void setStartupRecorder(StartupRecorder startupRecorder) {
+		this.startupRecorder = startupRecorder;
+	}
+
+	/**
+	 * Return the StartupRecorder for this factory, if any.
+	 */
+	public StartupRecorder getStartupRecorder() {
+		return this.startupRecorder;
+	}
+
 	/**
 	 * Return whether this factory holds a DestructionAwareBeanPostProcessor
 	 * that will get applied to singleton beans on shutdown.
@@ -459,6 +460,10 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 				throw new BeanDefinitionStoreException("Could not register object [" + singletonObject +
 						"] under bean name '" + beanName + "': there's already object [" + oldObject + " bound");
 			}
+			if (this.singletonsInCreation.containsKey(beanName)) {
+				throw new BeanDefinitionStoreException("Could not register object [" + singletonObject +
+						"] under bean name '" + beanName + "': singleton is currently in creation");
+			}
 			addSingleton(beanName, singletonObject);
 		}
 	}
@@ -473,7 +478,9 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 	protected void addSingleton(String beanName, Object singletonObject) {
 		Assert.hasText(beanName, "Bean name must not be empty");
 		Assert.notNull(singletonObject, "Singleton object must not be null");
-		this.singletonCache.put(beanName, singletonObject);
+		synchronized (this.singletonCache) {
+			this.singletonCache.put(beanName, singletonObject);
+		}
 	}
 
 	/**
@@ -483,7 +490,9 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 	 */
 	protected void removeSingleton(String beanName) {
 		Assert.hasText(beanName, "Bean name must not be empty");
-		this.singletonCache.remove(beanName);
+		synchronized (this.singletonCache) {
+			this.singletonCache.remove(beanName);
+		}
 		this.disposableBeans.remove(beanName);
 	}
 
@@ -503,16 +512,26 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 		return (String[]) this.singletonCache.keySet().toArray(new String[this.singletonCache.size()]);
 	}
 
+	/**
+	 * Also returns <code>true</code> for a singleton that is currently in creation.
+	 */
 	public boolean containsSingleton(String beanName) {
 		Assert.hasText(beanName, "Bean name must not be empty");
-		return this.singletonCache.containsKey(beanName);
+		if (this.singletonCache.containsKey(beanName)) {
+			return true;
+		}
+		synchronized (this.singletonCache) {
+			return (this.singletonCache.containsKey(beanName) || this.singletonsInCreation.containsKey(beanName));
+		}
 	}
 
 	public void destroySingletons() {
 		if (logger.isInfoEnabled()) {
 			logger.info("Destroying singletons in factory {" + this + "}");
 		}
-		this.singletonCache.clear();
+		synchronized (this.singletonCache) {
+			this.singletonCache.clear();
+		}
 		synchronized (this.disposableBeans) {
 			for (Iterator it = new HashSet(this.disposableBeans.keySet()).iterator(); it.hasNext();) {
 				destroyDisposableBean((String) it.next());
@@ -525,6 +544,143 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 	// Implementation methods
 	//---------------------------------------------------------------------
 
+	/**
+	 * Return the singleton instance for the given bean name, creating it
+	 * if it has not been created yet.
+	 * <p>Only the creating thread and threads that ask for the same bean name
+	 * are involved: others may concurrently create different singletons or read
+	 * the singleton cache. A request for a bean that is currently in creation
+	 * by the same thread, or by a thread that is itself waiting for a bean in
+	 * creation by the current thread, is a circular reference: it receives the
+	 * early reference to the bean, if already registered, and fails otherwise.
+	 * <p>The singleton only gets published to the singleton cache once it is
+	 * fully initialized, so other threads never see a partially initialized bean.
+	 * @param beanName the name of the bean
+	 * @param mergedBeanDefinition the bean definition for the bean
+	 * @param args arguments to use for bean creation, if any
+	 * @return the raw singleton instance (may be a FactoryBean)
+	 * @throws BeanCurrentlyInCreationException in case of a circular reference
+	 * that cannot be resolved through an early reference
+	 * @see #createBean
+	 * @see #addEarlySingletonReference
+	 */
+	private Object getOrCreateSingleton(String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args)
+			throws BeansException {
+
+		while (true) {
+			SingletonCreation creation = null;
+			boolean creator = false;
+			synchronized (this.singletonCache) {
+				Object sharedInstance = this.singletonCache.get(beanName);
+				if (sharedInstance != null) {
+					return sharedInstance;
+				}
+				creation = (SingletonCreation) this.singletonsInCreation.get(beanName);
+				if (creation == null) {
+					creation = new SingletonCreation(Thread.currentThread());
+					this.singletonsInCreation.put(beanName, creation);
+					creator = true;
+				}
+				else if (creation.creatingThread == Thread.currentThread() ||
+						isWaitingForCurrentThread(creation.creatingThread)) {
+					if (creation.earlyReference != null) {
+						if (logger.isDebugEnabled()) {
+							logger.debug("Returning early reference to singleton bean '" + beanName +
+									"' that is currently in creation - a consequence of a circular reference");
+						}
+						return creation.earlyReference;
+					}
+					throw new BeanCurrentlyInCreationException(beanName);
+				}
+				else {
+					this.waitingThreads.put(Thread.currentThread(), creation);
+				}
+			}
+
+			if (creator) {
+				if (logger.isInfoEnabled()) {
+					logger.info("Creating shared instance of singleton bean '" + beanName + "'");
+				}
+				Object sharedInstance = null;
+				try {
+					sharedInstance = createBean(beanName, mergedBeanDefinition, args);
+				}
+				finally {
+					synchronized (this.singletonCache) {
+						// Publish on success; on failure, nothing has been cached for this
+						// creation, and the early reference goes away with the creation.
+						if (sharedInstance != null) {
+							this.singletonCache.put(beanName, sharedInstance);
+						}
+						this.singletonsInCreation.remove(beanName);
+					}
+					creation.finished();
+				}
+				return sharedInstance;
+			}
+
+			// Another thread is creating the singleton: wait for it to finish,
+			// then re-check the cache. If creation failed, try again ourselves.
+			if (logger.isDebugEnabled()) {
+				logger.debug("Waiting for creation of singleton bean '" + beanName + "' by another thread");
+			}
+			try {
+				creation.awaitFinished();
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+				throw new BeanCreationException(beanName, "Interrupted while waiting for singleton creation", ex);
+			}
+			finally {
+				synchronized (this.singletonCache) {
+					this.waitingThreads.remove(Thread.currentThread());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Register an early reference to the given singleton, which is currently in
+	 * creation by the current thread, to be able to resolve circular references
+	 * even when triggered by lifecycle interfaces like BeanFactoryAware.
+	 * <p>The early reference is only returned to the creating thread and to
+	 * threads that it is waiting for, never to unrelated threads. It is
+	 * discarded once creation of the singleton has finished.
+	 * @param beanName the name of the bean
+	 * @param singletonObject the raw singleton object, not initialized yet
+	 */
+	protected void addEarlySingletonReference(String beanName, Object singletonObject) {
+		Assert.notNull(singletonObject, "Singleton object must not be null");
+		synchronized (this.singletonCache) {
+			SingletonCreation creation = (SingletonCreation) this.singletonsInCreation.get(beanName);
+			if (creation != null && creation.creatingThread == Thread.currentThread()) {
+				creation.earlyReference = singletonObject;
+			}
+		}
+	}
+
+	/**
+	 * Check whether the given thread is waiting, directly or through a chain of
+	 * other waiting threads, for a singleton that the current thread is creating.
+	 * Waiting for it in turn would lead to a deadlock.
+	 * <p>To be called with the singleton cache monitor held.
+	 * @param thread the thread that is creating the requested singleton
+	 */
+	private boolean isWaitingForCurrentThread(Thread thread) {
+		Thread current = Thread.currentThread();
+		for (int i = 0; thread != null && i <= this.waitingThreads.size(); i++) {
+			SingletonCreation awaited = (SingletonCreation) this.waitingThreads.get(thread);
+			if (awaited == null) {
+				return false;
+			}
+			if (awaited.creatingThread == current) {
+				return true;
+			}
+			thread = awaited.creatingThread;
+		}
+		return false;
+	}
+
 	/**
 	 * Return whether the given name is a factory dereference
 	 * (beginning with the factory dereference prefix).
@@ -788,9 +944,6 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 		String beanName = transformedBeanName(name);
 		try {
 			Object beanInstance = this.singletonCache.get(beanName);
-			if (beanInstance == CURRENTLY_IN_CREATION) {
-				throw new BeanCurrentlyInCreationException(beanName);
-			}
 			if (beanInstance != null) {
 				return (beanInstance instanceof FactoryBean);
 			}
@@ -1065,4 +1218,34 @@ public abstract class AbstractBeanFactory implements ConfigurableBeanFactory {
 	protected abstract Object createBean(
 			String beanName, RootBeanDefinition mergedBeanDefinition, Object[] args) throws BeansException;
 
+
+	/**
+	 * Holder for a singleton that is currently being created, serving as
+	 * per-bean monitor for threads that wait for its creation to finish.
+	 */
+	private static class SingletonCreation {
+
+		private final Thread creatingThread;
+
+		/** Early reference to the raw bean instance, guarded by the singleton cache */
+		private Object earlyReference;
+
+		private boolean finished = false;
+
+		private SingletonCreation(Thread creatingThread) {
+			this.creatingThread = creatingThread;
+		}
+
+		private synchronized void finished() {
+			this.finished = true;
+			notifyAll();
+		}
+
+		private synchronized void awaitFinished() throws InterruptedException {
+			while (!this.finished) {
+				wait();
+			}
+		}
+	}
+
 }
@@ -17,12 +17,21 @@
 package org.springframework.beans.factory.support;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.FatalBeanException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
@@ -31,7 +40,10 @@ import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
 import org.springframework.core.CollectionFactory;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
@@ -48,6 +60,9 @@ import org.springframework.util.StringUtils;
  * bean factories. Note that readers for specific bean definition formats are
  * typically implemented separately rather than as bean factory subclasses.
  *
+ * <p>Singletons can optionally be pre-instantiated by multiple threads:
+ * see the "preInstantiationConcurrency" property.
+ *
  * <p>For an alternative implementation of the ListableBeanFactory interface,
  * have a look at StaticListableBeanFactory, which manages existing bean
  * instances rather than creating new ones based on bean definitions.
@@ -72,6 +87,27 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** List of bean definition names, in registration order */
 	private final List beanDefinitionNames = new ArrayList();
 
+	/** Whether bean definition metadata may be cached for all beans */
+	private boolean configurationFrozen = false;
+
+	/** Cache of bean names per type lookup: BeanTypeLookup --> String[] */
+	private final Map beanNamesByType = CollectionFactory.createConcurrentMapIfPossible(64);
+
+	/**
+	 * Number of type lookups performed, for statistics.
+	 * Updated without synchronization, to keep lookups lock-free: approximate.
+	 */
+	private int typeLookupCount = 0;
+
+	/**
+	 * Number of type lookups served from the cache, for statistics.
+	 * Updated without synchronization, to keep lookups lock-free: approximate.
+	 */
+	private int typeLookupCacheHitCount = 0;
+
+	/** Number of threads to pre-instantiate singletons with */
+	private int preInstantiationConcurrency = 1;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -96,6 +132,41 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		this.allowBeanDefinitionOverriding = allowBeanDefinitionOverriding;
 	}
 
+	/**
+	 * Set the maximum number of threads, including the calling thread, to
+	 * pre-instantiate singletons with. Default is 1, i.e. all singletons are
+	 * created one after the other by the thread that calls
+	 * <code>preInstantiateSingletons</code>.
+	 * <p>With a higher value, singletons are split into groups that do not
+	 * refer to each other through bean references, inner beans, factory beans
+	 * or "depends-on", and those groups are created in parallel. Each group is
+	 * created by a single thread, in registration order, so circular references
+	 * are resolved as usual. Autowired singletons are created afterwards by the
+	 * calling thread, as their dependencies are not known in advance.
+	 * <p>Dependencies that the bean definitions do not reveal, like a
+	 * <code>getBean</code> call in an initialization method, are safe too:
+	 * a singleton that another thread is still creating is only handed out
+	 * once fully initialized, and a circular reference across threads either
+	 * gets resolved through the early reference of a thread that is waiting,
+	 * or leaves the affected singleton to the calling thread.
+	 * <p>Only use this if the singletons in this factory do not depend on being
+	 * created in a particular thread or order beyond their declared dependencies.
+	 * @see #preInstantiateSingletons
+	 */
+	public void setPreInstantiationConcurrency(int preInstantiationConcurrency) {
+		if (preInstantiationConcurrency < 1) {
+			throw new IllegalArgumentException("preInstantiationConcurrency must be at least 1");
+		}
+		this.preInstantiationConcurrency = preInstantiationConcurrency;
+	}
+
+	/**
+	 * Return the maximum number of threads to pre-instantiate singletons with.
+	 */
+	public int getPreInstantiationConcurrency() {
+		return this.preInstantiationConcurrency;
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of ListableBeanFactory interface
@@ -130,8 +201,22 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 	public String[] getBeanNamesForType(Class type, boolean includePrototypes, boolean includeFactoryBeans) {
+		this.typeLookupCount++;
+		BeanTypeLookup cacheKey = null;
+		if (this.configurationFrozen) {
+			cacheKey = new BeanTypeLookup(type, includePrototypes, includeFactoryBeans);
+			String[] cachedNames = (String[]) this.beanNamesByType.get(cacheKey);
+			if (cachedNames != null) {
+				this.typeLookupCacheHitCount++;
+				return (String[]) cachedNames.clone();
+			}
+		}
+
 		boolean isFactoryType = (type != null && FactoryBean.class.isAssignableFrom(type));
 		List result = new ArrayList();
+		// Results involving a FactoryBean that cannot determine its object type yet
+		// must not be cached, as the FactoryBean may match once it is initialized.
+		boolean cacheable = true;
 
 		// Check all bean definitions.
 		Iterator it = this.beanDefinitionNames.iterator();
@@ -142,9 +227,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			if (!rbd.isAbstract() && rbd.hasBeanClass()) {
 				// In case of FactoryBean, match object created by FactoryBean.
 				if (FactoryBean.class.isAssignableFrom(rbd.getBeanClass()) && !isFactoryType) {
-					if (includeFactoryBeans && (includePrototypes || isSingleton(beanName)) &&
-							isBeanTypeMatch(beanName, type)) {
-						result.add(beanName);
+					if (includeFactoryBeans && (includePrototypes || isSingleton(beanName))) {
+						if (isBeanTypeMatch(beanName, type)) {
+							result.add(beanName);
+						}
+						else if (getType(beanName) == null) {
+							cacheable = false;
+						}
 					}
 				}
 				else {
@@ -169,9 +258,13 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			if (!containsBeanDefinition(beanName)) {
 				// In case of FactoryBean, match object created by FactoryBean.
 				if (isFactoryBean(beanName) && !isFactoryType) {
-					if (includeFactoryBeans && (includePrototypes || isSingleton(beanName)) &&
-							isBeanTypeMatch(beanName, type)) {
-						result.add(beanName);
+					if (includeFactoryBeans && (includePrototypes || isSingleton(beanName))) {
+						if (isBeanTypeMatch(beanName, type)) {
+							result.add(beanName);
+						}
+						else if (getType(beanName) == null) {
+							cacheable = false;
+						}
 					}
 				}
 				else {
@@ -187,7 +280,11 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			}
 		}
 
-		return (String[]) result.toArray(new String[result.size()]);
+		String[] beanNames = (String[]) result.toArray(new String[result.size()]);
+		if (cacheKey != null && cacheable) {
+			this.beanNamesByType.put(cacheKey, beanNames.clone());
+		}
+		return beanNames;
 	}
 
 	public Map getBeansOfType(Class type) throws BeansException {
@@ -253,46 +350,339 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Clear the cache of bean names per type, to be rebuilt on demand.
+	 * Called on any change of bean definitions or manually registered singletons.
+	 */
+	protected void clearBeanNamesByTypeCache() {
+		this.beanNamesByType.clear();
+	}
+
+	/**
+	 * Return the number of bean name lookups by type performed so far.
+	 * <p>The count is approximate: concurrent lookups may get lost,
+	 * as the lookups themselves do not synchronize.
+	 * @see #getBeanNamesForType(Class, boolean, boolean)
+	 */
+	public int getTypeLookupCount() {
+		return this.typeLookupCount;
+	}
+
+	/**
+	 * Return the number of bean name lookups by type that have been served
+	 * from the cache, without iterating over all bean definitions.
+	 * Caching is only active once the configuration has been frozen.
+	 * <p>The count is approximate, like the overall lookup count.
+	 * @see #freezeConfiguration()
+	 * @see #getTypeLookupCount()
+	 */
+	public int getTypeLookupCacheHitCount() {
+		return this.typeLookupCacheHitCount;
+	}
+
+
 	//---------------------------------------------------------------------
 	// Implementation of ConfigurableListableBeanFactory interface
 	//---------------------------------------------------------------------
 
+	public void freezeConfiguration() {
+		this.configurationFrozen = true;
+	}
+
+	public boolean isConfigurationFrozen() {
+		return this.configurationFrozen;
+	}
+
 	public void preInstantiateSingletons() throws BeansException {
 		if (logger.isInfoEnabled()) {
 			logger.info("Pre-instantiating singletons in factory [" + this + "]");
 		}
+		long startTime = System.currentTimeMillis();
+		int lookupCountBefore = getTypeLookupCount();
+		int cacheHitCountBefore = getTypeLookupCacheHitCount();
+		Set preInstantiated = Collections.synchronizedSet(new HashSet());
+		// Per-singleton timings show how well the work spread across threads:
+		// only collected in parallel mode, for debug logging.
+		List timings = null;
+		if (this.preInstantiationConcurrency > 1 && logger.isDebugEnabled()) {
+			timings = Collections.synchronizedList(new LinkedList());
+		}
 		try {
+			if (this.preInstantiationConcurrency > 1) {
+				preInstantiateSingletonsInParallel(preInstantiated, timings);
+			}
+			// Create all singletons that are left: in parallel mode, autowired ones
+			// and ones that could not be created because of a circular reference
+			// across threads.
 			for (Iterator it = this.beanDefinitionNames.iterator(); it.hasNext();) {
 				String beanName = (String) it.next();
-				if (containsBeanDefinition(beanName)) {
-					RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
-					if (bd.hasBeanClass() && !bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-						if (FactoryBean.class.isAssignableFrom(bd.getBeanClass())) {
-							FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
-							if (factory.isSingleton()) {
-								getBean(beanName);
-							}
-						}
-						else {
-							getBean(beanName);
+				if (containsBeanDefinition(beanName) && !preInstantiated.contains(beanName)) {
+					preInstantiateSingleton(beanName, timings);
+				}
+			}
+		}
+		catch (RuntimeException ex) {
+			destroySingletonsAfterFailure();
+			throw ex;
+		}
+		catch (Error err) {
+			destroySingletonsAfterFailure();
+			throw err;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Pre-instantiated singletons in " + (System.currentTimeMillis() - startTime) + " ms; " +
+					(getTypeLookupCacheHitCount() - cacheHitCountBefore) + " of " +
+					(getTypeLookupCount() - lookupCountBefore) + " bean lookups by type served from cache");
+		}
+		if (timings != null) {
+			logSingletonTimings(timings);
+		}
+	}
+
+	/**
+	 * Destroy already created singletons after pre-instantiation failed,
+	 * to avoid dangling resources.
+	 */
+	private void destroySingletonsAfterFailure() {
+		try {
+			destroySingletons();
+		}
+		catch (Throwable ex) {
+			logger.error("Pre-instantiating singletons failed, " +
+					"and couldn't destroy already created singletons", ex);
+		}
+	}
+
+	/**
+	 * Pre-instantiate the given singleton, if it is a non-lazy singleton.
+	 * For a singleton FactoryBean, its object gets created too.
+	 * @param beanName the name of the bean
+	 * @param timings List to add a SingletonTiming to, if the singleton
+	 * was actually created by this call (may be <code>null</code>)
+	 */
+	private void preInstantiateSingleton(String beanName, List timings) throws BeansException {
+		RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
+		if (bd.hasBeanClass() && !bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			boolean created = (timings != null && !containsSingleton(beanName));
+			long startTime = System.currentTimeMillis();
+			if (FactoryBean.class.isAssignableFrom(bd.getBeanClass())) {
+				FactoryBean factory = (FactoryBean) getBean(FACTORY_BEAN_PREFIX + beanName);
+				if (factory.isSingleton()) {
+					getBean(beanName);
+				}
+			}
+			else {
+				getBean(beanName);
+			}
+			if (created) {
+				timings.add(new SingletonTiming(
+						beanName, Thread.currentThread().getName(), System.currentTimeMillis() - startTime));
+			}
+		}
+	}
+
+	/**
+	 * Pre-instantiate independent groups of singletons on up to
+	 * "preInstantiationConcurrency" threads, including the current thread.
+	 * Autowired singletons are left to the caller.
+	 * @param preInstantiated Set to add the names of all singletons to
+	 * that have been pre-instantiated by this method
+	 * @param timings List to add SingletonTimings to (may be <code>null</code>)
+	 * @see #determineSingletonGroups
+	 */
+	private void preInstantiateSingletonsInParallel(Set preInstantiated, List timings) throws BeansException {
+		List groups = determineSingletonGroups();
+		if (groups.size() <= 1) {
+			return;
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("Pre-instantiating " + groups.size() + " independent groups of singletons on up to " +
+					this.preInstantiationConcurrency + " threads");
+		}
+
+		PreInstantiation preInstantiation = new PreInstantiation(groups, preInstantiated, timings);
+		int threadCount = Math.min(this.preInstantiationConcurrency, groups.size());
+		ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+		Thread[] threads = new Thread[threadCount - 1];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(preInstantiation, getClass().getName() + "-" + (i + 1));
+			threads[i].setContextClassLoader(contextClassLoader);
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		preInstantiation.run();
+		boolean interrupted = false;
+		for (int i = 0; i < threads.length; i++) {
+			while (threads[i].isAlive()) {
+				try {
+					threads[i].join();
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+
+		if (preInstantiation.failure instanceof RuntimeException) {
+			throw (RuntimeException) preInstantiation.failure;
+		}
+		if (preInstantiation.failure instanceof Error) {
+			throw (Error) preInstantiation.failure;
+		}
+		if (preInstantiation.failure != null) {
+			throw new FatalBeanException("Pre-instantiation of singletons failed", preInstantiation.failure);
+		}
+	}
+
+	/**
+	 * Split the non-lazy, non-autowired singletons in this factory into groups
+	 * that do not refer to each other, determined from their bean definitions.
+	 * @return List of groups, each a List of bean names in registration order
+	 */
+	private List determineSingletonGroups() {
+		// Union-find over bean names: bean name --> representative bean name
+		Map representatives = new HashMap();
+		List singletonNames = new ArrayList();
+		for (Iterator it = this.beanDefinitionNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			RootBeanDefinition bd = getMergedBeanDefinition(beanName, false);
+			if (bd.hasBeanClass() && !bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit() &&
+					bd.getResolvedAutowireMode() == RootBeanDefinition.AUTOWIRE_NO) {
+				singletonNames.add(beanName);
+				Set referencedNames = new HashSet();
+				collectReferencedBeanNames(bd, referencedNames);
+				for (Iterator refIt = referencedNames.iterator(); refIt.hasNext();) {
+					String refName = transformedBeanName((String) refIt.next());
+					if (containsBeanDefinition(refName)) {
+						String root = findRepresentative(representatives, beanName);
+						String refRoot = findRepresentative(representatives, refName);
+						if (!root.equals(refRoot)) {
+							representatives.put(refRoot, root);
 						}
 					}
 				}
 			}
 		}
-		catch (BeansException ex) {
-			// destroy already created singletons to avoid dangling resources
-			try {
-				destroySingletons();
+
+		Map groups = CollectionFactory.createLinkedMapIfPossible(singletonNames.size());
+		for (Iterator it = singletonNames.iterator(); it.hasNext();) {
+			String beanName = (String) it.next();
+			String root = findRepresentative(representatives, beanName);
+			List group = (List) groups.get(root);
+			if (group == null) {
+				group = new LinkedList();
+				groups.put(root, group);
 			}
-			catch (Throwable ex2) {
-				logger.error("Pre-instantiating singletons failed, " +
-						"and couldn't destroy already created singletons", ex2);
+			group.add(beanName);
+		}
+		return new ArrayList(groups.values());
+	}
+
+	private String findRepresentative(Map representatives, String beanName) {
+		String root = beanName;
+		String parent;
+		while ((parent = (String) representatives.get(root)) != null) {
+			root = parent;
+		}
+		if (!root.equals(beanName)) {
+			representatives.put(beanName, root);
+		}
+		return root;
+	}
+
+	/**
+	 * Collect the names of all beans that the given bean definition refers to:
+	 * through bean references in property values and constructor arguments,
+	 * including those of inner beans, through its factory bean and through
+	 * "depends-on". Autowired dependencies are not included.
+	 * @param bd the bean definition to inspect
+	 * @param referencedNames the Set to add the bean names to
+	 */
+	private void collectReferencedBeanNames(BeanDefinition bd, Set referencedNames) {
+		if (bd instanceof AbstractBeanDefinition) {
+			AbstractBeanDefinition abd = (AbstractBeanDefinition) bd;
+			if (abd.getFactoryBeanName() != null) {
+				referencedNames.add(abd.getFactoryBeanName());
+			}
+			if (abd.getDependsOn() != null) {
+				for (int i = 0; i < abd.getDependsOn().length; i++) {
+					referencedNames.add(abd.getDependsOn()[i]);
+				}
+			}
+		}
+		if (bd.getPropertyValues() != null) {
+			PropertyValue[] pvs = bd.getPropertyValues().getPropertyValues();
+			for (int i = 0; i < pvs.length; i++) {
+				collectReferencedBeanNames(pvs[i].getValue(), referencedNames);
+			}
+		}
+		ConstructorArgumentValues cargs = bd.getConstructorArgumentValues();
+		if (cargs != null) {
+			for (Iterator it = cargs.getIndexedArgumentValues().values().iterator(); it.hasNext();) {
+				ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
+				collectReferencedBeanNames(valueHolder.getValue(), referencedNames);
+			}
+			for (Iterator it = cargs.getGenericArgumentValues().iterator(); it.hasNext();) {
+				ConstructorArgumentValues.ValueHolder valueHolder = (ConstructorArgumentValues.ValueHolder) it.next();
+				collectReferencedBeanNames(valueHolder.getValue(), referencedNames);
+			}
+		}
+	}
+
+	private void collectReferencedBeanNames(Object value, Set referencedNames) {
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference ref = (RuntimeBeanReference) value;
+			if (!ref.isToParent()) {
+				referencedNames.add(ref.getBeanName());
+			}
+		}
+		else if (value instanceof BeanDefinitionHolder) {
+			collectReferencedBeanNames(((BeanDefinitionHolder) value).getBeanDefinition(), referencedNames);
+		}
+		else if (value instanceof BeanDefinition) {
+			collectReferencedBeanNames((BeanDefinition) value, referencedNames);
+		}
+		else if (value instanceof Collection) {
+			for (Iterator it = ((Collection) value).iterator(); it.hasNext();) {
+				collectReferencedBeanNames(it.next(), referencedNames);
+			}
+		}
+		else if (value instanceof Map) {
+			for (Iterator it = ((Map) value).entrySet().iterator(); it.hasNext();) {
+				Map.Entry entry = (Map.Entry) it.next();
+				collectReferencedBeanNames(entry.getKey(), referencedNames);
+				collectReferencedBeanNames(entry.getValue(), referencedNames);
 			}
-			throw ex;
 		}
 	}
 
+	/**
+	 * Log the creation time of each singleton pre-instantiated in parallel mode,
+	 * slowest first, at debug level.
+	 */
+	private void logSingletonTimings(List timings) {
+		if (timings.isEmpty()) {
+			return;
+		}
+		SingletonTiming[] timingArray = (SingletonTiming[]) timings.toArray(new SingletonTiming[timings.size()]);
+		Arrays.sort(timingArray, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long time1 = ((SingletonTiming) o1).time;
+				long time2 = ((SingletonTiming) o2).time;
+				return (time1 > time2 ? -1 : (time1 == time2 ? 0 : 1));
+			}
+		});
+		StringBuffer sb = new StringBuffer("Singleton creation times, including dependencies created along with them:");
+		for (int i = 0; i < timingArray.length; i++) {
+			sb.append("\n  ").append(timingArray[i].beanName).append(": ").append(timingArray[i].time);
+			sb.append(" ms [").append(timingArray[i].threadName).append(']');
+		}
+		logger.debug(sb.toString());
+	}
+
 
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
@@ -338,6 +728,23 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		// a context's default beans (e.g. the default StaticMessageSource
 		// in a StaticApplicationContext).
 		removeSingleton(beanName);
+
+		clearBeanNamesByTypeCache();
+	}
+
+
+	//---------------------------------------------------------------------
+	// Overridden superclass methods
+	//---------------------------------------------------------------------
+
+	public void registerSingleton(String beanName, Object singletonObject) throws BeanDefinitionStoreException {
+		super.registerSingleton(beanName, singletonObject);
+		clearBeanNamesByTypeCache();
+	}
+
+	public void destroySingletons() {
+		super.destroySingletons();
+		clearBeanNamesByTypeCache();
 	}
 
 
@@ -372,4 +779,129 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return sb.toString();
 	}
 
+
+	/**
+	 * Key for the cache of bean names per type lookup,
+	 * combining the type with the lookup flags.
+	 */
+	private static class BeanTypeLookup {
+
+		private final Class type;
+
+		private final boolean includePrototypes;
+
+		private final boolean includeFactoryBeans;
+
+		private BeanTypeLookup(Class type, boolean includePrototypes, boolean includeFactoryBeans) {
+			this.type = type;
+			this.includePrototypes = includePrototypes;
+			this.includeFactoryBeans = includeFactoryBeans;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof BeanTypeLookup)) {
+				return false;
+			}
+			BeanTypeLookup otherKey = (BeanTypeLookup) other;
+			return (this.type == otherKey.type && this.includePrototypes == otherKey.includePrototypes &&
+					this.includeFactoryBeans == otherKey.includeFactoryBeans);
+		}
+
+		public int hashCode() {
+			int hashCode = (this.type != null ? this.type.hashCode() : 0);
+			return hashCode * 4 + (this.includePrototypes ? 2 : 0) + (this.includeFactoryBeans ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * Runnable that pre-instantiates groups of singletons until none are left
+	 * or one has failed. Run by multiple threads at the same time.
+	 */
+	private class PreInstantiation implements Runnable {
+
+		private final List groups;
+
+		private final Set preInstantiated;
+
+		private final List timings;
+
+		private int nextGroup = 0;
+
+		private Throwable failure;
+
+		public PreInstantiation(List groups, Set preInstantiated, List timings) {
+			this.groups = groups;
+			this.preInstantiated = preInstantiated;
+			this.timings = timings;
+		}
+
+		public void run() {
+			int groupIndex;
+			while ((groupIndex = nextGroup()) != -1) {
+				List group = (List) this.groups.get(groupIndex);
+				for (Iterator it = group.iterator(); it.hasNext() && !hasFailed();) {
+					String beanName = (String) it.next();
+					try {
+						preInstantiateSingleton(beanName, this.timings);
+						this.preInstantiated.add(beanName);
+					}
+					catch (BeansException ex) {
+						if (!ex.contains(BeanCurrentlyInCreationException.class)) {
+							setFailure(ex);
+						}
+						// Else a circular reference across threads, through a dependency that
+						// the bean definitions do not reveal: leave it to the calling thread.
+						else if (logger.isDebugEnabled()) {
+							logger.debug("Deferring pre-instantiation of singleton bean '" + beanName +
+									"' because of a circular reference across threads", ex);
+						}
+					}
+					catch (Throwable ex) {
+						setFailure(ex);
+					}
+				}
+			}
+		}
+
+		private synchronized int nextGroup() {
+			if (this.failure != null || this.nextGroup >= this.groups.size()) {
+				return -1;
+			}
+			return this.nextGroup++;
+		}
+
+		private synchronized boolean hasFailed() {
+			return (this.failure != null);
+		}
+
+		private synchronized void setFailure(Throwable ex) {
+			if (this.failure == null) {
+				this.failure = ex;
+			}
+		}
+	}
+
+
+	/**
+	 * Time it took to pre-instantiate a singleton.
+	 */
+	private static class SingletonTiming {
+
+		private final String beanName;
+
+		private final String threadName;
+
+		private final long time;
+
+		private SingletonTiming(String beanName, String threadName, long time) {
+			this.beanName = beanName;
+			this.threadName = threadName;
+			this.time = time;
+		}
+	}
+
 }
@@ -0,0 +1,379 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Records the nested timing of bean factory and application context startup:
+ * bean creation, BeanPostProcessor application, init methods and the phases
+ * of an application context refresh. Set it on an AbstractBeanFactory or an
+ * AbstractApplicationContext to activate it; without a recorder, there is
+ * no recording overhead at all.
+ *
+ * <p>Steps are tracked per thread, so nested bean creation, for example for
+ * bean references, shows up as child step of the referencing bean's creation.
+ * The time of each step is aggregated per stack of steps, excluding the time
+ * of child steps, and can be written out in the "folded stacks" format that
+ * flame graph tools like Brendan Gregg's <code>flamegraph.pl</code> consume.
+ *
+ * <p>The summary getters and <code>writeFlameGraph</code> are designed to be
+ * exposed through JMX, e.g. by registering the recorder as bean and exporting
+ * it through an MBeanExporter.
+ *
+ * <p>Times are measured in milliseconds. Thread-safe: steps may be recorded
+ * by multiple threads at the same time, as with parallel pre-instantiation.
+ * Note that steps are only nested within the same thread: singletons created
+ * by the worker threads of parallel pre-instantiation show up as root stacks,
+ * not as children of the "preInstantiateSingletons" refresh phase.
+ *
+ * @since 1.2
+ * @see AbstractBeanFactory#setStartupRecorder
+ * @see org.springframework.context.support.AbstractApplicationContext#setStartupRecorder
+ * @see org.springframework.jmx.export.MBeanExporter
+ */
+public class StartupRecorder {
+
+	/** Step category for the creation of a bean */
+	public static final String BEAN_CREATION = "bean";
+
+	/** Step category for a BeanPostProcessor's postProcessBeforeInitialization */
+	public static final String BEFORE_INITIALIZATION = "postProcessBeforeInitialization";
+
+	/** Step category for an afterPropertiesSet or custom init method */
+	public static final String INIT_METHOD = "init";
+
+	/** Step category for a BeanPostProcessor's postProcessAfterInitialization */
+	public static final String AFTER_INITIALIZATION = "postProcessAfterInitialization";
+
+	/** Step category for the refresh of an application context as a whole */
+	public static final String CONTEXT_REFRESH = "context";
+
+	/** Step category for a phase of an application context refresh */
+	public static final String REFRESH_PHASE = "refresh";
+
+
+	private final ThreadLocal currentStep = new ThreadLocal();
+
+	private int summarySize = 20;
+
+	/** Folded stack --> total self time, in order of first occurrence */
+	private final Map selfTimes = CollectionFactory.createLinkedMapIfPossible(256);
+
+	/** Bean name --> long[] {total time, self time} */
+	private final Map beanTimes = new HashMap();
+
+	/** Refresh phase --> total time */
+	private final Map phaseTimes = new HashMap();
+
+	/** Refresh phases, in order of first occurrence */
+	private final List phaseNames = new ArrayList();
+
+	private int stepCount = 0;
+
+	private long firstStartTime = -1;
+
+	private long lastEndTime = -1;
+
+
+	/**
+	 * Set the number of beans to include in the summary of slowest beans.
+	 * Default is 20.
+	 * @see #getSlowestBeans
+	 */
+	public void setSummarySize(int summarySize) {
+		this.summarySize = summarySize;
+	}
+
+	/**
+	 * Return the number of beans to include in the summary of slowest beans.
+	 */
+	public int getSummarySize() {
+		return this.summarySize;
+	}
+
+
+	/**
+	 * Start the refresh of an application context in the current thread,
+	 * as a CONTEXT_REFRESH step. Also marks the start of the recording for
+	 * <code>getTotalTime</code>, so that plain steps don't need to.
+	 * Needs to be followed by a corresponding <code>end</code> call,
+	 * typically in a finally block.
+	 * @param contextName the display name of the application context
+	 * @see #getTotalTime
+	 * @see #end
+	 */
+	public void startRefresh(String contextName) {
+		long now = System.currentTimeMillis();
+		synchronized (this) {
+			if (this.firstStartTime == -1) {
+				this.firstStartTime = now;
+			}
+		}
+		this.currentStep.set(new Step((Step) this.currentStep.get(), CONTEXT_REFRESH, contextName, now));
+	}
+
+	/**
+	 * Start a step in the current thread, nested in the current step, if any.
+	 * Needs to be followed by a corresponding <code>end</code> call,
+	 * typically in a finally block.
+	 * @param category the category of the step, for example BEAN_CREATION
+	 * @param name the name of the step within its category, for example the bean name
+	 * @see #end
+	 */
+	public void start(String category, String name) {
+		this.currentStep.set(new Step((Step) this.currentStep.get(), category, name, System.currentTimeMillis()));
+	}
+
+	/**
+	 * End the current step in the current thread.
+	 * @throws IllegalStateException if there is no current step
+	 * @see #start
+	 */
+	public void end() {
+		Step step = (Step) this.currentStep.get();
+		if (step == null) {
+			throw new IllegalStateException("No startup step in progress in the current thread");
+		}
+		long now = System.currentTimeMillis();
+		long time = now - step.startTime;
+		this.currentStep.set(step.parent);
+		if (step.parent != null) {
+			step.parent.childTime += time;
+		}
+		long selfTime = time - step.childTime;
+		String stack = step.getStack();
+
+		synchronized (this) {
+			if (this.firstStartTime == -1 || step.startTime < this.firstStartTime) {
+				// No context refresh started before this step: track its start
+				// here, where we hold the lock anyway.
+				this.firstStartTime = step.startTime;
+			}
+			this.stepCount++;
+			this.lastEndTime = now;
+			Long stackTime = (Long) this.selfTimes.get(stack);
+			this.selfTimes.put(stack, new Long(stackTime != null ? stackTime.longValue() + selfTime : selfTime));
+			if (BEAN_CREATION.equals(step.category)) {
+				long[] times = (long[]) this.beanTimes.get(step.name);
+				if (times == null) {
+					times = new long[2];
+					this.beanTimes.put(step.name, times);
+				}
+				times[0] += time;
+				times[1] += selfTime;
+			}
+			else if (REFRESH_PHASE.equals(step.category)) {
+				Long phaseTime = (Long) this.phaseTimes.get(step.name);
+				if (phaseTime == null) {
+					this.phaseNames.add(step.name);
+				}
+				this.phaseTimes.put(step.name, new Long(phaseTime != null ? phaseTime.longValue() + time : time));
+			}
+		}
+	}
+
+	/**
+	 * Discard all recorded steps. Steps currently in progress
+	 * will still be recorded when they end.
+	 */
+	public synchronized void reset() {
+		this.selfTimes.clear();
+		this.beanTimes.clear();
+		this.phaseTimes.clear();
+		this.phaseNames.clear();
+		this.stepCount = 0;
+		this.firstStartTime = -1;
+		this.lastEndTime = -1;
+	}
+
+
+	/**
+	 * Return the number of steps recorded.
+	 */
+	public synchronized int getStepCount() {
+		return this.stepCount;
+	}
+
+	/**
+	 * Return the time between the start of the first step
+	 * and the end of the last step, in milliseconds.
+	 * @see #startRefresh
+	 */
+	public synchronized long getTotalTime() {
+		return (this.firstStartTime != -1 && this.lastEndTime != -1 ? this.lastEndTime - this.firstStartTime : 0);
+	}
+
+	/**
+	 * Return the number of beans whose creation has been recorded.
+	 */
+	public synchronized int getBeanCount() {
+		return this.beanTimes.size();
+	}
+
+	/**
+	 * Return the slowest beans to create, slowest first, as
+	 * "beanName: total ms (self ms)" Strings. The total time includes
+	 * the creation of other beans during the creation of the bean,
+	 * the self time doesn't.
+	 * @see #setSummarySize
+	 */
+	public synchronized String[] getSlowestBeans() {
+		Map.Entry[] entries = (Map.Entry[]) this.beanTimes.entrySet().toArray(new Map.Entry[this.beanTimes.size()]);
+		Arrays.sort(entries, new Comparator() {
+			public int compare(Object o1, Object o2) {
+				long time1 = ((long[]) ((Map.Entry) o1).getValue())[0];
+				long time2 = ((long[]) ((Map.Entry) o2).getValue())[0];
+				return (time1 > time2 ? -1 : (time1 == time2 ? 0 : 1));
+			}
+		});
+		String[] result = new String[Math.min(entries.length, this.summarySize)];
+		for (int i = 0; i < result.length; i++) {
+			long[] times = (long[]) entries[i].getValue();
+			result[i] = entries[i].getKey() + ": " + times[0] + " ms (self " + times[1] + " ms)";
+		}
+		return result;
+	}
+
+	/**
+	 * Return the time taken by each application context refresh phase,
+	 * in order of execution, as "phase: ms" Strings.
+	 */
+	public synchronized String[] getRefreshPhases() {
+		String[] result = new String[this.phaseNames.size()];
+		for (int i = 0; i < result.length; i++) {
+			String phase = (String) this.phaseNames.get(i);
+			result[i] = phase + ": " + this.phaseTimes.get(phase) + " ms";
+		}
+		return result;
+	}
+
+	/**
+	 * Return the recorded steps in the folded stacks format:
+	 * one line per stack of steps, with the frames separated by semicolons,
+	 * followed by a space and the self time of the stack in milliseconds.
+	 * @see #writeFlameGraph(java.io.Writer)
+	 */
+	public String getFlameGraph() {
+		StringWriter writer = new StringWriter();
+		try {
+			writeFlameGraph(writer);
+		}
+		catch (IOException ex) {
+			throw new IllegalStateException("Could not write to StringWriter: " + ex.getMessage());
+		}
+		return writer.toString();
+	}
+
+	/**
+	 * Write the recorded steps in the folded stacks format to the given file,
+	 * for example as input for <code>flamegraph.pl</code>.
+	 * @param fileName the name of the file to write to
+	 * @throws IOException if the file could not be written
+	 * @see #writeFlameGraph(java.io.Writer)
+	 */
+	public void writeFlameGraph(String fileName) throws IOException {
+		Writer writer = new FileWriter(fileName);
+		try {
+			writeFlameGraph(writer);
+		}
+		finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Write the recorded steps in the folded stacks format to the given Writer.
+	 * Stacks with a self time of 0 ms are left out.
+	 * @param writer the Writer to write to
+	 * @throws IOException if thrown by the Writer
+	 */
+	public void writeFlameGraph(Writer writer) throws IOException {
+		Map.Entry[] entries = null;
+		synchronized (this) {
+			entries = (Map.Entry[]) this.selfTimes.entrySet().toArray(new Map.Entry[this.selfTimes.size()]);
+		}
+		for (int i = 0; i < entries.length; i++) {
+			long selfTime = ((Long) entries[i].getValue()).longValue();
+			if (selfTime > 0) {
+				writer.write((String) entries[i].getKey());
+				writer.write(' ');
+				writer.write(Long.toString(selfTime));
+				writer.write('\n');
+			}
+		}
+		writer.flush();
+	}
+
+	public String toString() {
+		return "StartupRecorder: " + getStepCount() + " steps recorded in " + getTotalTime() + " ms";
+	}
+
+
+	/**
+	 * A step in progress in a particular thread.
+	 */
+	private static class Step {
+
+		private final Step parent;
+
+		private final String category;
+
+		private final String name;
+
+		private final long startTime;
+
+		/** Total time of the finished child steps */
+		private long childTime = 0;
+
+		private Step(Step parent, String category, String name, long startTime) {
+			this.parent = parent;
+			this.category = category;
+			this.name = name;
+			this.startTime = startTime;
+		}
+
+		/**
+		 * Return the stack of steps up to this step, as semicolon-separated frames.
+		 */
+		private String getStack() {
+			StringBuffer sb = new StringBuffer();
+			appendStack(sb);
+			return sb.toString();
+		}
+
+		private void appendStack(StringBuffer sb) {
+			if (this.parent != null) {
+				this.parent.appendStack(sb);
+				sb.append(';');
+			}
+			sb.append(this.category).append(' ').append(this.name.replace(';', ','));
+		}
+	}
+
+}
@@ -38,6 +38,8 @@ import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.beans.factory.support.StartupRecorder;
 import org.springframework.beans.propertyeditors.InputStreamEditor;
 import org.springframework.beans.propertyeditors.URLEditor;
 import org.springframework.context.ApplicationContext;
@@ -149,6 +151,15 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	/** Helper class used in event publishing */
 	private ApplicationEventMulticaster applicationEventMulticaster;
 
+	/** Recorder for the timing of refresh phases and bean creation, if any */
+	private StartupRecorder startupRecorder;
+
+	/** Whether to keep recording bean creation after refresh */
+	private boolean recordAfterRefresh = false;
+
+	/** Whether a refresh phase is currently being recorded */
+	private boolean refreshPhaseRecording = false;
+
 
 	//---------------------------------------------------------------------
 	// Constructors
@@ -245,6 +256,46 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		this.parent = parent;
 	}
 
+	/**
+	 * Set a StartupRecorder to record the timing of the refresh phases of this
+	 * context with. It will also be set on the bean factory, if that is an
+	 * AbstractBeanFactory, to record the timing of bean creation, and removed
+	 * from it again once refresh has completed, unless "recordAfterRefresh"
+	 * is set. Default is none.
+	 * <p>Needs to be set before <code>refresh</code> is called.
+	 * @see #setRecordAfterRefresh
+	 * @see org.springframework.beans.factory.support.AbstractBeanFactory#setStartupRecorder
+	 */
+	public void setStartupRecorder(StartupRecorder startupRecorder) {
+		this.startupRecorder = startupRecorder;
+	}
+
+	/**
+	 * Return the StartupRecorder for this context, if any.
+	 */
+	public StartupRecorder getStartupRecorder() {
+		return this.startupRecorder;
+	}
+
+	/**
+	 * Set whether to keep recording the creation of beans with the
+	 * StartupRecorder after refresh, for example of prototypes and lazy-init
+	 * singletons. Default is false: the recorder only covers the refresh, so
+	 * that beans created at runtime don't pay for the recording and the
+	 * recorded steps don't keep growing.
+	 * @see #setStartupRecorder
+	 */
+	public void setRecordAfterRefresh(boolean recordAfterRefresh) {
+		this.recordAfterRefresh = recordAfterRefresh;
+	}
+
+	/**
+	 * Return whether to keep recording the creation of beans after refresh.
+	 */
+	public boolean isRecordAfterRefresh() {
+		return this.recordAfterRefresh;
+	}
+
 	public void addBeanFactoryPostProcessor(BeanFactoryPostProcessor beanFactoryPostProcessor) {
 		this.beanFactoryPostProcessors.add(beanFactoryPostProcessor);
 	}
@@ -259,67 +310,120 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 
 	public void refresh() throws BeansException, IllegalStateException {
 		this.startupTime = System.currentTimeMillis();
-
-		// Tell subclass to refresh the internal bean factory.
-		refreshBeanFactory();
-		ConfigurableListableBeanFactory beanFactory = getBeanFactory();
-
-		// Configure the bean factory with context-specific editors.
-		beanFactory.registerCustomEditor(Resource.class,
-		    new ResourceEditor(this));
-		beanFactory.registerCustomEditor(URL.class,
-		    new URLEditor(new ResourceEditor(this)));
-		beanFactory.registerCustomEditor(InputStream.class,
-		    new InputStreamEditor(new ResourceEditor(this)));
-		beanFactory.registerCustomEditor(Resource[].class,
-		    new ResourceArrayPropertyEditor(this.resourcePatternResolver));
-
-		// Configure the bean factory with context semantics.
-		beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
-		beanFactory.ignoreDependencyType(ResourceLoader.class);
-		beanFactory.ignoreDependencyType(ApplicationContext.class);
-
-		// Allows post-processing of the bean factory in context subclasses.
-		postProcessBeanFactory(beanFactory);
-
-		// Invoke factory processors registered with the context instance.
-		for (Iterator it = getBeanFactoryPostProcessors().iterator(); it.hasNext();) {
-			BeanFactoryPostProcessor factoryProcessor = (BeanFactoryPostProcessor) it.next();
-			factoryProcessor.postProcessBeanFactory(beanFactory);
+		if (this.startupRecorder != null) {
+			this.startupRecorder.startRefresh(getDisplayName());
 		}
+		AbstractBeanFactory recordingBeanFactory = null;
+		try {
+			// Tell subclass to refresh the internal bean factory.
+			startRefreshPhase("refreshBeanFactory");
+			refreshBeanFactory();
+			ConfigurableListableBeanFactory beanFactory = getBeanFactory();
+			if (this.startupRecorder != null && beanFactory instanceof AbstractBeanFactory) {
+				recordingBeanFactory = (AbstractBeanFactory) beanFactory;
+				recordingBeanFactory.setStartupRecorder(this.startupRecorder);
+			}
 
-		if (logger.isInfoEnabled()) {
-			if (getBeanDefinitionCount() == 0) {
-				logger.info("No beans defined in application context [" + getDisplayName() + "]");
+			// Configure the bean factory with context-specific editors.
+			startRefreshPhase("postProcessBeanFactory");
+			beanFactory.registerCustomEditor(Resource.class,
+			    new ResourceEditor(this));
+			beanFactory.registerCustomEditor(URL.class,
+			    new URLEditor(new ResourceEditor(this)));
+			beanFactory.registerCustomEditor(InputStream.class,
+			    new InputStreamEditor(new ResourceEditor(this)));
+			beanFactory.registerCustomEditor(Resource[].class,
+			    new ResourceArrayPropertyEditor(this.resourcePatternResolver));
+
+			// Configure the bean factory with context semantics.
+			beanFactory.addBeanPostProcessor(new ApplicationContextAwareProcessor(this));
+			beanFactory.ignoreDependencyType(ResourceLoader.class);
+			beanFactory.ignoreDependencyType(ApplicationContext.class);
+
+			// Allows post-processing of the bean factory in context subclasses.
+			postProcessBeanFactory(beanFactory);
+
+			// Invoke factory processors registered with the context instance.
+			for (Iterator it = getBeanFactoryPostProcessors().iterator(); it.hasNext();) {
+				BeanFactoryPostProcessor factoryProcessor = (BeanFactoryPostProcessor) it.next();
+				factoryProcessor.postProcessBeanFactory(beanFactory);
 			}
-			else {
-				logger.info(getBeanDefinitionCount() + " beans defined in application context [" + getDisplayName() + "]");
+
+			if (logger.isInfoEnabled()) {
+				if (getBeanDefinitionCount() == 0) {
+					logger.info("No beans defined in application context [" + getDisplayName() + "]");
+				}
+				else {
+					logger.info(getBeanDefinitionCount() + " beans defined in application context [" + getDisplayName() + "]");
+				}
 			}
-		}
 
-		// Invoke factory processors registered as beans in the context.
-		invokeBeanFactoryPostProcessors();
+			// Invoke factory processors registered as beans in the context.
+			startRefreshPhase("invokeBeanFactoryPostProcessors");
+			invokeBeanFactoryPostProcessors();
 
-		// Register bean processors that intercept bean creation.
-		registerBeanPostProcessors();
+			// Register bean processors that intercept bean creation.
+			startRefreshPhase("registerBeanPostProcessors");
+			registerBeanPostProcessors();
 
-		// Initialize message source for this context.
-		initMessageSource();
+			// Initialize message source for this context.
+			startRefreshPhase("initMessageSource");
+			initMessageSource();
 
-		// Initialize event multicaster for this context.
-		initApplicationEventMulticaster();
+			// Initialize event multicaster for this context.
+			startRefreshPhase("initApplicationEventMulticaster");
+			initApplicationEventMulticaster();
 
-		// Initialize other special beans in specific context subclasses.
-		onRefresh();
+			// Initialize other special beans in specific context subclasses.
+			startRefreshPhase("onRefresh");
+			onRefresh();
 
-		// Check for listener beans and register them.
-		registerListeners();
+			// Check for listener beans and register them.
+			startRefreshPhase("registerListeners");
+			registerListeners();
+
+			// Bean definitions won't change anymore: allow for caching type lookups.
+			beanFactory.freezeConfiguration();
+
+			// iIstantiate singletons this late to allow them to access the message source.
+			startRefreshPhase("preInstantiateSingletons");
+			beanFactory.preInstantiateSingletons();
+
+			// Last step: publish corresponding event.
+			startRefreshPhase("publishEvent");
+			publishEvent(new ContextRefreshedEvent(this));
+		}
+		finally {
+			endRefreshPhase();
+			if (this.startupRecorder != null) {
+				this.startupRecorder.end();
+			}
+			if (recordingBeanFactory != null && !this.recordAfterRefresh) {
+				recordingBeanFactory.setStartupRecorder(null);
+			}
+		}
+	}
 
-		// iIstantiate singletons this late to allow them to access the message source.
-		beanFactory.preInstantiateSingletons();
+	/**
+	 * Start recording the given refresh phase, ending the previous one.
+	 * @see #setStartupRecorder
+	 */
+	private void startRefreshPhase(String phase) {
+		if (this.startupRecorder != null) {
+			endRefreshPhase();
+			this.startupRecorder.start(StartupRecorder.REFRESH_PHASE, phase);
+			this.refreshPhaseRecording = true;
+		}
+	}
 
-		// Last step: publish corresponding event.
-		publishEvent(new ContextRefreshedEvent(this));
+	/**
+	 * End recording the current refresh phase, if any.
+	 */
+	private void endRefreshPhase() {
+		if (this.refreshPhaseRecording) {
+			this.refreshPhaseRecording = false;
+			this.startupRecorder.end();
+		}
 	}
 
 	/**
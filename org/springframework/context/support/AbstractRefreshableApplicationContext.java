@@ -57,6 +57,9 @@ import org.springframework.context.ApplicationContextException;
  */
 public abstract class AbstractRefreshableApplicationContext extends AbstractApplicationContext {
 
+	/** Number of threads to pre-instantiate singletons with */
+	private int preInstantiationConcurrency = 1;
+
 	/** Bean factory for this context */
 	private DefaultListableBeanFactory beanFactory;
 
@@ -74,6 +77,18 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 		super(parent);
 	}
 
+
+	/**
+	 * Set the maximum number of threads to pre-instantiate singletons with
+	 * on refresh. Default is 1, creating all singletons one after the other.
+	 * <p>Needs to be set before <code>refresh</code> is called, for example
+	 * through a constructor variant with a "refresh" flag.
+	 * @see org.springframework.beans.factory.support.DefaultListableBeanFactory#setPreInstantiationConcurrency
+	 */
+	public void setPreInstantiationConcurrency(int preInstantiationConcurrency) {
+		this.preInstantiationConcurrency = preInstantiationConcurrency;
+	}
+
 	protected final void refreshBeanFactory() throws BeansException {
 		// Shut down previous bean factory, if any.
 		if (this.beanFactory != null) {
@@ -84,6 +99,7 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 		// Initialize fresh bean factory.
 		try {
 			DefaultListableBeanFactory beanFactory = createBeanFactory();
+			beanFactory.setPreInstantiationConcurrency(this.preInstantiationConcurrency);
 			loadBeanDefinitions(beanFactory);
 			this.beanFactory = beanFactory;
 			if (logger.isInfoEnabled()) {
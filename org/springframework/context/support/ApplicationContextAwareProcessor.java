@@ -20,7 +20,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEventPublisherAware;
@@ -40,7 +40,7 @@ import org.springframework.context.ResourceLoaderAware;
  * @see org.springframework.context.ApplicationContextAware
  * @see org.springframework.context.support.AbstractApplicationContext#refresh
  */
-public class ApplicationContextAwareProcessor implements BeanPostProcessor {
+public class ApplicationContextAwareProcessor implements SelectiveBeanPostProcessor {
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -53,6 +53,17 @@ public class ApplicationContextAwareProcessor implements BeanPostProcessor {
 		this.applicationContext = applicationContext;
 	}
 
+	public boolean isApplicableBeforeInitialization(Class beanClass, String beanName) {
+		return (ResourceLoaderAware.class.isAssignableFrom(beanClass) ||
+				ApplicationEventPublisherAware.class.isAssignableFrom(beanClass) ||
+				MessageSourceAware.class.isAssignableFrom(beanClass) ||
+				ApplicationContextAware.class.isAssignableFrom(beanClass));
+	}
+
+	public boolean isApplicableAfterInitialization(Class beanClass, String beanName) {
+		return false;
+	}
+
 	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
 		if (bean instanceof ResourceLoaderAware) {
 			if (logger.isDebugEnabled()) {
@@ -16,6 +16,7 @@
 
 package org.springframework.core;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
@@ -23,6 +24,8 @@ import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.collections.map.CaseInsensitiveMap;
 import org.apache.commons.collections.map.IdentityMap;
@@ -34,7 +37,8 @@ import org.apache.commons.logging.LogFactory;
 
 /**
  * Factory for collections, being aware of JDK 1.4+ extended collections
- * and Commons Collection 3.x's corresponding versions for older JDKs.
+ * and Commons Collection 3.x's corresponding versions for older JDKs,
+ * as well as of JDK 1.5+ concurrent collections.
  * Mainly for internal use within the framework.
  *
  * <p>The goal of this class is to avoid runtime dependencies on JDK 1.4+
@@ -50,10 +54,15 @@ public class CollectionFactory {
 	private static final String COMMONS_COLLECTIONS_CLASS_NAME =
 			"org.apache.commons.collections.map.LinkedMap";
 
+	private static final String CONCURRENT_MAP_CLASS_NAME =
+			"java.util.concurrent.ConcurrentHashMap";
+
 	private static final Log logger = LogFactory.getLog(CollectionFactory.class);
 
 	private static boolean commonsCollections3xAvailable;
 
+	private static boolean concurrentCollectionsAvailable;
+
 	static {
 		// Check whether JDK 1.4+ collections and/or
 		// Commons Collections 3.x are available.
@@ -68,6 +77,16 @@ public class CollectionFactory {
 		catch (ClassNotFoundException ex) {
 			commonsCollections3xAvailable = false;
 		}
+		// Check for presence rather than version number, as JdkVersion
+		// does not recognize JDK versions beyond 1.5.
+		try {
+			Class.forName(CONCURRENT_MAP_CLASS_NAME);
+			concurrentCollectionsAvailable = true;
+			logger.info("JDK 1.5+ concurrent collections available");
+		}
+		catch (ClassNotFoundException ex) {
+			concurrentCollectionsAvailable = false;
+		}
 	}
 
 	/**
@@ -166,6 +185,55 @@ public class CollectionFactory {
 		}
 	}
 
+	/**
+	 * Create a concurrent map if possible: that is, if running on JDK >= 1.5.
+	 * Falls back to a synchronized HashMap on older JDKs.
+	 * <p>In both cases, the map itself can be used as monitor for compound
+	 * operations such as check-then-put. A JDK 1.5+ ConcurrentHashMap will
+	 * additionally serve single reads without acquiring any lock.
+	 * Note that a ConcurrentHashMap does not accept null keys or values.
+	 * @param initialCapacity the initial capacity of the map
+	 * @return the new map instance
+	 * @see java.util.concurrent.ConcurrentHashMap
+	 * @see java.util.Collections#synchronizedMap
+	 */
+	public static Map createConcurrentMapIfPossible(int initialCapacity) {
+		if (concurrentCollectionsAvailable) {
+			logger.debug("Creating java.util.concurrent.ConcurrentHashMap");
+			return Jdk15CollectionFactory.createConcurrentHashMap(initialCapacity);
+		}
+		else {
+			logger.debug("Falling back to synchronized java.util.HashMap for concurrent map");
+			return Collections.synchronizedMap(new HashMap(initialCapacity));
+		}
+	}
+
+	/**
+	 * Put the given value into the given map if it does not contain a value
+	 * for the given key yet, as one atomic operation for maps created by
+	 * <code>createConcurrentMapIfPossible</code>. Uses a JDK 1.5+ ConcurrentMap's
+	 * <code>putIfAbsent</code> without locking, else synchronizes on the map.
+	 * @param map the map to put the value into
+	 * @param key the key
+	 * @param value the value to put if there is none for the key yet
+	 * @return the value already contained for the key, or <code>null</code>
+	 * if the given value has been put
+	 * @see #createConcurrentMapIfPossible
+	 * @see java.util.concurrent.ConcurrentMap#putIfAbsent
+	 */
+	public static Object putIfAbsent(Map map, Object key, Object value) {
+		if (concurrentCollectionsAvailable && Jdk15CollectionFactory.isConcurrentMap(map)) {
+			return Jdk15CollectionFactory.putIfAbsent(map, key, value);
+		}
+		synchronized (map) {
+			Object existing = map.get(key);
+			if (existing == null) {
+				map.put(key, value);
+			}
+			return existing;
+		}
+	}
+
 
 	/**
 	 * Actual creation of JDK 1.4+ Collections.
@@ -187,6 +255,26 @@ public class CollectionFactory {
 	}
 
 
+	/**
+	 * Actual creation of JDK 1.5+ concurrent Collections.
+	 * In separate inner class to avoid runtime dependency on JDK 1.5+.
+	 */
+	private static abstract class Jdk15CollectionFactory {
+
+		private static Map createConcurrentHashMap(int initialCapacity) {
+			return new ConcurrentHashMap(initialCapacity);
+		}
+
+		private static boolean isConcurrentMap(Map map) {
+			return (map instanceof ConcurrentMap);
+		}
+
+		private static Object putIfAbsent(Map map, Object key, Object value) {
+			return ((ConcurrentMap) map).putIfAbsent(key, value);
+		}
+	}
+
+
 	/**
 	 * Actual creation of Commons Collections.
 	 * In separate inner class to avoid runtime dependency on Commons Collections 3.x.
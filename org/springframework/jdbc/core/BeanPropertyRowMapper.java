@@ -0,0 +1,396 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.core.CollectionFactory;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.TypeMismatchDataAccessException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.util.NumberUtils;
+
+/**
+ * RowMapper implementation that converts a row into a new instance
+ * of the specified mapped class. The mapped class must be a top-level
+ * class or static nested class, and it must have a default constructor.
+ *
+ * <p>Columns are mapped to bean properties by name, ignoring case and
+ * underscores: a column named "FIRST_NAME" is mapped to a property named
+ * "firstName". Columns without a matching writable property are ignored.
+ *
+ * <p>The column-to-property bindings are resolved once per ResultSet when
+ * used through JdbcTemplate's query methods, and cached per column layout
+ * ("query shape"), that is, per distinct set of column names and types.
+ * Rows are thus mapped without any name matching, metadata access,
+ * BeanWrapper or PropertyEditor involvement. Each binding reads its column
+ * through the ResultSet getter for the property type, for example
+ * <code>getInt</code> for an <code>int</code> property, instead of
+ * <code>getObject</code> plus conversion, and then invokes the setter method
+ * reflectively. Note that this still boxes primitive values for the setter
+ * invocation.
+ *
+ * <p>A SQL NULL leaves a primitive property at its default value and
+ * sets a non-primitive property to <code>null</code>.
+ *
+ * <p>An instance can be shared between DAO methods and threads.
+ *
+ * @since 1.2
+ * @see JdbcTemplate#query(String, RowMapper)
+ * @see ColumnMapRowMapper
+ */
+public class BeanPropertyRowMapper implements ResultSetAwareRowMapper {
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private Class mappedClass;
+
+	private Constructor constructor;
+
+	/** Writable PropertyDescriptors, keyed by normalized property name */
+	private Map mappedProperties;
+
+	/** Cached PropertyBinding arrays, keyed by ColumnLayout */
+	private final Map bindingsCache = CollectionFactory.createConcurrentMapIfPossible(4);
+
+
+	/**
+	 * Create a new BeanPropertyRowMapper.
+	 * @see #setMappedClass
+	 */
+	public BeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new BeanPropertyRowMapper.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public BeanPropertyRowMapper(Class mappedClass) {
+		setMappedClass(mappedClass);
+	}
+
+	/**
+	 * Set the class that each row should be mapped to.
+	 */
+	public void setMappedClass(Class mappedClass) {
+		if (mappedClass == null) {
+			throw new IllegalArgumentException("mappedClass must not be null");
+		}
+		try {
+			this.constructor = mappedClass.getDeclaredConstructor((Class[]) null);
+		}
+		catch (NoSuchMethodException ex) {
+			throw new InvalidDataAccessApiUsageException(
+					"Mapped class [" + mappedClass.getName() + "] does not have a default constructor");
+		}
+		Map mappedProperties = new HashMap();
+		PropertyDescriptor[] pds = BeanUtils.getPropertyDescriptors(mappedClass);
+		for (int i = 0; i < pds.length; i++) {
+			if (pds[i].getWriteMethod() != null) {
+				mappedProperties.put(normalizeName(pds[i].getName()), pds[i]);
+			}
+		}
+		this.mappedClass = mappedClass;
+		this.mappedProperties = mappedProperties;
+		this.bindingsCache.clear();
+	}
+
+	/**
+	 * Return the class that each row is mapped to.
+	 */
+	public Class getMappedClass() {
+		return mappedClass;
+	}
+
+
+	/**
+	 * Map a single row, resolving the property bindings from the metadata
+	 * of the given ResultSet. Mapping through <code>forResultSet</code>
+	 * avoids this per-row metadata access.
+	 */
+	public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+		return forResultSet(rs).mapRow(rs, rowNum);
+	}
+
+	/**
+	 * Resolve the property bindings for the columns of the given ResultSet,
+	 * returning a mapper that applies them to each row.
+	 */
+	public RowMapper forResultSet(ResultSet rs) throws SQLException {
+		if (this.mappedClass == null) {
+			throw new InvalidDataAccessApiUsageException("mappedClass is required");
+		}
+		return new BoundRowMapper(this.constructor, getBindings(new ColumnLayout(rs.getMetaData())));
+	}
+
+	/**
+	 * Return the property bindings for the given column layout,
+	 * resolving them on first use.
+	 */
+	private PropertyBinding[] getBindings(ColumnLayout layout) {
+		PropertyBinding[] bindings = (PropertyBinding[]) this.bindingsCache.get(layout);
+		if (bindings == null) {
+			bindings = createBindings(layout.getColumnNames());
+			this.bindingsCache.put(layout, bindings);
+		}
+		return bindings;
+	}
+
+	/**
+	 * Match the given columns against the writable bean properties.
+	 */
+	private PropertyBinding[] createBindings(String[] columnNames) {
+		List bindings = new ArrayList(columnNames.length);
+		for (int i = 0; i < columnNames.length; i++) {
+			PropertyDescriptor pd = (PropertyDescriptor) this.mappedProperties.get(normalizeName(columnNames[i]));
+			if (pd != null) {
+				bindings.add(new PropertyBinding(i + 1, pd));
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + columnNames[i] +
+						"' in class [" + this.mappedClass.getName() + "]");
+			}
+		}
+		return (PropertyBinding[]) bindings.toArray(new PropertyBinding[bindings.size()]);
+	}
+
+	/**
+	 * Normalize the given column or property name for matching:
+	 * lower case, without underscores.
+	 */
+	private static String normalizeName(String name) {
+		StringBuffer normalized = new StringBuffer(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (c != '_') {
+				normalized.append(Character.toLowerCase(c));
+			}
+		}
+		return normalized.toString();
+	}
+
+
+	/**
+	 * RowMapper for the rows of one ResultSet, applying its property bindings.
+	 */
+	private static class BoundRowMapper implements RowMapper {
+
+		private final Constructor constructor;
+
+		private final PropertyBinding[] propertyBindings;
+
+		public BoundRowMapper(Constructor constructor, PropertyBinding[] propertyBindings) {
+			this.constructor = constructor;
+			this.propertyBindings = propertyBindings;
+		}
+
+		public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+			Object bean = BeanUtils.instantiateClass(this.constructor, null);
+			Object[] args = new Object[1];
+			for (int i = 0; i < this.propertyBindings.length; i++) {
+				this.propertyBindings[i].bind(rs, bean, args);
+			}
+			return bean;
+		}
+	}
+
+
+	/**
+	 * Binding of one column to one bean property, reading the column
+	 * with the ResultSet getter that corresponds to the property type.
+	 */
+	private static class PropertyBinding {
+
+		private static final int OBJECT = 0;
+		private static final int STRING = 1;
+		private static final int BOOLEAN = 2;
+		private static final int BYTE = 3;
+		private static final int SHORT = 4;
+		private static final int INT = 5;
+		private static final int LONG = 6;
+		private static final int FLOAT = 7;
+		private static final int DOUBLE = 8;
+		private static final int BIG_DECIMAL = 9;
+		private static final int DATE = 10;
+		private static final int TIME = 11;
+		private static final int TIMESTAMP = 12;
+
+		private final int columnIndex;
+
+		private final String propertyName;
+
+		private final Class propertyType;
+
+		private final Method writeMethod;
+
+		private final int valueType;
+
+		private final boolean primitive;
+
+		public PropertyBinding(int columnIndex, PropertyDescriptor pd) {
+			this.columnIndex = columnIndex;
+			this.propertyName = pd.getName();
+			this.propertyType = pd.getPropertyType();
+			this.writeMethod = pd.getWriteMethod();
+			this.primitive = this.propertyType.isPrimitive();
+			this.valueType = determineValueType(this.propertyType);
+		}
+
+		private static int determineValueType(Class type) {
+			if (String.class.equals(type)) {
+				return STRING;
+			}
+			else if (boolean.class.equals(type) || Boolean.class.equals(type)) {
+				return BOOLEAN;
+			}
+			else if (byte.class.equals(type) || Byte.class.equals(type)) {
+				return BYTE;
+			}
+			else if (short.class.equals(type) || Short.class.equals(type)) {
+				return SHORT;
+			}
+			else if (int.class.equals(type) || Integer.class.equals(type)) {
+				return INT;
+			}
+			else if (long.class.equals(type) || Long.class.equals(type)) {
+				return LONG;
+			}
+			else if (float.class.equals(type) || Float.class.equals(type)) {
+				return FLOAT;
+			}
+			else if (double.class.equals(type) || Double.class.equals(type)) {
+				return DOUBLE;
+			}
+			else if (BigDecimal.class.equals(type)) {
+				return BIG_DECIMAL;
+			}
+			else if (java.sql.Date.class.equals(type)) {
+				return DATE;
+			}
+			else if (java.sql.Time.class.equals(type)) {
+				return TIME;
+			}
+			else if (java.sql.Timestamp.class.equals(type) || java.util.Date.class.equals(type)) {
+				return TIMESTAMP;
+			}
+			return OBJECT;
+		}
+
+		/**
+		 * Read the column value from the current row and set it on the given bean.
+		 * @param args argument array for the setter invocation, reused per row
+		 */
+		public void bind(ResultSet rs, Object bean, Object[] args) throws SQLException {
+			Object value = getColumnValue(rs);
+			if (value == null && this.primitive) {
+				return;
+			}
+			args[0] = value;
+			try {
+				this.writeMethod.invoke(bean, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw new DataRetrievalFailureException("Could not set property '" + this.propertyName +
+						"' of bean class [" + bean.getClass().getName() + "]", ex.getTargetException());
+			}
+			catch (IllegalAccessException ex) {
+				throw new DataRetrievalFailureException("Could not access setter for property '" +
+						this.propertyName + "' of bean class [" + bean.getClass().getName() + "]", ex);
+			}
+			catch (IllegalArgumentException ex) {
+				throw new TypeMismatchDataAccessException("Value [" + value + "] of column " + this.columnIndex +
+						" does not match type [" + this.propertyType.getName() + "] of property '" +
+						this.propertyName + "'", ex);
+			}
+		}
+
+		private Object getColumnValue(ResultSet rs) throws SQLException {
+			int index = this.columnIndex;
+			Object value;
+			switch (this.valueType) {
+				case STRING:
+					return rs.getString(index);
+				case BOOLEAN:
+					value = (rs.getBoolean(index) ? Boolean.TRUE : Boolean.FALSE);
+					break;
+				case BYTE:
+					value = new Byte(rs.getByte(index));
+					break;
+				case SHORT:
+					value = new Short(rs.getShort(index));
+					break;
+				case INT:
+					value = new Integer(rs.getInt(index));
+					break;
+				case LONG:
+					value = new Long(rs.getLong(index));
+					break;
+				case FLOAT:
+					value = new Float(rs.getFloat(index));
+					break;
+				case DOUBLE:
+					value = new Double(rs.getDouble(index));
+					break;
+				case BIG_DECIMAL:
+					return rs.getBigDecimal(index);
+				case DATE:
+					return rs.getDate(index);
+				case TIME:
+					return rs.getTime(index);
+				case TIMESTAMP:
+					return rs.getTimestamp(index);
+				default:
+					return convertValue(JdbcUtils.getResultSetValue(rs, index));
+			}
+			// Primitive getters return 0 or false for SQL NULL.
+			return (rs.wasNull() ? null : value);
+		}
+
+		private Object convertValue(Object value) {
+			if (value == null || this.propertyType.isInstance(value)) {
+				return value;
+			}
+			if (Number.class.isAssignableFrom(this.propertyType) && value instanceof Number) {
+				try {
+					return NumberUtils.convertNumberToTargetClass((Number) value, this.propertyType);
+				}
+				catch (IllegalArgumentException ex) {
+					throw new TypeMismatchDataAccessException(ex.getMessage());
+				}
+			}
+			throw new TypeMismatchDataAccessException("Value [" + value + "] of column " + this.columnIndex +
+					" is of type [" + value.getClass().getName() + "] and could not be converted to type [" +
+					this.propertyType.getName() + "] of property '" + this.propertyName + "'");
+		}
+	}
+
+}
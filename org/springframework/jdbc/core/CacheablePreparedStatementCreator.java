@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Extension of the PreparedStatementCreator interface for creators
+ * whose PreparedStatements can be cached and reused by JdbcTemplate.
+ *
+ * <p>Statements created for equal cache keys must be interchangeable:
+ * same SQL, same result set options. Any parameter values that
+ * <code>createPreparedStatement</code> sets on a new statement need
+ * to be set by <code>prepareCachedStatement</code> as well.
+ *
+ * @since 1.2
+ * @see JdbcTemplate#setStatementCacheSize
+ * @see org.springframework.jdbc.datasource.PreparedStatementCache
+ */
+public interface CacheablePreparedStatementCreator extends PreparedStatementCreator {
+
+	/**
+	 * Return the key that identifies the statements created by this creator.
+	 * @return the cache key, with proper <code>equals</code> and
+	 * <code>hashCode</code> implementations
+	 */
+	Object getStatementCacheKey();
+
+	/**
+	 * Prepare the given cached statement for reuse, instead of creating
+	 * a new statement via <code>createPreparedStatement</code>.
+	 * @param ps a statement previously created for an equal cache key,
+	 * with its parameters cleared
+	 * @throws SQLException if thrown by JDBC methods
+	 */
+	void prepareCachedStatement(PreparedStatement ps) throws SQLException;
+
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Column names and SQL types of a ResultSet, as reported by its metadata.
+ * Used by row mappers as cache key for state derived from the metadata:
+ * ResultSets with the same columns share that state, without the mapper
+ * having to keep a reference to any ResultSet (and thereby to its Statement
+ * and Connection).
+ *
+ * @since 1.2
+ * @see BeanPropertyRowMapper
+ */
+class ColumnLayout {
+
+	private final String[] columnNames;
+
+	private final int[] columnTypes;
+
+	private final int hashCode;
+
+
+	/**
+	 * Create a new ColumnLayout for the given ResultSet metadata.
+	 */
+	public ColumnLayout(ResultSetMetaData rsmd) throws SQLException {
+		int columnCount = rsmd.getColumnCount();
+		this.columnNames = new String[columnCount];
+		this.columnTypes = new int[columnCount];
+		int hashCode = columnCount;
+		for (int i = 0; i < columnCount; i++) {
+			this.columnNames[i] = rsmd.getColumnName(i + 1);
+			this.columnTypes[i] = rsmd.getColumnType(i + 1);
+			hashCode = 29 * hashCode + (this.columnNames[i] != null ? this.columnNames[i].hashCode() : 0);
+			hashCode = 29 * hashCode + this.columnTypes[i];
+		}
+		this.hashCode = hashCode;
+	}
+
+	/**
+	 * Return the column names, in column order. Must not be modified.
+	 */
+	public String[] getColumnNames() {
+		return this.columnNames;
+	}
+
+	private static boolean equals(String name1, String name2) {
+		return (name1 != null ? name1.equals(name2) : name2 == null);
+	}
+
+
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (!(other instanceof ColumnLayout)) {
+			return false;
+		}
+		ColumnLayout otherLayout = (ColumnLayout) other;
+		if (this.hashCode != otherLayout.hashCode || this.columnNames.length != otherLayout.columnNames.length) {
+			return false;
+		}
+		for (int i = 0; i < this.columnNames.length; i++) {
+			if (this.columnTypes[i] != otherLayout.columnTypes[i] ||
+					!equals(this.columnNames[i], otherLayout.columnNames[i])) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int hashCode() {
+		return this.hashCode;
+	}
+
+}
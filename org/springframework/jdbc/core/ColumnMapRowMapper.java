@@ -16,10 +16,17 @@
 
 package org.springframework.jdbc.core;
 
+import java.io.Serializable;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.springframework.core.CollectionFactory;
 import org.springframework.jdbc.support.JdbcUtils;
@@ -33,6 +40,13 @@ import org.springframework.jdbc.support.JdbcUtils;
  * in the column Map can be customized through overriding
  * <code>createColumnMap</code> and <code>getColumnKey</code>, respectively.
  *
+ * <p>When used through JdbcTemplate's query methods, the column keys are only
+ * resolved once per ResultSet: all rows share the resulting column index.
+ * Each row is then backed by a plain value array, exposed as a read-only Map
+ * that iterates in column order and looks up column names case-insensitively.
+ * If <code>createColumnMap</code> is overridden, the Map returned from it is
+ * populated for each row instead.
+ *
  * @author Juergen Hoeller
  * @since 1.2
  * @see #createColumnMap
@@ -40,7 +54,7 @@ import org.springframework.jdbc.support.JdbcUtils;
  * @see JdbcTemplate#queryForList(String)
  * @see JdbcTemplate#queryForMap(String)
  */
-public class ColumnMapRowMapper implements RowMapper {
+public class ColumnMapRowMapper implements ResultSetAwareRowMapper {
 
 	public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
 		ResultSetMetaData rsmd = rs.getMetaData();
@@ -54,10 +68,44 @@ public class ColumnMapRowMapper implements RowMapper {
 		return mapOfColValues;
 	}
 
+	/**
+	 * Resolve the column keys of the given ResultSet once, returning a mapper
+	 * that backs each row with a value array indexed by those keys.
+	 * Returns this mapper itself if <code>createColumnMap</code> is overridden.
+	 */
+	public RowMapper forResultSet(ResultSet rs) throws SQLException {
+		if (getClass() != ColumnMapRowMapper.class && overridesCreateColumnMap(getClass())) {
+			return this;
+		}
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		String[] columnKeys = new String[columnCount];
+		for (int i = 1; i <= columnCount; i++) {
+			columnKeys[i - 1] = getColumnKey(rsmd.getColumnName(i));
+		}
+		return new ColumnIndexRowMapper(new ColumnIndex(columnKeys));
+	}
+
+	private static boolean overridesCreateColumnMap(Class clazz) {
+		for (Class current = clazz; current != ColumnMapRowMapper.class; current = current.getSuperclass()) {
+			try {
+				current.getDeclaredMethod("createColumnMap", new Class[] {int.class});
+				return true;
+			}
+			catch (NoSuchMethodException ex) {
+				// not declared on this class - check superclass
+			}
+		}
+		return false;
+	}
+
 	/**
 	 * Create a Map instance to be used as column map.
 	 * <p>By default, a linked Map will be created if possible,
 	 * else a plain HashMap (see Spring's CollectionFactory).
+	 * <p>Not called for the rows of a ResultSet bound through
+	 * <code>forResultSet</code>, unless overridden by a subclass:
+	 * the default mapping uses compact read-only Maps there.
 	 * @param columnCount the column count, to be used as initial
 	 * capacity for the Map
 	 * @return the new Map instance
@@ -91,4 +139,191 @@ public class ColumnMapRowMapper implements RowMapper {
 		return JdbcUtils.getResultSetValue(rs, index);
 	}
 
+
+	/**
+	 * RowMapper for the rows of one ResultSet, sharing its column index.
+	 */
+	private class ColumnIndexRowMapper implements RowMapper {
+
+		private final ColumnIndex index;
+
+		public ColumnIndexRowMapper(ColumnIndex index) {
+			this.index = index;
+		}
+
+		public Object mapRow(ResultSet rs, int rowNum) throws SQLException {
+			int[] columnNumbers = this.index.columnNumbers;
+			Object[] values = new Object[columnNumbers.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = getColumnValue(rs, columnNumbers[i]);
+			}
+			return new ColumnMap(this.index, values);
+		}
+	}
+
+
+	/**
+	 * Column keys of a ResultSet, shared by all of its rows.
+	 * Columns with the same key (ignoring case) are represented once,
+	 * with the value of the last such column, like with a column Map
+	 * populated in column order.
+	 */
+	private static class ColumnIndex implements Serializable {
+
+		/** Distinct column keys, in column order */
+		private final String[] keys;
+
+		/** JDBC column number to read for each key */
+		private final int[] columnNumbers;
+
+		/** Position of each key, by key as given */
+		private final Map positions;
+
+		/** Position of each key, by lower-case key */
+		private final Map lowerCasePositions;
+
+		public ColumnIndex(String[] columnKeys) {
+			int columnCount = columnKeys.length;
+			String[] keys = new String[columnCount];
+			int[] columnNumbers = new int[columnCount];
+			this.positions = new HashMap(columnCount * 2);
+			this.lowerCasePositions = new HashMap(columnCount * 2);
+			int keyCount = 0;
+			for (int i = 1; i <= columnCount; i++) {
+				String key = columnKeys[i - 1];
+				String lowerCaseKey = key.toLowerCase();
+				Integer position = (Integer) this.lowerCasePositions.get(lowerCaseKey);
+				if (position != null) {
+					// Duplicate column key: keep its position, but read the later column.
+					columnNumbers[position.intValue()] = i;
+				}
+				else {
+					position = new Integer(keyCount);
+					keys[keyCount] = key;
+					columnNumbers[keyCount] = i;
+					this.positions.put(key, position);
+					this.lowerCasePositions.put(lowerCaseKey, position);
+					keyCount++;
+				}
+			}
+			if (keyCount < columnCount) {
+				String[] distinctKeys = new String[keyCount];
+				int[] distinctColumnNumbers = new int[keyCount];
+				System.arraycopy(keys, 0, distinctKeys, 0, keyCount);
+				System.arraycopy(columnNumbers, 0, distinctColumnNumbers, 0, keyCount);
+				keys = distinctKeys;
+				columnNumbers = distinctColumnNumbers;
+			}
+			this.keys = keys;
+			this.columnNumbers = columnNumbers;
+		}
+
+		public int getPosition(Object key) {
+			Integer position = (Integer) this.positions.get(key);
+			if (position == null && key instanceof String) {
+				position = (Integer) this.lowerCasePositions.get(((String) key).toLowerCase());
+			}
+			return (position != null ? position.intValue() : -1);
+		}
+	}
+
+
+	/**
+	 * Read-only Map view of one row: a value array indexed by the
+	 * shared ColumnIndex of the ResultSet.
+	 */
+	private static class ColumnMap extends AbstractMap implements Serializable {
+
+		private final ColumnIndex index;
+
+		private final Object[] values;
+
+		public ColumnMap(ColumnIndex index, Object[] values) {
+			this.index = index;
+			this.values = values;
+		}
+
+		public int size() {
+			return this.values.length;
+		}
+
+		public boolean containsKey(Object key) {
+			return (this.index.getPosition(key) != -1);
+		}
+
+		public Object get(Object key) {
+			int position = this.index.getPosition(key);
+			return (position != -1 ? this.values[position] : null);
+		}
+
+		public Set entrySet() {
+			return new AbstractSet() {
+				public int size() {
+					return values.length;
+				}
+				public Iterator iterator() {
+					return new ColumnIterator();
+				}
+			};
+		}
+
+		private class ColumnIterator implements Iterator {
+
+			private int position = 0;
+
+			public boolean hasNext() {
+				return (this.position < values.length);
+			}
+
+			public Object next() {
+				if (this.position >= values.length) {
+					throw new NoSuchElementException();
+				}
+				return new ColumnEntry(this.position++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException("Column Map is read-only");
+			}
+		}
+
+		private class ColumnEntry implements Map.Entry {
+
+			private final int position;
+
+			public ColumnEntry(int position) {
+				this.position = position;
+			}
+
+			public Object getKey() {
+				return index.keys[this.position];
+			}
+
+			public Object getValue() {
+				return values[this.position];
+			}
+
+			public Object setValue(Object value) {
+				throw new UnsupportedOperationException("Column Map is read-only");
+			}
+
+			public boolean equals(Object other) {
+				if (!(other instanceof Map.Entry)) {
+					return false;
+				}
+				Map.Entry otherEntry = (Map.Entry) other;
+				return (getKey().equals(otherEntry.getKey()) &&
+						(getValue() == null ? otherEntry.getValue() == null : getValue().equals(otherEntry.getValue())));
+			}
+
+			public int hashCode() {
+				return getKey().hashCode() ^ (getValue() == null ? 0 : getValue().hashCode());
+			}
+
+			public String toString() {
+				return getKey() + "=" + getValue();
+			}
+		}
+	}
+
 }
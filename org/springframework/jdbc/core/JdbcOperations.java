@@ -440,6 +440,27 @@ public interface JdbcOperations {
 	 */
 	List query(String sql, Object[] args, RowCallbackHandler rch) throws DataAccessException;
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, streaming the ResultSet row by row to
+	 * a RowStreamCallback that may stop the query at any row.
+	 * <p>Uses a forward-only, read-only PreparedStatement with the given fetch
+	 * size, so that large result sets are never held in memory as a whole.
+	 * @param sql SQL query to execute
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may be null if there are no bind parameters
+	 * @param fetchSize the fetch size for this query, 0 for the template's
+	 * default fetch size, or <code>JdbcTemplate.STREAMING_FETCH_SIZE</code>
+	 * for MySQL's row-by-row streaming mode
+	 * @param callback object that will process the rows, one row at a time
+	 * @return the number of rows processed
+	 * @throws DataAccessException if the query fails
+	 * @see JdbcTemplate#STREAMING_FETCH_SIZE
+	 */
+	int streamQuery(String sql, Object[] args, int fetchSize, RowStreamCallback callback)
+			throws DataAccessException;
+
 	/**
 	 * Query using a prepared statement, mapping each row to a Java object
 	 * via a RowMapper.
@@ -29,16 +29,21 @@ import java.util.Map;
 
 import javax.sql.DataSource;
 
+import org.springframework.core.CollectionFactory;
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.dao.support.DataAccessUtils;
 import org.springframework.jdbc.SQLWarningException;
+import org.springframework.jdbc.datasource.ConnectionHolder;
 import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.PreparedStatementCache;
+import org.springframework.jdbc.datasource.PreparedStatementCacheStatistics;
 import org.springframework.jdbc.support.JdbcAccessor;
 import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.nativejdbc.NativeJdbcExtractor;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * <b>This is the central class in the JDBC core package.</b>
@@ -83,6 +88,22 @@ import org.springframework.jdbc.support.rowset.SqlRowSet;
  */
 public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
+	/**
+	 * Fetch size that puts MySQL Connector/J into streaming mode for a
+	 * forward-only, read-only statement, reading one row at a time instead
+	 * of buffering the entire result set on the client.
+	 * <p>Note that MySQL does not allow any other statements on the same
+	 * Connection while such a streaming result set is open.
+	 * @see #streamQuery
+	 */
+	public static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+
+	/**
+	 * Maximum number of SQL strings to keep parsing results for.
+	 */
+	private static final int PARSED_SQL_CACHE_LIMIT = 256;
+
+
 	/** Custom NativeJdbcExtractor */
 	private NativeJdbcExtractor nativeJdbcExtractor;
 
@@ -101,6 +122,19 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private int maxRows = 0;
 
+	/**
+	 * If this variable is set to a non-zero value, up to that many prepared
+	 * statements will be cached for a Connection bound to the thread.
+	 */
+	private int statementCacheSize = 0;
+
+	/** Hit and miss counts of the statement cache lookups of this JdbcTemplate */
+	private final PreparedStatementCacheStatistics statementCacheStatistics =
+			new PreparedStatementCacheStatistics();
+
+	/** Number of parameter placeholders, keyed by SQL String */
+	private final Map placeholderCountCache = CollectionFactory.createConcurrentMapIfPossible(16);
+
 
 	/**
 	 * Construct a new JdbcTemplate for bean usage.
@@ -203,6 +237,70 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return maxRows;
 	}
 
+	/**
+	 * Set the number of prepared statements to cache for a Connection
+	 * bound to the thread, for example by a transaction manager.
+	 * <p>Cached statements are reused for subsequent operations with the same
+	 * SQL on the same Connection, within the same transaction, and closed
+	 * before the Connection is released. This does not depend on the
+	 * connection pool or JDBC driver supporting statement caching.
+	 * <p>Default is 0, indicating not to cache statements.
+	 * @see org.springframework.jdbc.datasource.ConnectionHolder#getPreparedStatementCache
+	 * @see CacheablePreparedStatementCreator
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Return the number of prepared statements to cache per Connection.
+	 */
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	/**
+	 * Return the hit and miss counts of the statement cache lookups performed
+	 * by this JdbcTemplate, aggregated over all Connections.
+	 * <p>The lookups on a Connection are counted by its cache without any
+	 * locking, and added to these statistics when the cache gets closed,
+	 * i.e. when the Connection is released at the end of the transaction.
+	 * @see #setStatementCacheSize
+	 * @see #getCurrentStatementCache
+	 */
+	public PreparedStatementCacheStatistics getStatementCacheStatistics() {
+		return this.statementCacheStatistics;
+	}
+
+	/**
+	 * Return the ratio of statement cache hits to lookups of this JdbcTemplate,
+	 * between 0.0 and 1.0, for all Connections that have been released so far.
+	 * @see #getStatementCacheStatistics
+	 */
+	public double getStatementCacheHitRate() {
+		return this.statementCacheStatistics.getHitRate();
+	}
+
+	/**
+	 * Return the statement cache of the Connection bound to the current thread,
+	 * for example to check its hit and miss counts within a transaction.
+	 * Does not create a cache if none has been used for the Connection yet.
+	 * @return the statement cache, or <code>null</code> if statement caching
+	 * is not active, no Connection is bound to the thread, or no statement
+	 * has been cached for it yet
+	 * @see #setStatementCacheSize
+	 * @see org.springframework.jdbc.datasource.PreparedStatementCache#getHitCount
+	 * @see org.springframework.jdbc.datasource.PreparedStatementCache#getMissCount
+	 */
+	public PreparedStatementCache getCurrentStatementCache() {
+		if (this.statementCacheSize <= 0) {
+			return null;
+		}
+		ConnectionHolder conHolder =
+				(ConnectionHolder) TransactionSynchronizationManager.getResource(getDataSource());
+		return (conHolder != null ? conHolder.getPreparedStatementCache() : null);
+	}
+
 	public void afterPropertiesSet() {
 		super.afterPropertiesSet();
 
@@ -287,7 +385,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		if (sql == null) {
 			throw new InvalidDataAccessApiUsageException("SQL must not be null");
 		}
-		if (JdbcUtils.countParameterPlaceholders(sql, '?', "'\"") > 0) {
+		if (countParameterPlaceholders(sql) > 0) {
 			throw new InvalidDataAccessApiUsageException(
 					"Cannot execute [" + sql + "] as a static query: it contains bind variables");
 		}
@@ -434,14 +532,27 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throws DataAccessException {
 
 		Connection con = DataSourceUtils.getConnection(getDataSource());
+		PreparedStatementCache statementCache = getStatementCache(con, psc);
+		Object statementCacheKey = null;
 		PreparedStatement ps = null;
+		boolean reusable = false;
 		try {
 			Connection conToUse = con;
 			if (this.nativeJdbcExtractor != null &&
 					this.nativeJdbcExtractor.isNativeConnectionNecessaryForNativePreparedStatements()) {
 				conToUse = this.nativeJdbcExtractor.getNativeConnection(con);
 			}
-			ps = psc.createPreparedStatement(conToUse);
+			if (statementCache != null) {
+				CacheablePreparedStatementCreator cpsc = (CacheablePreparedStatementCreator) psc;
+				statementCacheKey = cpsc.getStatementCacheKey();
+				ps = statementCache.getStatement(statementCacheKey, this.statementCacheStatistics);
+				if (ps != null) {
+					cpsc.prepareCachedStatement(ps);
+				}
+			}
+			if (ps == null) {
+				ps = psc.createPreparedStatement(conToUse);
+			}
 			DataSourceUtils.applyTransactionTimeout(ps, getDataSource());
 			PreparedStatement psToUse = ps;
 			if (this.nativeJdbcExtractor != null) {
@@ -450,6 +561,8 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			Object result = action.doInPreparedStatement(psToUse);
 			SQLWarning warning = ps.getWarnings();
 			throwExceptionOnWarningIfNotIgnoringWarnings(warning);
+			// Only reuse a statement that has been used successfully.
+			reusable = true;
 			return result;
 		}
 		catch (SQLException ex) {
@@ -460,11 +573,34 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			if (psc instanceof ParameterDisposer) {
 				((ParameterDisposer) psc).cleanupParameters();
 			}
-			JdbcUtils.closeStatement(ps);
+			if (statementCache != null && ps != null && reusable) {
+				statementCache.returnStatement(statementCacheKey, ps);
+			}
+			else {
+				JdbcUtils.closeStatement(ps);
+			}
 			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
 		}
 	}
 
+	/**
+	 * Determine the statement cache to use for the given Connection and
+	 * PreparedStatementCreator: the cache of the ConnectionHolder bound to the
+	 * thread, if the Connection is the bound one and statement caching applies.
+	 * @return the statement cache, or <code>null</code> if not applicable
+	 */
+	private PreparedStatementCache getStatementCache(Connection con, PreparedStatementCreator psc) {
+		if (this.statementCacheSize <= 0 || !(psc instanceof CacheablePreparedStatementCreator)) {
+			return null;
+		}
+		ConnectionHolder conHolder =
+				(ConnectionHolder) TransactionSynchronizationManager.getResource(getDataSource());
+		if (conHolder == null || conHolder.getConnection() != con) {
+			return null;
+		}
+		return conHolder.getPreparedStatementCache(this.statementCacheSize);
+	}
+
 	public Object execute(final String sql, PreparedStatementCallback action) throws DataAccessException {
 		return execute(new SimplePreparedStatementCreator(sql), action);
 	}
@@ -559,6 +695,64 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return query(sql, new ArgPreparedStatementSetter(args), rch);
 	}
 
+	public int streamQuery(String sql, Object[] args, final int fetchSize, final RowStreamCallback callback)
+			throws DataAccessException {
+
+		if (sql == null) {
+			throw new InvalidDataAccessApiUsageException("SQL may not be null");
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing streaming SQL query [" + sql + "] with fetch size " + fetchSize);
+		}
+		final ArgPreparedStatementSetter pss = new ArgPreparedStatementSetter(args);
+		Integer rowCount = (Integer) execute(new StreamingPreparedStatementCreator(sql), new PreparedStatementCallback() {
+			public Object doInPreparedStatement(PreparedStatement ps) throws SQLException {
+				ResultSet rs = null;
+				int rowNum = 0;
+				boolean exhausted = false;
+				try {
+					if (fetchSize != 0) {
+						ps.setFetchSize(fetchSize);
+					}
+					else if (getFetchSize() > 0) {
+						ps.setFetchSize(getFetchSize());
+					}
+					if (getMaxRows() > 0) {
+						ps.setMaxRows(getMaxRows());
+					}
+					pss.setValues(ps);
+					rs = ps.executeQuery();
+					ResultSet rsToUse = rs;
+					if (nativeJdbcExtractor != null) {
+						rsToUse = nativeJdbcExtractor.getNativeResultSet(rs);
+					}
+					while (true) {
+						if (!rsToUse.next()) {
+							exhausted = true;
+							break;
+						}
+						boolean proceed = callback.processRow(rsToUse, rowNum);
+						rowNum++;
+						if (!proceed) {
+							break;
+						}
+					}
+					return new Integer(rowNum);
+				}
+				finally {
+					if (rs != null && !exhausted) {
+						// Stopped early or failed: don't let the driver read the remaining rows
+						// on close. MySQL's streaming mode, for example, would drain the whole result.
+						cancelStatement(ps);
+					}
+					JdbcUtils.closeResultSet(rs);
+					pss.cleanupParameters();
+				}
+			}
+		});
+		return rowCount.intValue();
+	}
+
 	public List query(PreparedStatementCreator psc, RowMapper rowMapper)
 			throws DataAccessException {
 		return query(psc, new RowMapperResultReader(rowMapper));
@@ -946,6 +1140,43 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * Cancel the given Statement after a streaming query has been stopped
+	 * before reading all rows.
+	 * Failures are logged only, as the Statement will be closed anyway.
+	 * @param stmt the Statement to cancel
+	 */
+	private void cancelStatement(Statement stmt) {
+		try {
+			stmt.cancel();
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not cancel JDBC Statement after streaming query was stopped", ex);
+		}
+		catch (RuntimeException ex) {
+			logger.debug("Unexpected exception on cancelling JDBC Statement", ex);
+		}
+	}
+
+	/**
+	 * Count the parameter placeholders in the given SQL statement,
+	 * caching the result per SQL String. The cache is cleared and
+	 * rebuilt once it holds PARSED_SQL_CACHE_LIMIT SQL Strings.
+	 * @param sql the SQL statement
+	 * @return the number of parameter placeholders
+	 */
+	private int countParameterPlaceholders(String sql) {
+		Integer count = (Integer) this.placeholderCountCache.get(sql);
+		if (count == null) {
+			count = new Integer(JdbcUtils.countParameterPlaceholders(sql, '?', "'\""));
+			if (this.placeholderCountCache.size() >= PARSED_SQL_CACHE_LIMIT) {
+				this.placeholderCountCache.clear();
+			}
+			this.placeholderCountCache.put(sql, count);
+		}
+		return count.intValue();
+	}
+
 	/**
 	 * Throw an SQLWarningException if we're not ignoring warnings.
 	 * @param warning warning from current statement. May be null,
@@ -982,7 +1213,7 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 * Simple adapter for PreparedStatementCreator, allowing to use a plain SQL statement.
 	 */
 	private static class SimplePreparedStatementCreator
-			implements PreparedStatementCreator, SqlProvider {
+			implements CacheablePreparedStatementCreator, SqlProvider {
 
 		private final String sql;
 
@@ -994,6 +1225,37 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			return con.prepareStatement(this.sql);
 		}
 
+		public Object getStatementCacheKey() {
+			return this.sql;
+		}
+
+		public void prepareCachedStatement(PreparedStatement ps) {
+			// parameter values will be set by a PreparedStatementSetter
+		}
+
+		public String getSql() {
+			return sql;
+		}
+	}
+
+
+	/**
+	 * PreparedStatementCreator for streaming queries, creating
+	 * forward-only, read-only PreparedStatements for a plain SQL statement.
+	 */
+	private static class StreamingPreparedStatementCreator
+			implements PreparedStatementCreator, SqlProvider {
+
+		private final String sql;
+
+		public StreamingPreparedStatementCreator(String sql) {
+			this.sql = sql;
+		}
+
+		public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+			return con.prepareStatement(this.sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+		}
+
 		public String getSql() {
 			return sql;
 		}
@@ -1096,8 +1358,15 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		}
 
 		public Object extractData(ResultSet rs) throws SQLException {
-			while (rs.next()) {
-				this.rch.processRow(rs);
+			try {
+				while (rs.next()) {
+					this.rch.processRow(rs);
+				}
+			}
+			finally {
+				if (this.rch instanceof RowMapperResultReader) {
+					((RowMapperResultReader) this.rch).releaseResultSet();
+				}
 			}
 			if (this.rch instanceof ResultReader) {
 				return ((ResultReader) this.rch).getResults();
@@ -54,6 +54,9 @@ public class PreparedStatementCreatorFactory {
 
 	private NativeJdbcExtractor nativeJdbcExtractor;
 
+	/** Key for caching the statements created by this factory, determined lazily */
+	private Object statementCacheKey;
+
 
 	/**
 	 * Create a new factory. Will need to add parameters
@@ -103,6 +106,7 @@ public class PreparedStatementCreatorFactory {
 	 */
 	public void setResultSetType(int resultSetType) {
 		this.resultSetType = resultSetType;
+		this.statementCacheKey = null;
 	}
 
 	/**
@@ -112,6 +116,7 @@ public class PreparedStatementCreatorFactory {
 	 */
 	public void setUpdatableResults(boolean updatableResults) {
 		this.updatableResults = updatableResults;
+		this.statementCacheKey = null;
 	}
 
 	/**
@@ -120,6 +125,7 @@ public class PreparedStatementCreatorFactory {
 	 */
 	public void setReturnGeneratedKeys(boolean returnGeneratedKeys) {
 		this.returnGeneratedKeys = returnGeneratedKeys;
+		this.statementCacheKey = null;
 	}
 
 	/**
@@ -127,6 +133,7 @@ public class PreparedStatementCreatorFactory {
 	 */
 	public void setGeneratedKeysColumnNames(String[] names) {
 		this.generatedKeysColumnNames = names;
+		this.statementCacheKey = null;
 	}
 
 	/**
@@ -138,6 +145,30 @@ public class PreparedStatementCreatorFactory {
 	}
 	
 
+	/**
+	 * Return the key that identifies the statements created by this factory:
+	 * the plain SQL String for forward-only, read-only statements, matching
+	 * statements for the same SQL created by JdbcTemplate, or a List of the
+	 * SQL and the statement options else.
+	 * @see CacheablePreparedStatementCreator#getStatementCacheKey
+	 */
+	private Object getStatementCacheKey() {
+		if (this.statementCacheKey == null) {
+			if (!this.returnGeneratedKeys && this.resultSetType == ResultSet.TYPE_FORWARD_ONLY &&
+					!this.updatableResults) {
+				this.statementCacheKey = this.sql;
+			}
+			else {
+				this.statementCacheKey = Arrays.asList(new Object[] {
+						this.sql, new Integer(this.resultSetType), new Boolean(this.updatableResults),
+						new Boolean(this.returnGeneratedKeys),
+						(this.generatedKeysColumnNames != null ? Arrays.asList(this.generatedKeysColumnNames) : null)});
+			}
+		}
+		return this.statementCacheKey;
+	}
+
+
 	/**
 	 * Return a new PreparedStatementCreator for the given parameters.
 	 * @param params parameter array. May be null.
@@ -174,8 +205,8 @@ public class PreparedStatementCreatorFactory {
 	/**
 	 * PreparedStatementCreator implementation returned by this class.
 	 */
-	private class PreparedStatementCreatorImpl
-			implements PreparedStatementCreator, PreparedStatementSetter, SqlProvider, ParameterDisposer {
+	private class PreparedStatementCreatorImpl implements CacheablePreparedStatementCreator,
+			PreparedStatementSetter, SqlProvider, ParameterDisposer {
 
 		private final List parameters;
 		
@@ -220,6 +251,14 @@ public class PreparedStatementCreatorFactory {
 			return ps;
 		}
 
+		public Object getStatementCacheKey() {
+			return PreparedStatementCreatorFactory.this.getStatementCacheKey();
+		}
+
+		public void prepareCachedStatement(PreparedStatement ps) throws SQLException {
+			setValues(ps);
+		}
+
 		public void setValues(PreparedStatement ps) throws SQLException {
 			// determine PreparedStatement to pass to custom types
 			PreparedStatement psToUse = ps;
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Extension of the RowMapper interface for mappers that derive state from
+ * the metadata of a ResultSet, like column keys or property bindings.
+ *
+ * <p>Callers that map all rows of a ResultSet with the same mapper ask for
+ * a mapper bound to that ResultSet first, and use the returned mapper for
+ * each of its rows. The metadata is thus only resolved once per ResultSet.
+ *
+ * @since 1.2
+ * @see RowMapperResultReader
+ */
+interface ResultSetAwareRowMapper extends RowMapper {
+
+	/**
+	 * Return a RowMapper for the rows of the given ResultSet,
+	 * with all metadata-derived state already resolved.
+	 * <p>The returned mapper must only be used for rows of the given ResultSet.
+	 * @param rs the ResultSet whose rows are about to be mapped
+	 * @return the RowMapper to use for each row (may be this mapper itself)
+	 * @throws SQLException if thrown when accessing the ResultSet metadata
+	 */
+	RowMapper forResultSet(ResultSet rs) throws SQLException;
+
+}
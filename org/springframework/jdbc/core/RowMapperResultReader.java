@@ -31,7 +31,9 @@ import java.util.List;
  * The number of entries in the results list will match the number of rows.
  *
  * <p>Note that a RowMapper object is typically stateless and thus reusable;
- * just the RowMapperResultReader adapter is stateful.
+ * just the RowMapperResultReader adapter is stateful. If the RowMapper
+ * derives state from the ResultSet metadata, that state is resolved once
+ * per ResultSet, on its first row.
  *
  * <p>A usage example with JdbcTemplate:
  *
@@ -66,6 +68,12 @@ public class RowMapperResultReader implements ResultReader {
 	/** The counter used to count rows */
 	private int rowNum = 0;
 
+	/** The ResultSet that the current row mapper is bound to, if any */
+	private ResultSet boundResultSet;
+
+	/** The RowMapper to use for the rows of the bound ResultSet */
+	private RowMapper boundRowMapper;
+
 	/**
 	 * Create a new RowMapperResultReader.
 	 * @param rowMapper the RowMapper which creates an object for each row
@@ -88,7 +96,22 @@ public class RowMapperResultReader implements ResultReader {
 	}
 
 	public void processRow(ResultSet rs) throws SQLException {
-		this.results.add(this.rowMapper.mapRow(rs, this.rowNum++));
+		if (rs != this.boundResultSet) {
+			this.boundRowMapper = (this.rowMapper instanceof ResultSetAwareRowMapper ?
+					((ResultSetAwareRowMapper) this.rowMapper).forResultSet(rs) : this.rowMapper);
+			this.boundResultSet = rs;
+		}
+		this.results.add(this.boundRowMapper.mapRow(rs, this.rowNum++));
+	}
+
+	/**
+	 * Release the ResultSet that the row mapper is currently bound to.
+	 * Called once all rows of a ResultSet have been processed, to not keep
+	 * a reference to it (and thereby to its Statement and Connection).
+	 */
+	void releaseResultSet() {
+		this.boundResultSet = null;
+		this.boundRowMapper = null;
 	}
 
 	public List getResults() {
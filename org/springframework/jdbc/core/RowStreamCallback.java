@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Callback interface used by JdbcTemplate's <code>streamQuery</code> methods,
+ * for processing large result sets one row at a time without keeping them
+ * in memory. SQLExceptions will be caught and handled correctly by the
+ * JdbcTemplate class.
+ *
+ * <p>In contrast to a RowCallbackHandler, a RowStreamCallback can stop the
+ * query at any row by returning <code>false</code>. Rows are only read from
+ * the database as fast as the callback processes them; the ResultSet and
+ * Statement are closed as soon as the callback stops or throws an exception.
+ *
+ * @since 1.2
+ * @see JdbcTemplate#streamQuery(String, Object[], int, RowStreamCallback)
+ * @see RowCallbackHandler
+ */
+public interface RowStreamCallback {
+
+	/**
+	 * Implementations must implement this method to process each row of data
+	 * in the ResultSet. This method should not call next() on the ResultSet,
+	 * but extract the current values.
+	 * @param rs the ResultSet to process
+	 * @param rowNum the number of the current row, starting with 0
+	 * @return <code>true</code> to continue with the next row,
+	 * <code>false</code> to stop the query
+	 * @throws SQLException if a SQLException is encountered getting
+	 * column values (that is, there's no need to catch SQLException)
+	 */
+	boolean processRow(ResultSet rs, int rowNum) throws SQLException;
+
+}
@@ -28,6 +28,9 @@ import org.springframework.transaction.support.ResourceHolderSupport;
  * <p>Inherits rollback-only support for nested JDBC transactions
  * and reference count functionality from the base class.
  *
+ * <p>Can hold a PreparedStatementCache for the Connection, which needs
+ * to be closed before the Connection is released.
+ *
  * <p>Note: This is an SPI class, not intended to be used by applications.
  *
  * @author Juergen Hoeller
@@ -39,6 +42,8 @@ public class ConnectionHolder extends ResourceHolderSupport {
 
 	private final ConnectionHandle connectionHandle;
 
+	private PreparedStatementCache preparedStatementCache;
+
 	public ConnectionHolder(ConnectionHandle connectionHandle) {
 		this.connectionHandle = connectionHandle;
 	}
@@ -55,4 +60,38 @@ public class ConnectionHolder extends ResourceHolderSupport {
 		return this.connectionHandle.getConnection();
 	}
 
+	/**
+	 * Return the PreparedStatementCache for the Connection, if any.
+	 * @return the cache, or <code>null</code> if none has been created
+	 * @see #getPreparedStatementCache(int)
+	 */
+	public PreparedStatementCache getPreparedStatementCache() {
+		return this.preparedStatementCache;
+	}
+
+	/**
+	 * Return the PreparedStatementCache for the Connection,
+	 * creating it on first access.
+	 * @param maxSize the maximum number of statements to cache,
+	 * if the cache needs to be created
+	 * @see #closePreparedStatementCache
+	 */
+	public PreparedStatementCache getPreparedStatementCache(int maxSize) {
+		if (this.preparedStatementCache == null) {
+			this.preparedStatementCache = new PreparedStatementCache(maxSize);
+		}
+		return this.preparedStatementCache;
+	}
+
+	/**
+	 * Close the statements cached for the Connection, if any.
+	 * To be called before the Connection is released.
+	 */
+	public void closePreparedStatementCache() {
+		if (this.preparedStatementCache != null) {
+			this.preparedStatementCache.close();
+			this.preparedStatementCache = null;
+		}
+	}
+
 }
@@ -252,6 +252,7 @@ public class DataSourceTransactionManager extends AbstractPlatformTransactionMan
 
 		// Remove the connection holder from the thread.
 		TransactionSynchronizationManager.unbindResource(this.dataSource);
+		txObject.getConnectionHolder().closePreparedStatementCache();
 		txObject.getConnectionHolder().clear();
 
 		// Reset connection.
@@ -360,6 +360,7 @@ public abstract class DataSourceUtils {
 			// the close call before transaction completion.
 			if (!this.connectionHolder.isOpen()) {
 				TransactionSynchronizationManager.unbindResource(this.dataSource);
+				this.connectionHolder.closePreparedStatementCache();
 				closeConnectionIfNecessary(this.connectionHolder.getConnection(), this.dataSource);
 			}
 		}
@@ -370,6 +371,7 @@ public abstract class DataSourceUtils {
 			// cleanup in the meantime, for example by a Hibernate Session.
 			if (TransactionSynchronizationManager.hasResource(this.dataSource)) {
 				TransactionSynchronizationManager.unbindResource(this.dataSource);
+				this.connectionHolder.closePreparedStatementCache();
 				closeConnectionIfNecessary(this.connectionHolder.getConnection(), this.dataSource);
 			}
 		}
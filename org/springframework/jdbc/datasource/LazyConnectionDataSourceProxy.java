@@ -182,6 +182,26 @@ public class LazyConnectionDataSourceProxy extends DelegatingDataSource {
 	}
 
 
+	/**
+	 * Fetch an actual JDBC Connection for a lazy Connection handle.
+	 * Called on first creation of a Statement, i.e. once the transaction
+	 * settings of the Connection handle (like its read-only flag) are known.
+	 * <p>The default implementation obtains a Connection from the target
+	 * DataSource. Can be overridden to choose among multiple DataSources.
+	 * @param username the per-Connection username, or <code>null</code> for the default
+	 * @param password the per-Connection password
+	 * @param readOnly whether the Connection handle has been marked read-only
+	 * @return the actual JDBC Connection
+	 * @throws SQLException if thrown by JDBC methods
+	 * @see ReadOnlyRoutingDataSourceProxy
+	 */
+	protected Connection doGetTargetConnection(String username, String password, boolean readOnly)
+			throws SQLException {
+		return (username != null) ?
+				getTargetDataSource().getConnection(username, password) :
+				getTargetDataSource().getConnection();
+	}
+
 	/**
 	 * Return a Connection handle that lazily fetches an actual JDBC Connection
 	 * when asked for a Statement (or PreparedStatement or CallableStatement).
@@ -360,9 +380,7 @@ public class LazyConnectionDataSourceProxy extends DelegatingDataSource {
 				}
 
 				// Fetch physical Connection from DataSource.
-				this.target = (this.username != null) ?
-						getTargetDataSource().getConnection(this.username, this.password) :
-						getTargetDataSource().getConnection();
+				this.target = doGetTargetConnection(this.username, this.password, this.readOnly.booleanValue());
 
 				// If we still lack default connection properties, check them now.
 				checkDefaultConnectionProperties(this.target);
@@ -0,0 +1,910 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Implementation of SmartDataSource that keeps a pool of physical Connections,
+ * obtained via the DriverManager like with DriverManagerDataSource. Works with
+ * any JDBC driver registered with the DriverManager, including embedded
+ * databases and stub drivers for testing.
+ *
+ * <p>Connection handles returned by this DataSource are proxies that return
+ * the physical Connection to the pool on <code>close()</code>. Any uncommitted
+ * work is rolled back and auto-commit mode is restored at that point.
+ *
+ * <p>Checkout and return only hold the pool monitor for a few field updates:
+ * physical Connections are never created, validated or closed while holding
+ * it. If the pool is exhausted, callers wait up to "maxWait" milliseconds,
+ * and returned Connections are handed directly to the longest-waiting caller.
+ *
+ * <p>Connections are not validated on every checkout. Only a Connection that
+ * has been idle for longer than "validationInterval" gets checked before being
+ * handed out, using the "validationQuery" if specified. If "maintenanceInterval"
+ * is set, a background timer additionally validates and evicts idle Connections
+ * and logs Connections that have been checked out for longer than the
+ * "leakDetectionThreshold", including the stack trace of the checkout.
+ *
+ * <p>Pool metrics are available via <code>getActiveCount</code>,
+ * <code>getIdleCount</code>, <code>getWaitingCount</code> and
+ * <code>getWaitTimeHistogram</code>.
+ *
+ * @since 1.2
+ * @see #setMaxPoolSize
+ * @see #setMaxWait
+ * @see #setValidationInterval
+ * @see #setMaintenanceInterval
+ * @see #setLeakDetectionThreshold
+ */
+public class PoolingDataSource extends DriverManagerDataSource
+		implements SmartDataSource, InitializingBean, DisposableBean {
+
+	/**
+	 * Upper bounds (exclusive, in milliseconds) of the wait time histogram
+	 * buckets. The last histogram bucket counts all longer waits.
+	 * @see #getWaitTimeHistogram
+	 */
+	public static final long[] WAIT_TIME_BUCKET_BOUNDS = new long[] {1, 10, 100, 1000};
+
+
+	private int initialSize = 0;
+
+	private int minIdle = 0;
+
+	private int maxPoolSize = 8;
+
+	private long maxWait = 30000;
+
+	private String validationQuery;
+
+	private long validationInterval = 30000;
+
+	private long maxIdleTime = 0;
+
+	private long maintenanceInterval = 0;
+
+	private long leakDetectionThreshold = 0;
+
+	/** Monitor for all pool state below */
+	private final Object poolMonitor = new Object();
+
+	/** Idle PooledConnections, most recently used first */
+	private final LinkedList idleConnections = new LinkedList();
+
+	/** PooledConnections currently checked out */
+	private final Set activeConnections = new HashSet();
+
+	/** Waiters for a Connection, in arrival order */
+	private final LinkedList waiters = new LinkedList();
+
+	/** Number of physical Connections, including ones being created */
+	private int totalCount = 0;
+
+	private boolean closed = false;
+
+	private long checkoutCount = 0;
+
+	private long timeoutCount = 0;
+
+	private final long[] waitTimeHistogram = new long[WAIT_TIME_BUCKET_BOUNDS.length + 1];
+
+	private Timer maintenanceTimer;
+
+
+	/**
+	 * Constructor for bean-style configuration.
+	 */
+	public PoolingDataSource() {
+	}
+
+	/**
+	 * Create a new PoolingDataSource with the given standard
+	 * DriverManager parameters.
+	 * @param driverClassName the JDBC driver class name
+	 * @param url the JDBC URL to use for accessing the DriverManager
+	 * @param username the JDBC username to use for accessing the DriverManager
+	 * @param password the JDBC password to use for accessing the DriverManager
+	 * @see java.sql.DriverManager#getConnection(String, String, String)
+	 */
+	public PoolingDataSource(String driverClassName, String url, String username, String password)
+			throws CannotGetJdbcConnectionException {
+		super(driverClassName, url, username, password);
+	}
+
+	/**
+	 * Create a new PoolingDataSource with the given standard
+	 * DriverManager parameters.
+	 * @param url the JDBC URL to use for accessing the DriverManager
+	 * @param username the JDBC username to use for accessing the DriverManager
+	 * @param password the JDBC password to use for accessing the DriverManager
+	 * @see java.sql.DriverManager#getConnection(String, String, String)
+	 */
+	public PoolingDataSource(String url, String username, String password)
+			throws CannotGetJdbcConnectionException {
+		super(url, username, password);
+	}
+
+
+	/**
+	 * Set the number of Connections to create on initialization. Default is 0.
+	 */
+	public void setInitialSize(int initialSize) {
+		this.initialSize = initialSize;
+	}
+
+	/**
+	 * Set the minimum number of idle Connections that the maintenance timer
+	 * keeps in the pool, and that idle eviction will not go below. Default is 0.
+	 * @see #setMaintenanceInterval
+	 */
+	public void setMinIdle(int minIdle) {
+		this.minIdle = minIdle;
+	}
+
+	/**
+	 * Set the maximum number of physical Connections, active plus idle.
+	 * Default is 8.
+	 */
+	public void setMaxPoolSize(int maxPoolSize) {
+		if (maxPoolSize < 1) {
+			throw new IllegalArgumentException("maxPoolSize must be at least 1");
+		}
+		this.maxPoolSize = maxPoolSize;
+	}
+
+	/**
+	 * Return the maximum number of physical Connections.
+	 */
+	public int getMaxPoolSize() {
+		return maxPoolSize;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for a Connection if the pool
+	 * is exhausted, or -1 to wait indefinitely. Default is 30000 (30 seconds).
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Set the SQL query used to validate Connections, for example "SELECT 1".
+	 * Default is none, checking <code>Connection.isClosed()</code> only.
+	 */
+	public void setValidationQuery(String validationQuery) {
+		this.validationQuery = validationQuery;
+	}
+
+	/**
+	 * Set the idle time in milliseconds after which a Connection is validated
+	 * before being handed out again. Default is 30000 (30 seconds).
+	 * <p>Connections that have been used more recently are handed out without
+	 * validation, sparing the database round trip on every checkout.
+	 */
+	public void setValidationInterval(long validationInterval) {
+		this.validationInterval = validationInterval;
+	}
+
+	/**
+	 * Set the idle time in milliseconds after which the maintenance timer
+	 * closes Connections beyond "minIdle". Default is 0: never evict.
+	 * <p>The idle time counts from the last return of a Connection to the pool:
+	 * validation by the maintenance timer does not reset it.
+	 * @see #setMaintenanceInterval
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/**
+	 * Set the interval in milliseconds for the background maintenance timer,
+	 * which validates and evicts idle Connections, tops up "minIdle" and
+	 * performs leak detection. Default is 0: no background maintenance.
+	 * @see #setMinIdle
+	 * @see #setMaxIdleTime
+	 * @see #setLeakDetectionThreshold
+	 */
+	public void setMaintenanceInterval(long maintenanceInterval) {
+		this.maintenanceInterval = maintenanceInterval;
+	}
+
+	/**
+	 * Set the checkout time in milliseconds after which a Connection that has
+	 * not been returned is logged as potential leak, along with the stack trace
+	 * of its checkout. Default is 0: no leak detection.
+	 * <p>Requires a "maintenanceInterval" to be set. Note that capturing the
+	 * stack trace on every checkout has a cost.
+	 * @see #setMaintenanceInterval
+	 */
+	public void setLeakDetectionThreshold(long leakDetectionThreshold) {
+		this.leakDetectionThreshold = leakDetectionThreshold;
+	}
+
+
+	/**
+	 * Create the initial Connections and start the maintenance timer, if any.
+	 */
+	public void afterPropertiesSet() throws SQLException {
+		for (int i = 0; i < this.initialSize; i++) {
+			PooledConnection pooledCon = createIfPossible();
+			if (pooledCon == null) {
+				break;
+			}
+			returnConnection(pooledCon);
+		}
+		if (this.maintenanceInterval > 0) {
+			this.maintenanceTimer = new Timer(true);
+			this.maintenanceTimer.schedule(
+					new MaintenanceTask(), this.maintenanceInterval, this.maintenanceInterval);
+		}
+	}
+
+	/**
+	 * Close all idle Connections and stop the maintenance timer.
+	 * Active Connections get closed when returned.
+	 * <p>As this bean implements DisposableBean, a bean factory will
+	 * automatically invoke this on destruction of its cached singletons.
+	 */
+	public void destroy() {
+		List toClose = null;
+		synchronized (this.poolMonitor) {
+			this.closed = true;
+			toClose = new ArrayList(this.idleConnections);
+			this.idleConnections.clear();
+			this.totalCount -= toClose.size();
+			for (Iterator it = this.waiters.iterator(); it.hasNext();) {
+				Waiter waiter = (Waiter) it.next();
+				synchronized (waiter) {
+					waiter.wakeUp();
+				}
+			}
+			this.waiters.clear();
+		}
+		if (this.maintenanceTimer != null) {
+			this.maintenanceTimer.cancel();
+		}
+		for (Iterator it = toClose.iterator(); it.hasNext();) {
+			closePhysicalConnection((PooledConnection) it.next());
+		}
+	}
+
+
+	/**
+	 * Pooled Connection handles should always be closed,
+	 * which returns the underlying Connection to the pool.
+	 */
+	public boolean shouldClose(Connection con) {
+		return true;
+	}
+
+	public Connection getConnection() throws SQLException {
+		return getPooledConnection().createHandle();
+	}
+
+	/**
+	 * Specifying a custom username and password doesn't make sense
+	 * with a pool of Connections for the default user. Returns a pooled
+	 * Connection if given the same username and password, though.
+	 */
+	public Connection getConnection(String username, String password) throws SQLException {
+		if (ObjectUtils.nullSafeEquals(username, getUsername()) &&
+				ObjectUtils.nullSafeEquals(password, getPassword())) {
+			return getConnection();
+		}
+		else {
+			throw new SQLException("PoolingDataSource does not support custom username and password");
+		}
+	}
+
+	/**
+	 * Check out a valid PooledConnection: an idle one if available, a new one
+	 * if the pool has not reached its maximum size, else one returned by
+	 * another thread while waiting.
+	 */
+	private PooledConnection getPooledConnection() throws SQLException {
+		long startTime = System.currentTimeMillis();
+		while (true) {
+			PooledConnection pooledCon = null;
+			boolean create = false;
+			Waiter waiter = null;
+			synchronized (this.poolMonitor) {
+				if (this.closed) {
+					throw new SQLException("PoolingDataSource has been closed");
+				}
+				if (!this.idleConnections.isEmpty()) {
+					pooledCon = (PooledConnection) this.idleConnections.removeFirst();
+					this.activeConnections.add(pooledCon);
+				}
+				else if (this.totalCount < this.maxPoolSize) {
+					this.totalCount++;
+					create = true;
+				}
+				else {
+					waiter = new Waiter();
+					this.waiters.addLast(waiter);
+				}
+			}
+
+			if (waiter != null) {
+				awaitHandoff(waiter, startTime);
+				pooledCon = waiter.pooledConnection;
+				create = waiter.createPermit;
+			}
+
+			if (create) {
+				pooledCon = createPhysicalConnection();
+				synchronized (this.poolMonitor) {
+					this.activeConnections.add(pooledCon);
+				}
+			}
+			else if (!isValid(pooledCon, this.validationInterval)) {
+				discardConnection(pooledCon);
+				continue;
+			}
+
+			recordCheckout(pooledCon, System.currentTimeMillis() - startTime);
+			return pooledCon;
+		}
+	}
+
+	/**
+	 * Wait until the given Waiter has been handed a Connection or a permit
+	 * to create one, or until "maxWait" has elapsed.
+	 */
+	private void awaitHandoff(Waiter waiter, long startTime) throws SQLException {
+		boolean interrupted = false;
+		synchronized (waiter) {
+			while (!waiter.isServed() && !waiter.isWokenUp()) {
+				long waitTime = 0;
+				if (this.maxWait >= 0) {
+					waitTime = startTime + this.maxWait - System.currentTimeMillis();
+					if (waitTime <= 0) {
+						break;
+					}
+				}
+				try {
+					waiter.wait(waitTime);
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+					break;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+		synchronized (this.poolMonitor) {
+			if (!this.waiters.remove(waiter)) {
+				// Served after we stopped waiting: accept the handoff.
+				if (waiter.isServed()) {
+					return;
+				}
+				throw new SQLException("PoolingDataSource has been closed");
+			}
+			this.timeoutCount++;
+		}
+		if (interrupted) {
+			throw new SQLException("Interrupted while waiting for JDBC Connection");
+		}
+		throw new SQLException("Timeout waiting for JDBC Connection after " + this.maxWait +
+				" ms: all " + this.maxPoolSize + " Connections in use");
+	}
+
+	private void recordCheckout(PooledConnection pooledCon, long waitTime) {
+		int bucket = 0;
+		while (bucket < WAIT_TIME_BUCKET_BOUNDS.length && waitTime >= WAIT_TIME_BUCKET_BOUNDS[bucket]) {
+			bucket++;
+		}
+		synchronized (this.poolMonitor) {
+			pooledCon.checkedOut(this.leakDetectionThreshold > 0);
+			this.checkoutCount++;
+			this.waitTimeHistogram[bucket]++;
+		}
+	}
+
+	/**
+	 * Return the given PooledConnection to the pool, handing it to the
+	 * longest-waiting caller if there is one.
+	 */
+	private void returnConnection(PooledConnection pooledCon) {
+		returnConnection(pooledCon, true);
+	}
+
+	/**
+	 * Return the given PooledConnection to the pool, handing it to the
+	 * longest-waiting caller if there is one.
+	 * @param pooledCon the PooledConnection to return
+	 * @param used whether the Connection has been used, as opposed to just
+	 * checked by the maintenance timer: only a used Connection starts a new
+	 * idle period, and goes to the front of the idle list
+	 */
+	private void returnConnection(PooledConnection pooledCon, boolean used) {
+		boolean close = false;
+		synchronized (this.poolMonitor) {
+			this.activeConnections.remove(pooledCon);
+			if (used) {
+				pooledCon.returned();
+			}
+			if (this.closed) {
+				this.totalCount--;
+				close = true;
+			}
+			else if (!this.waiters.isEmpty()) {
+				Waiter waiter = (Waiter) this.waiters.removeFirst();
+				synchronized (waiter) {
+					waiter.handOff(pooledCon);
+				}
+				this.activeConnections.add(pooledCon);
+			}
+			else if (used) {
+				this.idleConnections.addFirst(pooledCon);
+			}
+			else {
+				this.idleConnections.addLast(pooledCon);
+			}
+		}
+		if (close) {
+			closePhysicalConnection(pooledCon);
+		}
+	}
+
+	/**
+	 * Close the given PooledConnection and remove it from the pool. Its slot
+	 * is passed on to the longest-waiting caller, as permit to create a new one.
+	 * <p>The slot is only released once the physical Connection has been closed,
+	 * so that its replacement never exceeds "maxPoolSize" open Connections.
+	 */
+	private void discardConnection(PooledConnection pooledCon) {
+		closePhysicalConnection(pooledCon);
+		synchronized (this.poolMonitor) {
+			this.activeConnections.remove(pooledCon);
+			releaseSlot();
+		}
+	}
+
+	/**
+	 * Release a physical Connection slot. To be called with the pool monitor held.
+	 */
+	private void releaseSlot() {
+		if (!this.waiters.isEmpty() && !this.closed) {
+			Waiter waiter = (Waiter) this.waiters.removeFirst();
+			synchronized (waiter) {
+				waiter.handOffCreatePermit();
+			}
+		}
+		else {
+			this.totalCount--;
+		}
+	}
+
+	/**
+	 * Create a new physical Connection if the pool has not reached its maximum size.
+	 * @return the new PooledConnection, or <code>null</code> if the pool is full
+	 */
+	private PooledConnection createIfPossible() throws SQLException {
+		synchronized (this.poolMonitor) {
+			if (this.closed || this.totalCount >= this.maxPoolSize) {
+				return null;
+			}
+			this.totalCount++;
+		}
+		PooledConnection pooledCon = createPhysicalConnection();
+		synchronized (this.poolMonitor) {
+			this.activeConnections.add(pooledCon);
+		}
+		return pooledCon;
+	}
+
+	/**
+	 * Create a new physical Connection for a slot that has already been counted.
+	 * Releases the slot again if the Connection could not be obtained.
+	 */
+	private PooledConnection createPhysicalConnection() throws SQLException {
+		try {
+			return new PooledConnection(getConnectionFromDriverManager());
+		}
+		catch (SQLException ex) {
+			synchronized (this.poolMonitor) {
+				releaseSlot();
+			}
+			throw ex;
+		}
+		catch (RuntimeException ex) {
+			synchronized (this.poolMonitor) {
+				releaseSlot();
+			}
+			throw ex;
+		}
+	}
+
+	private void closePhysicalConnection(PooledConnection pooledCon) {
+		try {
+			pooledCon.target.close();
+		}
+		catch (Throwable ex) {
+			logger.debug("Could not close pooled JDBC Connection", ex);
+		}
+	}
+
+	/**
+	 * Validate the given Connection if it has not been used or validated
+	 * for longer than the given time.
+	 */
+	private boolean isValid(PooledConnection pooledCon, long maxUnvalidatedIdleTime) {
+		if (System.currentTimeMillis() - pooledCon.lastValidated <= maxUnvalidatedIdleTime) {
+			return true;
+		}
+		try {
+			if (pooledCon.target.isClosed()) {
+				return false;
+			}
+			if (this.validationQuery != null) {
+				Statement stmt = pooledCon.target.createStatement();
+				try {
+					stmt.execute(this.validationQuery);
+				}
+				finally {
+					stmt.close();
+				}
+			}
+			pooledCon.lastValidated = System.currentTimeMillis();
+			return true;
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Discarding invalid pooled JDBC Connection", ex);
+			}
+			return false;
+		}
+	}
+
+
+	/**
+	 * Return the number of Connections currently checked out.
+	 */
+	public int getActiveCount() {
+		synchronized (this.poolMonitor) {
+			return this.activeConnections.size();
+		}
+	}
+
+	/**
+	 * Return the number of idle Connections in the pool.
+	 */
+	public int getIdleCount() {
+		synchronized (this.poolMonitor) {
+			return this.idleConnections.size();
+		}
+	}
+
+	/**
+	 * Return the number of callers currently waiting for a Connection.
+	 */
+	public int getWaitingCount() {
+		synchronized (this.poolMonitor) {
+			return this.waiters.size();
+		}
+	}
+
+	/**
+	 * Return the total number of successful checkouts.
+	 */
+	public long getCheckoutCount() {
+		synchronized (this.poolMonitor) {
+			return this.checkoutCount;
+		}
+	}
+
+	/**
+	 * Return the number of checkouts that timed out waiting for a Connection.
+	 */
+	public long getTimeoutCount() {
+		synchronized (this.poolMonitor) {
+			return this.timeoutCount;
+		}
+	}
+
+	/**
+	 * Return a snapshot of the checkout wait time histogram: the number of
+	 * successful checkouts per wait time bucket, as defined by
+	 * WAIT_TIME_BUCKET_BOUNDS, plus a last bucket for all longer waits.
+	 * @see #WAIT_TIME_BUCKET_BOUNDS
+	 */
+	public long[] getWaitTimeHistogram() {
+		synchronized (this.poolMonitor) {
+			long[] histogram = new long[this.waitTimeHistogram.length];
+			System.arraycopy(this.waitTimeHistogram, 0, histogram, 0, histogram.length);
+			return histogram;
+		}
+	}
+
+
+	/**
+	 * Validate and evict idle Connections, top up the minimum number
+	 * of idle Connections, and log potentially leaked Connections.
+	 */
+	protected void performMaintenance() {
+		long now = System.currentTimeMillis();
+		List toCheck = new LinkedList();
+		List toEvict = new LinkedList();
+		synchronized (this.poolMonitor) {
+			int evictable = this.idleConnections.size() - this.minIdle;
+			for (Iterator it = this.idleConnections.iterator(); it.hasNext();) {
+				PooledConnection pooledCon = (PooledConnection) it.next();
+				if (this.maxIdleTime > 0 && evictable > 0 && now - pooledCon.idleSince > this.maxIdleTime) {
+					it.remove();
+					toEvict.add(pooledCon);
+					evictable--;
+				}
+				else if (now - pooledCon.lastValidated > this.validationInterval) {
+					it.remove();
+					toCheck.add(pooledCon);
+				}
+			}
+			// Taken out of the idle list: count them as active while checking.
+			this.activeConnections.addAll(toEvict);
+			this.activeConnections.addAll(toCheck);
+		}
+
+		for (Iterator it = toEvict.iterator(); it.hasNext();) {
+			discardConnection((PooledConnection) it.next());
+		}
+		for (Iterator it = toCheck.iterator(); it.hasNext();) {
+			PooledConnection pooledCon = (PooledConnection) it.next();
+			if (isValid(pooledCon, 0)) {
+				returnConnection(pooledCon, false);
+			}
+			else {
+				discardConnection(pooledCon);
+			}
+		}
+
+		try {
+			while (getIdleCount() < this.minIdle) {
+				PooledConnection pooledCon = createIfPossible();
+				if (pooledCon == null) {
+					break;
+				}
+				returnConnection(pooledCon);
+			}
+		}
+		catch (SQLException ex) {
+			logger.warn("Could not create JDBC Connection for minimum idle pool size", ex);
+		}
+
+		if (this.leakDetectionThreshold > 0) {
+			List leaked = new LinkedList();
+			synchronized (this.poolMonitor) {
+				for (Iterator it = this.activeConnections.iterator(); it.hasNext();) {
+					PooledConnection pooledCon = (PooledConnection) it.next();
+					if (!pooledCon.leakReported && pooledCon.checkoutLocation != null &&
+							now - pooledCon.checkoutTime > this.leakDetectionThreshold) {
+						pooledCon.leakReported = true;
+						leaked.add(pooledCon);
+					}
+				}
+			}
+			for (Iterator it = leaked.iterator(); it.hasNext();) {
+				PooledConnection pooledCon = (PooledConnection) it.next();
+				logger.warn("JDBC Connection checked out for more than " + this.leakDetectionThreshold +
+						" ms and not returned yet: potential Connection leak", pooledCon.checkoutLocation);
+			}
+		}
+	}
+
+
+	/**
+	 * Holder for a physical Connection managed by the pool.
+	 */
+	private class PooledConnection {
+
+		private final Connection target;
+
+		/** Time of the last return to the pool: start of the current idle period */
+		private long idleSince;
+
+		/** Time of the last return to the pool or successful validation */
+		private long lastValidated;
+
+		private long checkoutTime;
+
+		private Throwable checkoutLocation;
+
+		private boolean leakReported;
+
+		public PooledConnection(Connection target) {
+			this.target = target;
+			this.idleSince = System.currentTimeMillis();
+			this.lastValidated = this.idleSince;
+		}
+
+		public void checkedOut(boolean recordLocation) {
+			this.checkoutTime = System.currentTimeMillis();
+			this.checkoutLocation = (recordLocation ? new Throwable("JDBC Connection checked out here") : null);
+			this.leakReported = false;
+		}
+
+		public void returned() {
+			this.idleSince = System.currentTimeMillis();
+			this.lastValidated = this.idleSince;
+			this.checkoutLocation = null;
+		}
+
+		public Connection createHandle() {
+			return (Connection) Proxy.newProxyInstance(
+					ConnectionProxy.class.getClassLoader(),
+					new Class[] {ConnectionProxy.class},
+					new PooledConnectionInvocationHandler(this));
+		}
+
+		/**
+		 * Reset the Connection state for the next user and return it to the pool.
+		 */
+		public void release() {
+			try {
+				if (!this.target.getAutoCommit()) {
+					this.target.rollback();
+					this.target.setAutoCommit(true);
+				}
+				if (this.target.isReadOnly()) {
+					this.target.setReadOnly(false);
+				}
+				this.target.clearWarnings();
+			}
+			catch (Throwable ex) {
+				logger.debug("Could not reset pooled JDBC Connection - discarding it", ex);
+				discardConnection(this);
+				return;
+			}
+			returnConnection(this);
+		}
+	}
+
+
+	/**
+	 * Invocation handler for a Connection handle, returning the
+	 * underlying Connection to the pool on close.
+	 */
+	private static class PooledConnectionInvocationHandler implements InvocationHandler {
+
+		private static final String GET_TARGET_CONNECTION_METHOD_NAME = "getTargetConnection";
+
+		private PooledConnection pooledConnection;
+
+		public PooledConnectionInvocationHandler(PooledConnection pooledConnection) {
+			this.pooledConnection = pooledConnection;
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			if (method.getName().equals("equals")) {
+				// Only consider equal when proxies are identical.
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (method.getName().equals("hashCode")) {
+				// Use hashCode of Connection proxy.
+				return new Integer(hashCode());
+			}
+			else if (method.getName().equals("isClosed")) {
+				return (this.pooledConnection == null ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (method.getName().equals("close")) {
+				// Return the Connection to the pool, only once per handle.
+				PooledConnection pooledConnectionToRelease = null;
+				synchronized (this) {
+					pooledConnectionToRelease = this.pooledConnection;
+					this.pooledConnection = null;
+				}
+				if (pooledConnectionToRelease != null) {
+					pooledConnectionToRelease.release();
+				}
+				return null;
+			}
+
+			PooledConnection pooledConnection = this.pooledConnection;
+			if (pooledConnection == null) {
+				throw new SQLException("Connection handle already closed");
+			}
+			if (method.getName().equals(GET_TARGET_CONNECTION_METHOD_NAME)) {
+				return pooledConnection.target;
+			}
+
+			// Invoke method on target connection.
+			try {
+				return method.invoke(pooledConnection.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+		}
+	}
+
+
+	/**
+	 * Caller waiting for a Connection. Used as monitor for its own handoff.
+	 */
+	private static class Waiter {
+
+		private PooledConnection pooledConnection;
+
+		private boolean createPermit;
+
+		private boolean wokenUp;
+
+		public void handOff(PooledConnection pooledConnection) {
+			this.pooledConnection = pooledConnection;
+			notify();
+		}
+
+		public void handOffCreatePermit() {
+			this.createPermit = true;
+			notify();
+		}
+
+		public void wakeUp() {
+			this.wokenUp = true;
+			notify();
+		}
+
+		public boolean isServed() {
+			return (this.pooledConnection != null || this.createPermit);
+		}
+
+		public boolean isWokenUp() {
+			return this.wokenUp;
+		}
+	}
+
+
+	/**
+	 * TimerTask that triggers pool maintenance.
+	 */
+	private class MaintenanceTask extends TimerTask {
+
+		public void run() {
+			try {
+				performMaintenance();
+			}
+			catch (Throwable ex) {
+				logger.warn("Pool maintenance failed", ex);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.CollectionFactory;
+
+/**
+ * Cache of idle PreparedStatements for a single JDBC Connection,
+ * keyed by an arbitrary key that identifies the SQL statement and
+ * the options it has been prepared with.
+ *
+ * <p>A cached statement is removed from the cache while in use, so it can
+ * never be used twice at the same time. When the cache is full, the least
+ * recently returned statement is closed. Statements are reset on return:
+ * parameters, warnings, maximum rows, fetch size and query timeout are
+ * cleared.
+ *
+ * <p>Lookups can be counted for a PreparedStatementCacheStatistics object,
+ * for example of the JdbcTemplate performing them. The counts are kept
+ * in the cache and only added to the statistics object when the cache
+ * gets closed, so that lookups never need to acquire a shared lock.
+ *
+ * <p>Not thread-safe, just like the Connection it belongs to. Does not
+ * rely on the JDBC driver or connection pool to cache statements.
+ *
+ * <p>Note: This is an SPI class, not intended to be used by applications.
+ *
+ * @since 1.2
+ * @see ConnectionHolder#getPreparedStatementCache
+ * @see org.springframework.jdbc.core.JdbcTemplate#setStatementCacheSize
+ */
+public class PreparedStatementCache {
+
+	private static final Log logger = LogFactory.getLog(PreparedStatementCache.class);
+
+	private final int maxSize;
+
+	/** Idle statements by key, in the order they were returned */
+	private final Map statements;
+
+	private long hitCount = 0;
+
+	private long missCount = 0;
+
+	/** Counts to add on close: PreparedStatementCacheStatistics --> long[] {hits, misses} */
+	private final Map pendingStatistics = new HashMap(4);
+
+
+	/**
+	 * Create a new PreparedStatementCache.
+	 * @param maxSize the maximum number of idle statements to keep
+	 */
+	public PreparedStatementCache(int maxSize) {
+		this.maxSize = maxSize;
+		this.statements = CollectionFactory.createLinkedMapIfPossible(maxSize);
+	}
+
+	/**
+	 * Return the maximum number of idle statements to keep.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Take the cached statement for the given key out of the cache.
+	 * @param key the key that identifies the statement
+	 * @return the statement, or <code>null</code> if none is cached
+	 */
+	public PreparedStatement getStatement(Object key) {
+		PreparedStatement ps = (PreparedStatement) this.statements.remove(key);
+		if (ps != null) {
+			this.hitCount++;
+		}
+		else {
+			this.missCount++;
+		}
+		return ps;
+	}
+
+	/**
+	 * Take the cached statement for the given key out of the cache, counting
+	 * the lookup for the given statistics object as well. The count will be
+	 * added to the statistics object when this cache gets closed.
+	 * @param key the key that identifies the statement
+	 * @param statistics the statistics to count the lookup for
+	 * @return the statement, or <code>null</code> if none is cached
+	 * @see #close
+	 */
+	public PreparedStatement getStatement(Object key, PreparedStatementCacheStatistics statistics) {
+		PreparedStatement ps = getStatement(key);
+		long[] counts = (long[]) this.pendingStatistics.get(statistics);
+		if (counts == null) {
+			counts = new long[2];
+			this.pendingStatistics.put(statistics, counts);
+		}
+		counts[ps != null ? 0 : 1]++;
+		return ps;
+	}
+
+	/**
+	 * Return the given statement to the cache, for reuse with the given key.
+	 * The statement will be closed instead if it could not be reset,
+	 * or if another statement is already cached for the key.
+	 * @param key the key that identifies the statement
+	 * @param ps the statement to cache
+	 */
+	public void returnStatement(Object key, PreparedStatement ps) {
+		if (this.statements.containsKey(key)) {
+			closeStatement(ps);
+			return;
+		}
+		try {
+			ps.clearParameters();
+			ps.clearWarnings();
+			ps.setMaxRows(0);
+			ps.setFetchSize(0);
+			ps.setQueryTimeout(0);
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not reset JDBC PreparedStatement - closing it", ex);
+			closeStatement(ps);
+			return;
+		}
+		if (this.statements.size() >= this.maxSize) {
+			Iterator it = this.statements.values().iterator();
+			PreparedStatement eldest = (PreparedStatement) it.next();
+			it.remove();
+			closeStatement(eldest);
+		}
+		this.statements.put(key, ps);
+	}
+
+	/**
+	 * Close all cached statements, and add the lookup counts
+	 * to the statistics objects that they have been counted for.
+	 */
+	public void close() {
+		for (Iterator it = this.statements.values().iterator(); it.hasNext();) {
+			closeStatement((PreparedStatement) it.next());
+		}
+		this.statements.clear();
+		for (Iterator it = this.pendingStatistics.entrySet().iterator(); it.hasNext();) {
+			Map.Entry entry = (Map.Entry) it.next();
+			long[] counts = (long[]) entry.getValue();
+			((PreparedStatementCacheStatistics) entry.getKey()).addCounts(counts[0], counts[1]);
+		}
+		this.pendingStatistics.clear();
+	}
+
+	private void closeStatement(PreparedStatement ps) {
+		try {
+			ps.close();
+		}
+		catch (SQLException ex) {
+			logger.debug("Could not close cached JDBC PreparedStatement", ex);
+		}
+		catch (RuntimeException ex) {
+			logger.debug("Unexpected exception on closing cached JDBC PreparedStatement", ex);
+		}
+	}
+
+	/**
+	 * Return the number of statements currently cached.
+	 */
+	public int size() {
+		return this.statements.size();
+	}
+
+	/**
+	 * Return the number of lookups that found a cached statement.
+	 */
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that did not find a cached statement.
+	 */
+	public long getMissCount() {
+		return missCount;
+	}
+
+}
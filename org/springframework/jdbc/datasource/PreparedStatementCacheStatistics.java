@@ -0,0 +1,86 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+/**
+ * Aggregated hit and miss counts of PreparedStatementCaches, for example
+ * of all statement cache lookups by one JdbcTemplate.
+ *
+ * <p>The caches count their lookups per statistics object without any
+ * locking, and only fold the counts into the statistics object when they
+ * get closed, i.e. once the Connection is released at the end of the
+ * transaction. Lookups on Connections that are still in use are thus not
+ * included yet.
+ *
+ * <p>Thread-safe: the counts of multiple caches can be added concurrently.
+ *
+ * @since 1.2
+ * @see PreparedStatementCache#getStatement(Object, PreparedStatementCacheStatistics)
+ * @see org.springframework.jdbc.core.JdbcTemplate#getStatementCacheStatistics
+ */
+public class PreparedStatementCacheStatistics {
+
+	private long hitCount = 0;
+
+	private long missCount = 0;
+
+
+	/**
+	 * Add the given counts of a closed PreparedStatementCache.
+	 * @param hits the number of lookups that found a cached statement
+	 * @param misses the number of lookups that did not find a cached statement
+	 */
+	public synchronized void addCounts(long hits, long misses) {
+		this.hitCount += hits;
+		this.missCount += misses;
+	}
+
+	/**
+	 * Return the number of lookups that found a cached statement.
+	 */
+	public synchronized long getHitCount() {
+		return this.hitCount;
+	}
+
+	/**
+	 * Return the number of lookups that did not find a cached statement.
+	 */
+	public synchronized long getMissCount() {
+		return this.missCount;
+	}
+
+	/**
+	 * Return the ratio of hits to lookups, between 0.0 and 1.0.
+	 */
+	public synchronized double getHitRate() {
+		long lookups = this.hitCount + this.missCount;
+		return (lookups > 0 ? (double) this.hitCount / lookups : 0.0);
+	}
+
+	/**
+	 * Reset the counts to 0.
+	 */
+	public synchronized void reset() {
+		this.hitCount = 0;
+		this.missCount = 0;
+	}
+
+	public String toString() {
+		return "PreparedStatementCacheStatistics: " + getHitCount() + " hits, " + getMissCount() + " misses";
+	}
+
+}
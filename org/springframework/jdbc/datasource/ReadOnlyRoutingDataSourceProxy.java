@@ -0,0 +1,231 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * LazyConnectionDataSourceProxy that routes read-only Connections to a set
+ * of read-only DataSources, typically replicas of the target database.
+ * All other Connections go to the target DataSource, i.e. the master.
+ *
+ * <p>A Connection counts as read-only if it has been marked read-only via
+ * <code>setReadOnly(true)</code>, like DataSourceTransactionManager does for
+ * read-only transactions, or if the current transaction is marked read-only
+ * in TransactionSynchronizationManager. As actual Connections are fetched
+ * lazily on first creation of a Statement, both settings are known by then.
+ *
+ * <p>Read-only DataSources are chosen in weighted round-robin order, as
+ * specified via the "readOnlyWeights" property. A read-only DataSource that
+ * fails to return a Connection is ejected for the "ejectionInterval", with
+ * the next read-only DataSource tried instead. If none is available, the
+ * Connection is fetched from the target DataSource.
+ *
+ * <p>Connections requested with a specific username and password always go
+ * to the target DataSource.
+ *
+ * @since 1.2
+ * @see #setReadOnlyDataSources
+ * @see #setReadOnlyWeights
+ * @see #setEjectionInterval
+ * @see org.springframework.transaction.support.TransactionSynchronizationManager#isCurrentTransactionReadOnly
+ */
+public class ReadOnlyRoutingDataSourceProxy extends LazyConnectionDataSourceProxy {
+
+	private static final Log logger = LogFactory.getLog(ReadOnlyRoutingDataSourceProxy.class);
+
+	private DataSource[] readOnlyDataSources = new DataSource[0];
+
+	private int[] readOnlyWeights;
+
+	private long ejectionInterval = 30000;
+
+	/** Indexes of the read-only DataSources, interleaved according to their weights */
+	private int[] schedule = new int[0];
+
+	/** Position in the schedule, guarded by the schedule array */
+	private int schedulePosition = 0;
+
+	/** Time until which each read-only DataSource is ejected, guarded by this array */
+	private long[] ejectedUntil = new long[0];
+
+
+	/**
+	 * Create a new ReadOnlyRoutingDataSourceProxy.
+	 * @see #setTargetDataSource
+	 * @see #setReadOnlyDataSources
+	 */
+	public ReadOnlyRoutingDataSourceProxy() {
+	}
+
+	/**
+	 * Create a new ReadOnlyRoutingDataSourceProxy.
+	 * @param targetDataSource the target DataSource for read-write Connections
+	 * @param readOnlyDataSources the DataSources for read-only Connections
+	 */
+	public ReadOnlyRoutingDataSourceProxy(DataSource targetDataSource, DataSource[] readOnlyDataSources) {
+		setTargetDataSource(targetDataSource);
+		setReadOnlyDataSources(readOnlyDataSources);
+		afterPropertiesSet();
+	}
+
+
+	/**
+	 * Set the DataSources to fetch read-only Connections from.
+	 */
+	public void setReadOnlyDataSources(DataSource[] readOnlyDataSources) {
+		this.readOnlyDataSources = readOnlyDataSources;
+	}
+
+	/**
+	 * Set the relative weights of the read-only DataSources, in the order of
+	 * the "readOnlyDataSources" property. Default is equal weights.
+	 * <p>For example, weights of 3 and 1 send three out of four read-only
+	 * Connections to the first DataSource.
+	 */
+	public void setReadOnlyWeights(int[] readOnlyWeights) {
+		this.readOnlyWeights = readOnlyWeights;
+	}
+
+	/**
+	 * Set the time in milliseconds that a read-only DataSource is skipped
+	 * after it failed to return a Connection. Default is 30000 (30 seconds).
+	 */
+	public void setEjectionInterval(long ejectionInterval) {
+		this.ejectionInterval = ejectionInterval;
+	}
+
+	public void afterPropertiesSet() {
+		super.afterPropertiesSet();
+		if (this.readOnlyDataSources == null) {
+			throw new IllegalArgumentException("readOnlyDataSources must not be null");
+		}
+		if (this.readOnlyWeights != null && this.readOnlyWeights.length != this.readOnlyDataSources.length) {
+			throw new IllegalArgumentException("readOnlyWeights must specify one weight per read-only DataSource");
+		}
+		int[] weights = new int[this.readOnlyDataSources.length];
+		int totalWeight = 0;
+		for (int i = 0; i < weights.length; i++) {
+			weights[i] = (this.readOnlyWeights != null ? this.readOnlyWeights[i] : 1);
+			if (weights[i] < 0) {
+				throw new IllegalArgumentException("readOnlyWeights must not be negative");
+			}
+			totalWeight += weights[i];
+		}
+
+		// Smooth weighted round-robin: interleave DataSources rather than
+		// sending a run of Connections to the heaviest DataSource first.
+		int[] schedule = new int[totalWeight];
+		int[] current = new int[weights.length];
+		for (int slot = 0; slot < totalWeight; slot++) {
+			int best = -1;
+			for (int i = 0; i < weights.length; i++) {
+				current[i] += weights[i];
+				if (best == -1 || current[i] > current[best]) {
+					best = i;
+				}
+			}
+			current[best] -= totalWeight;
+			schedule[slot] = best;
+		}
+		this.schedule = schedule;
+		this.ejectedUntil = new long[this.readOnlyDataSources.length];
+	}
+
+
+	/**
+	 * Return whether the read-only DataSource at the given index
+	 * is currently considered available, i.e. not ejected.
+	 * @param index the index in the "readOnlyDataSources" array
+	 */
+	public boolean isReadOnlyDataSourceAvailable(int index) {
+		synchronized (this.ejectedUntil) {
+			return (this.ejectedUntil[index] <= System.currentTimeMillis());
+		}
+	}
+
+	/**
+	 * Route read-only Connections to the read-only DataSources,
+	 * falling back to the target DataSource if none is available.
+	 * @see #isReadOnly
+	 */
+	protected Connection doGetTargetConnection(String username, String password, boolean readOnly)
+			throws SQLException {
+
+		if (username == null && this.schedule.length > 0 && isReadOnly(readOnly)) {
+			int start = nextSchedulePosition();
+			int lastTried = -1;
+			for (int i = 0; i < this.schedule.length; i++) {
+				int index = this.schedule[(start + i) % this.schedule.length];
+				if (index == lastTried || !isReadOnlyDataSourceAvailable(index)) {
+					continue;
+				}
+				lastTried = index;
+				try {
+					Connection con = this.readOnlyDataSources[index].getConnection();
+					if (logger.isDebugEnabled()) {
+						logger.debug("Routing read-only Connection to read-only DataSource " + index);
+					}
+					return con;
+				}
+				catch (SQLException ex) {
+					eject(index, ex);
+				}
+			}
+			logger.debug("No read-only DataSource available - falling back to target DataSource");
+		}
+		return super.doGetTargetConnection(username, password, readOnly);
+	}
+
+	/**
+	 * Determine whether to route the Connection to a read-only DataSource.
+	 * <p>The default implementation checks the read-only flag of the
+	 * Connection handle and of the current transaction.
+	 * @param readOnly whether the Connection handle has been marked read-only
+	 * @see org.springframework.transaction.support.TransactionSynchronizationManager#isCurrentTransactionReadOnly
+	 */
+	protected boolean isReadOnly(boolean readOnly) {
+		return (readOnly || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+	}
+
+	private int nextSchedulePosition() {
+		synchronized (this.schedule) {
+			int position = this.schedulePosition;
+			this.schedulePosition = (position + 1) % this.schedule.length;
+			return position;
+		}
+	}
+
+	private void eject(int index, SQLException ex) {
+		synchronized (this.ejectedUntil) {
+			this.ejectedUntil[index] = System.currentTimeMillis() + this.ejectionInterval;
+		}
+		if (logger.isWarnEnabled()) {
+			logger.warn("Could not get JDBC Connection from read-only DataSource " + index +
+					" - ejecting it for " + this.ejectionInterval + " ms", ex);
+		}
+	}
+
+}
@@ -26,7 +26,11 @@ import java.util.List;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.StatementCreatorUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * SqlUpdate subclass that performs batch update operations. Encapsulates
@@ -38,6 +42,21 @@ import org.springframework.jdbc.core.BatchPreparedStatementSetter;
  * a new instance of it for each use, or call <code>reset</code> before
  * reuse within the same thread.
  *
+ * <p>Queued statements are split into chunks, each executed as one JDBC batch:
+ * a chunk is closed once it reaches the batch size or, if specified, the
+ * maximum estimated number of parameter bytes. With a concurrency greater
+ * than 1, that many chunks are queued before an automatic flush, and the
+ * chunks of a flush are executed in parallel on separate Connections -
+ * but only if no Connection is bound to the current thread for the
+ * DataSource, i.e. outside of a transaction. Note that parallel chunks
+ * are committed independently of each other.
+ *
+ * <p>For a simple <code>INSERT ... VALUES (...)</code> statement, multiple
+ * rows can be sent per statement through the "rowsPerStatement" property,
+ * as an <code>INSERT ... VALUES (...), (...), ...</code> statement. This is
+ * supported by databases like MySQL, PostgreSQL and HSQLDB, and has the same
+ * effect as MySQL Connector/J's <code>rewriteBatchedStatements</code> option.
+ *
  * @author Keith Donald
  * @author Juergen Hoeller
  * @since 1.1
@@ -54,10 +73,29 @@ public class BatchSqlUpdate extends SqlUpdate {
 
 	private int batchSize = DEFAULT_BATCH_SIZE;
 
+	private long maxBatchBytes = 0;
+
+	private int concurrency = 1;
+
+	private int rowsPerStatement = 1;
+
+	/** Statement parameters of the chunk that is currently being filled */
 	private final LinkedList parameterQueue = new LinkedList();
 
+	/** Estimated size of the parameters in the current chunk */
+	private long parameterQueueBytes = 0;
+
+	/** Closed chunks that have not been executed yet: Lists of parameter arrays */
+	private final List pendingChunks = new LinkedList();
+
+	private int pendingChunkRows = 0;
+
 	private final List rowsAffected = new ArrayList();
 
+	private long flushedRowCount = 0;
+
+	private long flushTime = 0;
+
 
 	/**
 	 * Constructor to allow use as a JavaBean. DataSource and SQL
@@ -116,6 +154,46 @@ public class BatchSqlUpdate extends SqlUpdate {
 		this.batchSize = batchSize;
 	}
 
+	/**
+	 * Set the maximum estimated number of parameter bytes per batch.
+	 * A batch is executed once it reaches either the batch size or
+	 * this number of bytes. Default is 0, for no byte limit.
+	 * <p>Useful to keep batches with large parameter values, like
+	 * long texts, below a database's maximum packet size.
+	 * @see #estimateParameterSize
+	 */
+	public void setMaxBatchBytes(long maxBatchBytes) {
+		this.maxBatchBytes = maxBatchBytes;
+	}
+
+	/**
+	 * Set the number of batches to execute in parallel, each on its own
+	 * Connection. Default is 1, executing one batch at a time.
+	 * <p>Batches are only executed in parallel if no Connection is bound
+	 * to the current thread, i.e. outside of a transaction. Make sure
+	 * that the DataSource can provide that many Connections at a time.
+	 */
+	public void setConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("concurrency must be at least 1");
+		}
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Set the number of rows to insert per statement. Default is 1.
+	 * <p>A value greater than 1 requires the SQL to be an insert statement
+	 * with a single VALUES clause, like "INSERT INTO t (a, b) VALUES (?, ?)",
+	 * which will be executed as a multi-row insert statement. The rows affected
+	 * are then reported per statement rather than per row.
+	 */
+	public void setRowsPerStatement(int rowsPerStatement) {
+		if (rowsPerStatement < 1) {
+			throw new IllegalArgumentException("rowsPerStatement must be at least 1");
+		}
+		this.rowsPerStatement = rowsPerStatement;
+	}
+
 	/**
 	 * BatchSqlUpdate does not support BLOB or CLOB parameters.
 	 */
@@ -141,53 +219,336 @@ public class BatchSqlUpdate extends SqlUpdate {
 	public int update(Object[] args) throws DataAccessException {
 		validateParameters(args);
 		this.parameterQueue.add(args.clone());
+		if (this.maxBatchBytes > 0) {
+			for (int i = 0; i < args.length; i++) {
+				this.parameterQueueBytes += estimateParameterSize(args[i]);
+			}
+		}
 
-		if (this.parameterQueue.size() == this.batchSize) {
-			if (logger.isDebugEnabled()) {
-				logger.debug("Triggering auto-flush because queue reached batch size of " + this.batchSize);
+		if (this.parameterQueue.size() == this.batchSize ||
+				(this.maxBatchBytes > 0 && this.parameterQueueBytes >= this.maxBatchBytes)) {
+			closeChunk();
+			if (this.pendingChunks.size() >= this.concurrency) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Triggering auto-flush because queue reached " + this.pendingChunks.size() +
+							" batches of batch size " + this.batchSize);
+				}
+				flush();
 			}
-			flush();
 		}
 
 		return -1;
 	}
 
+	/**
+	 * Estimate the number of bytes that the given parameter value takes,
+	 * for the "maxBatchBytes" limit.
+	 * <p>The default implementation counts 2 bytes per character of a String,
+	 * the length of a byte array, and 8 bytes for any other value.
+	 * @param value the parameter value (may be <code>null</code>)
+	 * @return the estimated number of bytes
+	 * @see #setMaxBatchBytes
+	 */
+	protected long estimateParameterSize(Object value) {
+		if (value instanceof String) {
+			return ((String) value).length() * 2;
+		}
+		else if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		}
+		return 8;
+	}
+
+	/**
+	 * Move the current chunk of statement parameters to the pending chunks.
+	 */
+	private void closeChunk() {
+		if (!this.parameterQueue.isEmpty()) {
+			this.pendingChunks.add(new ArrayList(this.parameterQueue));
+			this.pendingChunkRows += this.parameterQueue.size();
+			this.parameterQueue.clear();
+			this.parameterQueueBytes = 0;
+		}
+	}
+
 	/**
 	 * Trigger any queued update operations to be added as a final batch.
+	 * <p>If a batch fails, the batches executed successfully before are still
+	 * recorded in the rows affected and the flushed row count, while the failed
+	 * batch and all batches that have not been executed remain queued: a later
+	 * <code>flush</code> call will retry them. Note that a failed batch may have
+	 * been partially applied, depending on the JDBC driver and on whether it
+	 * executed within a transaction.
 	 * @return an array of the number of rows affected by each statement
+	 * @see #getRowsAffected
+	 * @see #getFlushedRowCount
 	 */
 	public int[] flush() {
-		if (this.parameterQueue.isEmpty()) {
+		closeChunk();
+		if (this.pendingChunks.isEmpty()) {
 			return new int[0];
 		}
-		
-		int[] rowsAffected = getJdbcTemplate().batchUpdate(
-				getSql(),
-				new BatchPreparedStatementSetter() {
-					public int getBatchSize() {
-						return parameterQueue.size();
-					}
-					public void setValues(PreparedStatement ps, int index) throws SQLException {
-						Object[] params = (Object[]) parameterQueue.removeFirst();
-						newPreparedStatementSetter(params).setValues(ps);
-					}
-				});
 
-		for (int i = 0; i < rowsAffected.length; i++) {
-			this.rowsAffected.add(new Integer(rowsAffected[i]));
+		long startTime = System.currentTimeMillis();
+		ChunkExecution execution = new ChunkExecution(new ArrayList(this.pendingChunks));
+		if (this.pendingChunks.size() > 1 && this.concurrency > 1 &&
+				!TransactionSynchronizationManager.hasResource(getJdbcTemplate().getDataSource())) {
+			executeChunksInParallel(execution);
+		}
+		else {
+			if (this.pendingChunks.size() > 1 && this.concurrency > 1) {
+				logger.debug("Executing batches sequentially because of Connection bound to thread");
+			}
+			execution.run();
+		}
+		long time = System.currentTimeMillis() - startTime;
+		this.flushTime += time;
+
+		int[] rowsAffected = recordExecutedChunks(execution);
+		if (execution.failure != null) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Flush failed after " + rowsAffected.length + " statements in " + time + " ms - " +
+						this.pendingChunks.size() + " batches with " + this.pendingChunkRows + " rows remain queued");
+			}
+			if (execution.failure instanceof RuntimeException) {
+				throw (RuntimeException) execution.failure;
+			}
+			throw (Error) execution.failure;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Flushed " + execution.chunks.size() + " batches with " + rowsAffected.length +
+					" statements in " + time + " ms");
 		}
+
 		for (int i = 0; i < rowsAffected.length; i++) {
 			checkRowsAffected(rowsAffected[i]);
 		}
 		return rowsAffected;
 	}
 
+	/**
+	 * Execute the chunks of the given execution on up to "concurrency"
+	 * threads, including the current thread, each fetching its own Connection.
+	 */
+	private void executeChunksInParallel(ChunkExecution execution) {
+		int threadCount = Math.min(this.concurrency, execution.chunks.size());
+		Thread[] threads = new Thread[threadCount - 1];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(execution, getClass().getName() + "-" + (i + 1));
+			threads[i].setDaemon(true);
+			threads[i].start();
+		}
+		execution.run();
+		boolean interrupted = false;
+		for (int i = 0; i < threads.length; i++) {
+			while (threads[i].isAlive()) {
+				try {
+					threads[i].join();
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Record the results of the successfully executed chunks of the given
+	 * execution, and keep only the failed and unexecuted chunks pending.
+	 * @return the rows affected by each statement of the executed chunks,
+	 * in the order of the chunks
+	 */
+	private int[] recordExecutedChunks(ChunkExecution execution) {
+		int resultCount = 0;
+		for (int i = 0; i < execution.results.length; i++) {
+			if (execution.results[i] != null) {
+				resultCount += execution.results[i].length;
+			}
+		}
+		int[] rowsAffected = new int[resultCount];
+		int resultIndex = 0;
+		this.pendingChunks.clear();
+		this.pendingChunkRows = 0;
+		for (int i = 0; i < execution.results.length; i++) {
+			List chunk = (List) execution.chunks.get(i);
+			int[] chunkResults = execution.results[i];
+			if (chunkResults != null) {
+				System.arraycopy(chunkResults, 0, rowsAffected, resultIndex, chunkResults.length);
+				resultIndex += chunkResults.length;
+				this.flushedRowCount += chunk.size();
+			}
+			else {
+				this.pendingChunks.add(chunk);
+				this.pendingChunkRows += chunk.size();
+			}
+		}
+		for (int i = 0; i < rowsAffected.length; i++) {
+			this.rowsAffected.add(new Integer(rowsAffected[i]));
+		}
+		return rowsAffected;
+	}
+
+	/**
+	 * Execute the given chunk of statement parameters as one JDBC batch.
+	 * @param chunk List of parameter arrays
+	 * @return the rows affected by each statement
+	 */
+	private int[] executeChunk(final List chunk) {
+		if (this.rowsPerStatement <= 1) {
+			return getJdbcTemplate().batchUpdate(
+					getSql(),
+					new BatchPreparedStatementSetter() {
+						public int getBatchSize() {
+							return chunk.size();
+						}
+						public void setValues(PreparedStatement ps, int index) throws SQLException {
+							Object[] params = (Object[]) chunk.get(index);
+							newPreparedStatementSetter(params).setValues(ps);
+						}
+					});
+		}
+
+		String[] sqlParts = splitInsertSql(getSql());
+		int fullStatements = chunk.size() / this.rowsPerStatement;
+		int remainingRows = chunk.size() % this.rowsPerStatement;
+		int[] fullResults = new int[0];
+		if (fullStatements > 0) {
+			fullResults = getJdbcTemplate().batchUpdate(
+					buildMultiRowSql(sqlParts, this.rowsPerStatement),
+					new MultiRowPreparedStatementSetter(chunk, 0, fullStatements, this.rowsPerStatement));
+		}
+		if (remainingRows == 0) {
+			return fullResults;
+		}
+		int[] remainderResults = getJdbcTemplate().batchUpdate(
+				buildMultiRowSql(sqlParts, remainingRows),
+				new MultiRowPreparedStatementSetter(chunk, fullStatements * this.rowsPerStatement, 1, remainingRows));
+		int[] results = new int[fullResults.length + remainderResults.length];
+		System.arraycopy(fullResults, 0, results, 0, fullResults.length);
+		System.arraycopy(remainderResults, 0, results, fullResults.length, remainderResults.length);
+		return results;
+	}
+
+	/**
+	 * Split the given insert statement into the part before the row of values,
+	 * the row of values itself, and the part after it.
+	 */
+	private String[] splitInsertSql(String sql) {
+		int rowStart = findValuesRow(sql);
+		if (!sql.trim().toLowerCase().startsWith("insert") || rowStart == -1) {
+			throw new InvalidDataAccessApiUsageException(
+					"rowsPerStatement requires an INSERT statement with a VALUES clause: " + sql);
+		}
+		int depth = 0;
+		char quote = 0;
+		for (int i = rowStart; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			}
+			else if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			}
+			else if (c == '(') {
+				depth++;
+			}
+			else if (c == ')' && --depth == 0) {
+				return new String[] {sql.substring(0, rowStart), sql.substring(rowStart, i + 1), sql.substring(i + 1)};
+			}
+		}
+		throw new InvalidDataAccessApiUsageException("Unbalanced parentheses in VALUES clause: " + sql);
+	}
+
+	/**
+	 * Find the opening parenthesis of the row that follows the last VALUES
+	 * keyword at the top level of the given statement, that is, outside of
+	 * quotes, identifiers and parentheses. A VALUES function call such as in
+	 * MySQL's "ON DUPLICATE KEY UPDATE a = VALUES(a)" is not a VALUES clause:
+	 * only a VALUES keyword that follows the table name or column list counts.
+	 * @return the index of the parenthesis, or -1 if there is no VALUES clause
+	 * or it is not followed by a row of values
+	 */
+	private int findValuesRow(String sql) {
+		int valuesEnd = -1;
+		int depth = 0;
+		char quote = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			}
+			else if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			}
+			else if (c == '(') {
+				depth++;
+			}
+			else if (c == ')') {
+				depth--;
+			}
+			else if (depth == 0 && isValuesKeyword(sql, i)) {
+				int previous = i - 1;
+				while (previous >= 0 && Character.isWhitespace(sql.charAt(previous))) {
+					previous--;
+				}
+				if (previous >= 0 && (sql.charAt(previous) == ')' || sql.charAt(previous) == '`' ||
+						sql.charAt(previous) == '"' || isIdentifierPart(sql.charAt(previous)))) {
+					valuesEnd = i + "values".length();
+				}
+				i += "values".length() - 1;
+			}
+		}
+		if (quote != 0 || depth != 0 || valuesEnd == -1) {
+			return -1;
+		}
+		int rowStart = valuesEnd;
+		while (rowStart < sql.length() && Character.isWhitespace(sql.charAt(rowStart))) {
+			rowStart++;
+		}
+		return (rowStart < sql.length() && sql.charAt(rowStart) == '(' ? rowStart : -1);
+	}
+
+	/**
+	 * Check whether the given position starts the keyword VALUES as a whole word.
+	 */
+	private boolean isValuesKeyword(String sql, int index) {
+		return (sql.regionMatches(true, index, "values", 0, "values".length()) &&
+				(index == 0 || !isIdentifierPart(sql.charAt(index - 1))) &&
+				(index + "values".length() == sql.length() ||
+						!isIdentifierPart(sql.charAt(index + "values".length()))));
+	}
+
+	private boolean isIdentifierPart(char c) {
+		return (Character.isLetterOrDigit(c) || c == '_' || c == '$');
+	}
+
+	private String buildMultiRowSql(String[] sqlParts, int rows) {
+		StringBuffer sql = new StringBuffer(sqlParts[0].length() + (sqlParts[1].length() + 2) * rows +
+				sqlParts[2].length());
+		sql.append(sqlParts[0]);
+		for (int i = 0; i < rows; i++) {
+			if (i > 0) {
+				sql.append(", ");
+			}
+			sql.append(sqlParts[1]);
+		}
+		sql.append(sqlParts[2]);
+		return sql.toString();
+	}
+
 	/**
 	 * Return the current number of statements or statement parameters
 	 * in the queue.
 	 */
 	public int getQueueCount() {
-		return this.parameterQueue.size();
+		return this.pendingChunkRows + this.parameterQueue.size();
 	}
 
 	/**
@@ -214,13 +575,129 @@ public class BatchSqlUpdate extends SqlUpdate {
 		return result;
 	}
 
+	/**
+	 * Return the number of statement parameter rows flushed so far.
+	 * With multi-row inserts, this may differ from the execution count.
+	 * @see #setRowsPerStatement
+	 */
+	public long getFlushedRowCount() {
+		return this.flushedRowCount;
+	}
+
+	/**
+	 * Return the total time in milliseconds spent flushing so far.
+	 */
+	public long getFlushTime() {
+		return this.flushTime;
+	}
+
+	/**
+	 * Return the throughput of the flushes so far, in rows per second.
+	 */
+	public double getThroughput() {
+		return (this.flushTime > 0 ? this.flushedRowCount * 1000.0 / this.flushTime : 0.0);
+	}
+
 	/**
 	 * Reset the statement parameter queue, the rows affected cache,
-	 * and the execution count.
+	 * the execution count, and the throughput statistics.
 	 */
 	public void reset() {
 		this.parameterQueue.clear();
+		this.parameterQueueBytes = 0;
+		this.pendingChunks.clear();
+		this.pendingChunkRows = 0;
 		this.rowsAffected.clear();
+		this.flushedRowCount = 0;
+		this.flushTime = 0;
+	}
+
+
+	/**
+	 * Runnable that executes chunks until none are left or one has failed.
+	 * May be run by multiple threads at the same time. The results of chunks
+	 * that failed or have not been executed remain <code>null</code>.
+	 */
+	private class ChunkExecution implements Runnable {
+
+		private final List chunks;
+
+		private final int[][] results;
+
+		private int nextChunk = 0;
+
+		private Throwable failure;
+
+		public ChunkExecution(List chunks) {
+			this.chunks = chunks;
+			this.results = new int[chunks.size()][];
+		}
+
+		public void run() {
+			int chunkIndex;
+			while ((chunkIndex = nextChunk()) != -1) {
+				try {
+					int[] chunkResults = executeChunk((List) this.chunks.get(chunkIndex));
+					synchronized (this) {
+						this.results[chunkIndex] = chunkResults;
+					}
+				}
+				catch (Throwable ex) {
+					synchronized (this) {
+						if (this.failure == null) {
+							this.failure = ex;
+						}
+					}
+				}
+			}
+		}
+
+		private synchronized int nextChunk() {
+			if (this.failure != null || this.nextChunk >= this.chunks.size()) {
+				return -1;
+			}
+			return this.nextChunk++;
+		}
+	}
+
+
+	/**
+	 * BatchPreparedStatementSetter for multi-row insert statements,
+	 * setting the parameters of several rows per statement.
+	 */
+	private class MultiRowPreparedStatementSetter implements BatchPreparedStatementSetter {
+
+		private final List chunk;
+
+		private final int firstRow;
+
+		private final int statementCount;
+
+		private final int rowsPerStatement;
+
+		public MultiRowPreparedStatementSetter(List chunk, int firstRow, int statementCount, int rowsPerStatement) {
+			this.chunk = chunk;
+			this.firstRow = firstRow;
+			this.statementCount = statementCount;
+			this.rowsPerStatement = rowsPerStatement;
+		}
+
+		public int getBatchSize() {
+			return this.statementCount;
+		}
+
+		public void setValues(PreparedStatement ps, int index) throws SQLException {
+			List declaredParameters = getDeclaredParameters();
+			int paramIndex = 1;
+			int row = this.firstRow + index * this.rowsPerStatement;
+			for (int i = 0; i < this.rowsPerStatement; i++) {
+				Object[] params = (Object[]) this.chunk.get(row + i);
+				for (int j = 0; j < params.length; j++) {
+					SqlParameter declaredParameter = (SqlParameter) declaredParameters.get(j);
+					StatementCreatorUtils.setParameterValue(ps, paramIndex++, declaredParameter, params[j]);
+				}
+			}
+		}
 	}
 
 }
@@ -137,6 +137,18 @@ public abstract class RdbmsOperation implements InitializingBean {
 		this.jdbcTemplate.setMaxRows(maxRows);
 	}
 
+	/**
+	 * Set the number of prepared statements to cache for a Connection bound
+	 * to the thread, for example within a transaction. Statements of this
+	 * operation will then be reused for subsequent executions within the
+	 * same transaction.
+	 * <p>Default is 0, indicating not to cache statements.
+	 * @see org.springframework.jdbc.core.JdbcTemplate#setStatementCacheSize
+	 */
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.jdbcTemplate.setStatementCacheSize(statementCacheSize);
+	}
+
 	/**
 	 * Set whether to use statements that return a specific type of ResultSet.
 	 * @param resultSetType the ResultSet type
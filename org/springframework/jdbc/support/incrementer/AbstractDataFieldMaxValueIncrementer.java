@@ -18,19 +18,56 @@ package org.springframework.jdbc.support.incrementer;
 
 import javax.sql.DataSource;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
 
 /**
  * Implementation of DataFieldMaxValueIncrementer that delegates
  * to a single getNextKey template method that returns a long.
  * Uses longs for String values, padding with zeroes if required.
+ *
+ * <p>The default <code>getNextKey</code> implementation serves keys from
+ * blocks of "cacheSize" keys, allocated through the <code>allocateKeys</code>
+ * template method. Keys are handed out from the current block without any
+ * database access; only one thread at a time allocates a new block, with
+ * other threads that need a key waiting for it. Threads never wait for the
+ * database while holding the lock that guards the current block.
+ *
+ * <p>Blocks of consecutive keys are represented by their bounds only, so the
+ * cost of serving keys does not depend on the block size.
+ *
+ * <p>If a "prefetchThreshold" is specified, the next block is allocated in
+ * a background thread as soon as the current block runs low, so that callers
+ * usually don't have to wait for the database at all. The prefetch thread
+ * is started on the first prefetch and reused for subsequent prefetches,
+ * terminating after 60 seconds without any prefetch request. If a "maxCacheSize" is
+ * specified, the block size adapts to the consumption rate: it doubles if a
+ * block was used up in less than half the "targetBlockInterval", and halves
+ * (down to "cacheSize") if it took more than twice that interval.
+ *
+ * <p>Keys that have been allocated but not served when the application
+ * stops will never be served, leaving holes in the numbering.
+ *
  * @author Dmitriy Kopylenko
  * @author Juergen Hoeller
  * @author Jean-Pierre Pawlak
  */
 public abstract class AbstractDataFieldMaxValueIncrementer implements DataFieldMaxValueIncrementer, InitializingBean {
 
+	/**
+	 * Time in milliseconds that an idle prefetch thread waits for
+	 * the next prefetch request before it terminates.
+	 */
+	private static final long PREFETCH_THREAD_KEEP_ALIVE = 60000;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
 	private DataSource dataSource;
 
 	/** The name of the sequence/table containing the sequence */
@@ -39,6 +76,39 @@ public abstract class AbstractDataFieldMaxValueIncrementer implements DataFieldM
 	/** The length to which a string result should be pre-pended with zeroes */
 	protected int paddingLength = 0;
 
+	/** The number of keys buffered in a cache */
+	private int cacheSize = 1;
+
+	private int maxCacheSize = 0;
+
+	private long targetBlockInterval = 10000;
+
+	private int prefetchThreshold = 0;
+
+	/** Guards the blocks, the allocation flag and the prefetch thread */
+	private final Object blockMonitor = new Object();
+
+	/** The block that keys are currently served from */
+	private KeyBlock currentBlock;
+
+	/** The block to serve keys from once the current block is used up */
+	private KeyBlock nextBlock;
+
+	/** Whether a block is currently being allocated */
+	private boolean allocating = false;
+
+	/** The thread that allocates blocks in the background, if running */
+	private Thread prefetchThread;
+
+	/** Whether the prefetch thread has been asked to allocate the next block */
+	private boolean prefetchRequested = false;
+
+	/** The size of the next block, only accessed by the allocating thread */
+	private int blockSize = 0;
+
+	/** The time of the last block allocation, only accessed by the allocating thread */
+	private long lastAllocationTime = 0;
+
 
 	/**
 	 * Set the data source to retrieve the value from.
@@ -83,6 +153,75 @@ public abstract class AbstractDataFieldMaxValueIncrementer implements DataFieldM
 		return paddingLength;
 	}
 
+	/**
+	 * Set the number of keys to allocate at once. Default is 1.
+	 * <p>If the server or your application is stopped or crashes or a transaction
+	 * is rolled back, the unused keys will never be served. The maximum hole size
+	 * in numbering is consequently the cache size.
+	 * @see #setMaxCacheSize
+	 */
+	public void setCacheSize(int cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Return the number of keys to allocate at once.
+	 */
+	public int getCacheSize() {
+		return this.cacheSize;
+	}
+
+	/**
+	 * Set the maximum number of keys to allocate at once, adapting the block
+	 * size between "cacheSize" and this value to the consumption rate.
+	 * Default is 0, for a fixed block size of "cacheSize".
+	 * @see #setTargetBlockInterval
+	 */
+	public void setMaxCacheSize(int maxCacheSize) {
+		this.maxCacheSize = maxCacheSize;
+	}
+
+	/**
+	 * Return the maximum number of keys to allocate at once.
+	 */
+	public int getMaxCacheSize() {
+		return this.maxCacheSize;
+	}
+
+	/**
+	 * Set the time in milliseconds that a block of keys should last,
+	 * for an adaptive block size. Default is 10000 (10 seconds).
+	 * @see #setMaxCacheSize
+	 */
+	public void setTargetBlockInterval(long targetBlockInterval) {
+		this.targetBlockInterval = targetBlockInterval;
+	}
+
+	/**
+	 * Return the time in milliseconds that a block of keys should last.
+	 */
+	public long getTargetBlockInterval() {
+		return this.targetBlockInterval;
+	}
+
+	/**
+	 * Set the number of remaining keys in the current block at which to
+	 * allocate the next block in a background thread. Default is 0,
+	 * for allocating blocks on demand only.
+	 * <p>Note that a background allocation never participates in a transaction
+	 * of the caller, as it runs in a different thread.
+	 */
+	public void setPrefetchThreshold(int prefetchThreshold) {
+		this.prefetchThreshold = prefetchThreshold;
+	}
+
+	/**
+	 * Return the number of remaining keys at which to prefetch the next block.
+	 */
+	public int getPrefetchThreshold() {
+		return this.prefetchThreshold;
+	}
+
 	public void afterPropertiesSet() {
 		if (this.dataSource == null) {
 			throw new IllegalArgumentException("dataSource is required");
@@ -117,9 +256,271 @@ public abstract class AbstractDataFieldMaxValueIncrementer implements DataFieldM
 
 	/**
 	 * Determine the next key to use, as a long.
+	 * <p>The default implementation serves keys from blocks allocated via
+	 * <code>allocateKeys</code>. Subclasses need to override either this
+	 * method or <code>allocateKeys</code>.
 	 * @return the key to use as a long. It will eventually be converted later
 	 * in another format by the public concrete methods of this class.
+	 * @see #allocateKeys
 	 */
-	protected abstract long getNextKey();
+	protected long getNextKey() throws DataAccessException {
+		while (true) {
+			boolean allocateNow = false;
+			synchronized (this.blockMonitor) {
+				if (this.currentBlock != null && this.currentBlock.hasNext()) {
+					long key = this.currentBlock.next();
+					if (this.prefetchThreshold > 0 && this.nextBlock == null && !this.allocating &&
+							this.currentBlock.remaining() <= this.prefetchThreshold) {
+						this.allocating = true;
+						requestPrefetch();
+					}
+					return key;
+				}
+				else if (this.nextBlock != null) {
+					this.currentBlock = this.nextBlock;
+					this.nextBlock = null;
+					continue;
+				}
+				else if (this.allocating) {
+					try {
+						this.blockMonitor.wait();
+					}
+					catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new DataAccessResourceFailureException(
+								"Interrupted while waiting for allocation of keys for '" + getIncrementerName() + "'");
+					}
+					continue;
+				}
+				else {
+					this.allocating = true;
+					allocateNow = true;
+				}
+			}
+
+			if (allocateNow) {
+				allocateNextBlock();
+			}
+		}
+	}
+
+	/**
+	 * Ask the prefetch thread to allocate the next block, starting it if
+	 * it is not running. To be called with the block monitor held, after
+	 * setting the allocation flag.
+	 */
+	private void requestPrefetch() {
+		this.prefetchRequested = true;
+		if (this.prefetchThread == null) {
+			this.prefetchThread = new Thread(new PrefetchTask(), getClass().getName() + "-prefetch");
+			this.prefetchThread.setDaemon(true);
+			this.prefetchThread.start();
+		}
+		else {
+			this.blockMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * Allocate the next block of keys and make it available to getNextKey.
+	 * Must only be called by the thread that has set the allocation flag.
+	 */
+	private void allocateNextBlock() {
+		KeyBlock block = null;
+		try {
+			block = allocateKeys(determineBlockSize());
+			if (!block.hasNext()) {
+				throw new DataAccessResourceFailureException(
+						"No keys allocated for '" + getIncrementerName() + "'");
+			}
+		}
+		finally {
+			synchronized (this.blockMonitor) {
+				if (block != null && block.hasNext()) {
+					this.nextBlock = block;
+				}
+				this.allocating = false;
+				this.blockMonitor.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Determine the size of the next block, adapting it to the time
+	 * the previous block lasted if a maximum cache size is specified.
+	 */
+	private int determineBlockSize() {
+		long now = System.currentTimeMillis();
+		int minSize = Math.max(this.cacheSize, 1);
+		if (this.blockSize < minSize) {
+			this.blockSize = minSize;
+		}
+		else if (this.maxCacheSize > minSize) {
+			long interval = now - this.lastAllocationTime;
+			if (interval < this.targetBlockInterval / 2) {
+				this.blockSize = Math.min(this.blockSize * 2, this.maxCacheSize);
+			}
+			else if (interval > this.targetBlockInterval * 2) {
+				this.blockSize = Math.max(this.blockSize / 2, minSize);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Allocating " + this.blockSize + " keys for '" + getIncrementerName() +
+						"' after previous block lasted " + interval + " ms");
+			}
+		}
+		this.lastAllocationTime = now;
+		return this.blockSize;
+	}
+
+	/**
+	 * Allocate the given number of keys from the database.
+	 * <p>Called by the default <code>getNextKey</code> implementation,
+	 * by one thread at a time. The default implementation throws an
+	 * InvalidDataAccessApiUsageException.
+	 * @param count the number of keys to allocate
+	 * @return the allocated keys: a KeyRange for consecutive keys,
+	 * else a KeyArray with the keys in the order to serve them
+	 * @see #getNextKey
+	 * @see KeyRange
+	 * @see KeyArray
+	 */
+	protected KeyBlock allocateKeys(int count) throws DataAccessException {
+		throw new InvalidDataAccessApiUsageException(
+				getClass().getName() + " needs to override either getNextKey or allocateKeys");
+	}
+
+
+	/**
+	 * Block of allocated keys, served in order. Not thread-safe:
+	 * AbstractDataFieldMaxValueIncrementer only accesses it under its lock.
+	 */
+	protected static abstract class KeyBlock {
+
+		/**
+		 * Return whether there are keys left to serve.
+		 */
+		public abstract boolean hasNext();
+
+		/**
+		 * Serve the next key. Only to be called if <code>hasNext</code> is true.
+		 */
+		public abstract long next();
+
+		/**
+		 * Return the number of keys left to serve.
+		 */
+		public abstract long remaining();
+	}
+
+
+	/**
+	 * Block of consecutive keys, represented by its bounds.
+	 */
+	protected static class KeyRange extends KeyBlock {
+
+		private long nextKey;
+
+		private final long maxKey;
+
+		/**
+		 * Create a new KeyRange.
+		 * @param firstKey the first key of the range
+		 * @param maxKey the last key of the range (inclusive)
+		 */
+		public KeyRange(long firstKey, long maxKey) {
+			this.nextKey = firstKey;
+			this.maxKey = maxKey;
+		}
+
+		public boolean hasNext() {
+			return (this.nextKey <= this.maxKey);
+		}
+
+		public long next() {
+			return this.nextKey++;
+		}
+
+		public long remaining() {
+			return this.maxKey - this.nextKey + 1;
+		}
+	}
+
+
+	/**
+	 * Block of arbitrary keys, for example values of a database sequence
+	 * that may be interleaved with other users of the sequence.
+	 */
+	protected static class KeyArray extends KeyBlock {
+
+		private final long[] keys;
+
+		private int nextIndex = 0;
+
+		/**
+		 * Create a new KeyArray.
+		 * @param keys the keys, in the order to serve them
+		 */
+		public KeyArray(long[] keys) {
+			this.keys = keys;
+		}
+
+		public boolean hasNext() {
+			return (this.nextIndex < this.keys.length);
+		}
+
+		public long next() {
+			return this.keys[this.nextIndex++];
+		}
+
+		public long remaining() {
+			return this.keys.length - this.nextIndex;
+		}
+	}
+
+
+	/**
+	 * Runnable for the prefetch thread: allocates the next block whenever
+	 * requested, until no request arrives within the keep-alive time.
+	 */
+	private class PrefetchTask implements Runnable {
+
+		public void run() {
+			while (awaitPrefetchRequest()) {
+				try {
+					allocateNextBlock();
+				}
+				catch (RuntimeException ex) {
+					logger.warn("Could not prefetch keys for '" + getIncrementerName() + "'", ex);
+				}
+			}
+		}
+
+		/**
+		 * Wait for the next prefetch request.
+		 * @return whether to allocate the next block, or <code>false</code>
+		 * if this thread is terminating
+		 */
+		private boolean awaitPrefetchRequest() {
+			synchronized (blockMonitor) {
+				long deadline = System.currentTimeMillis() + PREFETCH_THREAD_KEEP_ALIVE;
+				while (!prefetchRequested) {
+					long waitTime = deadline - System.currentTimeMillis();
+					if (waitTime <= 0) {
+						prefetchThread = null;
+						return false;
+					}
+					try {
+						blockMonitor.wait(waitTime);
+					}
+					catch (InterruptedException ex) {
+						prefetchThread = null;
+						return false;
+					}
+				}
+				prefetchRequested = false;
+				return true;
+			}
+		}
+	}
 
 }
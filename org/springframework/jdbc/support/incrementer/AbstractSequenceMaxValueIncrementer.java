@@ -29,6 +29,11 @@ import org.springframework.jdbc.support.JdbcUtils;
 /**
  * Abstract base class for incrementers that use a database sequence.
  * Subclasses need to provide the database-specific SQL to use.
+ *
+ * <p>With the default cache size of 1 and no prefetching, each key is
+ * obtained from the sequence directly, without any synchronization.
+ * Else, blocks of keys are obtained through one sequence query per key
+ * on the same Connection, and served as described in the superclass.
  * @author Juergen Hoeller
  * @since 26.02.2004
  * @see #getSequenceQuery
@@ -36,25 +41,40 @@ import org.springframework.jdbc.support.JdbcUtils;
 public abstract class AbstractSequenceMaxValueIncrementer extends AbstractDataFieldMaxValueIncrementer {
 
 	protected long getNextKey() throws DataAccessException {
+		if (getCacheSize() <= 1 && getMaxCacheSize() <= 1 && getPrefetchThreshold() <= 0) {
+			// Sequence queries can run concurrently: no need to serialize them.
+			return allocateKeys(1).next();
+		}
+		return super.getNextKey();
+	}
+
+	protected KeyBlock allocateKeys(int count) throws DataAccessException {
 		Connection con = DataSourceUtils.getConnection(getDataSource());
 		Statement stmt = null;
-		ResultSet rs = null;
 		try {
 			stmt = con.createStatement();
 			DataSourceUtils.applyTransactionTimeout(stmt, getDataSource());
-			rs = stmt.executeQuery(getSequenceQuery());
-			if (rs.next()) {
-				return rs.getLong(1);
-			}
-			else {
-				throw new DataAccessResourceFailureException("Sequence query did not return a result");
+			long[] keys = new long[count];
+			for (int i = 0; i < count; i++) {
+				ResultSet rs = stmt.executeQuery(getSequenceQuery());
+				try {
+					if (rs.next()) {
+						keys[i] = rs.getLong(1);
+					}
+					else {
+						throw new DataAccessResourceFailureException("Sequence query did not return a result");
+					}
+				}
+				finally {
+					JdbcUtils.closeResultSet(rs);
+				}
 			}
+			return new KeyArray(keys);
 		}
 		catch (SQLException ex) {
 			throw new DataAccessResourceFailureException("Could not obtain sequence value", ex);
 		}
 		finally {
-			JdbcUtils.closeResultSet(rs);
 			JdbcUtils.closeStatement(stmt);
 			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
 		}
@@ -57,14 +57,6 @@ public class HsqlMaxValueIncrementer extends AbstractDataFieldMaxValueIncremente
 	/** The name of the column for this sequence */
 	private String columnName;
 
-	/** The number of keys buffered in a cache */
-	private int cacheSize = 1;
-
-	private long[] valueCache = null;
-
-	/** The next id to serve from the value cache */
-	private int nextValueIndex = -1;
-
 
 	/**
 	 * Default constructor.
@@ -99,20 +91,6 @@ public class HsqlMaxValueIncrementer extends AbstractDataFieldMaxValueIncremente
 		return this.columnName;
 	}
 
-	/**
-	 * Set the number of buffered keys.
-	 */
-	public void setCacheSize(int cacheSize) {
-		this.cacheSize = cacheSize;
-	}
-
-	/**
-	 * Return the number of buffered keys.
-	 */
-	public int getCacheSize() {
-		return this.cacheSize;
-	}
-
 	public void afterPropertiesSet() {
 		super.afterPropertiesSet();
 		if (this.columnName == null) {
@@ -121,45 +99,59 @@ public class HsqlMaxValueIncrementer extends AbstractDataFieldMaxValueIncremente
 	}
 
 
-	protected synchronized long getNextKey() throws DataAccessException {
-		if (this.nextValueIndex < 0 || this.nextValueIndex >= getCacheSize()) {
-			/*
-			* Need to use straight JDBC code because we need to make sure that the insert and select
-			* are performed on the same connection (otherwise we can't be sure that last_insert_id()
-			* returned the correct value)
-			*/
-			Connection con = DataSourceUtils.getConnection(getDataSource());
-			Statement stmt = null;
-			try {
-				stmt = con.createStatement();
-				DataSourceUtils.applyTransactionTimeout(stmt, getDataSource());
-				this.valueCache = new long[getCacheSize()];
-				this.nextValueIndex = 0;
-				for (int i = 0; i < getCacheSize(); i++) {
-					stmt.executeUpdate("insert into " + getIncrementerName() + " values(null)");
-					ResultSet rs = stmt.executeQuery("select max(identity()) from " + getIncrementerName());
-					try {
-						if (!rs.next()) {
-							throw new DataAccessResourceFailureException("identity() failed after executing an update");
-						}
-						this.valueCache[i] = rs.getLong(1);
+	protected KeyBlock allocateKeys(int count) throws DataAccessException {
+		/*
+		* Need to use straight JDBC code because we need to make sure that the insert and select
+		* are performed on the same connection (otherwise we can't be sure that last_insert_id()
+		* returned the correct value)
+		*/
+		Connection con = DataSourceUtils.getConnection(getDataSource());
+		Statement stmt = null;
+		try {
+			stmt = con.createStatement();
+			DataSourceUtils.applyTransactionTimeout(stmt, getDataSource());
+			// The identities are consecutive unless the table is used concurrently:
+			// only materialize the keys as array if they turn out not to be.
+			long firstValue = 0;
+			long maxValue = 0;
+			long[] keys = null;
+			for (int i = 0; i < count; i++) {
+				stmt.executeUpdate("insert into " + getIncrementerName() + " values(null)");
+				ResultSet rs = stmt.executeQuery("select max(identity()) from " + getIncrementerName());
+				long value;
+				try {
+					if (!rs.next()) {
+						throw new DataAccessResourceFailureException("identity() failed after executing an update");
 					}
-					finally {
-						JdbcUtils.closeResultSet(rs);
+					value = rs.getLong(1);
+				}
+				finally {
+					JdbcUtils.closeResultSet(rs);
+				}
+				if (i == 0) {
+					firstValue = value;
+				}
+				else if (keys == null && value != maxValue + 1) {
+					keys = new long[count];
+					for (int j = 0; j < i; j++) {
+						keys[j] = firstValue + j;
 					}
 				}
-				long maxValue = this.valueCache[(this.valueCache.length - 1)];
-				stmt.executeUpdate("delete from " + getIncrementerName() + " where " + this.columnName + " < " + maxValue);
-			}
-			catch (SQLException ex) {
-				throw new DataAccessResourceFailureException("Could not obtain identity()", ex);
-			}
-			finally {
-				JdbcUtils.closeStatement(stmt);
-				DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
+				if (keys != null) {
+					keys[i] = value;
+				}
+				maxValue = value;
 			}
+			stmt.executeUpdate("delete from " + getIncrementerName() + " where " + this.columnName + " < " + maxValue);
+			return (keys != null ? (KeyBlock) new KeyArray(keys) : new KeyRange(firstValue, maxValue));
+		}
+		catch (SQLException ex) {
+			throw new DataAccessResourceFailureException("Could not obtain identity()", ex);
+		}
+		finally {
+			JdbcUtils.closeStatement(stmt);
+			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
 		}
-		return this.valueCache[this.nextValueIndex++];
 	}
 
 }
@@ -63,15 +63,6 @@ public class MySQLMaxValueIncrementer extends AbstractDataFieldMaxValueIncrement
 	/** The name of the column for this sequence */
 	private String columnName;
 
-	/** The number of keys buffered in a cache */
-	private int cacheSize = 1;
-
-	/** The next id to serve */
-	private long nextId = 0;
-
-	/** The max id to serve */
-	private long maxId = 0;
-
 
 	/**
 	 * Default constructor.
@@ -106,20 +97,6 @@ public class MySQLMaxValueIncrementer extends AbstractDataFieldMaxValueIncrement
 		return this.columnName;
 	}
 
-	/**
-	 * Set the number of buffered keys.
-	 */
-	public void setCacheSize(int cacheSize) {
-		this.cacheSize = cacheSize;
-	}
-
-	/**
-	 * Return the number of buffered keys.
-	 */
-	public int getCacheSize() {
-		return this.cacheSize;
-	}
-
 	public void afterPropertiesSet() {
 		super.afterPropertiesSet();
 		if (this.columnName == null) {
@@ -128,46 +105,41 @@ public class MySQLMaxValueIncrementer extends AbstractDataFieldMaxValueIncrement
 	}
 
 
-	protected synchronized long getNextKey() throws DataAccessException {
-		if (this.maxId == this.nextId) {
-			/*
-			* Need to use straight JDBC code because we need to make sure that the insert and select
-			* are performed on the same connection (otherwise we can't be sure that last_insert_id()
-			* returned the correct value)
-			*/
-			Connection con = DataSourceUtils.getConnection(getDataSource());
-			Statement stmt = null;
+	protected KeyBlock allocateKeys(int count) throws DataAccessException {
+		/*
+		* Need to use straight JDBC code because we need to make sure that the insert and select
+		* are performed on the same connection (otherwise we can't be sure that last_insert_id()
+		* returned the correct value)
+		*/
+		Connection con = DataSourceUtils.getConnection(getDataSource());
+		Statement stmt = null;
+		try {
+			stmt = con.createStatement();
+			DataSourceUtils.applyTransactionTimeout(stmt, getDataSource());
+			// increment the sequence column
+			stmt.executeUpdate("update "+ getIncrementerName() + " set " + this.columnName +
+												 " = last_insert_id(" + this.columnName + " + " + count + ")");
+			// retrieve the new max of the sequence column
+			long maxId;
+			ResultSet rs = stmt.executeQuery(VALUE_SQL);
 			try {
-				stmt = con.createStatement();
-				DataSourceUtils.applyTransactionTimeout(stmt, getDataSource());
-				// increment the sequence column
-				stmt.executeUpdate("update "+ getIncrementerName() + " set " + this.columnName +
-													 " = last_insert_id(" + this.columnName + " + " + getCacheSize() + ")");
-				// retrieve the new max of the sequence column
-				ResultSet rs = stmt.executeQuery(VALUE_SQL);
-				try {
-					if (!rs.next()) {
-						throw new DataAccessResourceFailureException("last_insert_id() failed after executing an update");
-					}
-					this.maxId = rs.getLong(1);
+				if (!rs.next()) {
+					throw new DataAccessResourceFailureException("last_insert_id() failed after executing an update");
 				}
-				finally {
-					JdbcUtils.closeResultSet(rs);
-				}
-				this.nextId = this.maxId - getCacheSize() + 1;
-			}
-			catch (SQLException ex) {
-				throw new DataAccessResourceFailureException("Could not obtain last_insert_id()", ex);
+				maxId = rs.getLong(1);
 			}
 			finally {
-				JdbcUtils.closeStatement(stmt);
-				DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
+				JdbcUtils.closeResultSet(rs);
 			}
+			return new KeyRange(maxId - count + 1, maxId);
+		}
+		catch (SQLException ex) {
+			throw new DataAccessResourceFailureException("Could not obtain last_insert_id()", ex);
 		}
-		else {
-			this.nextId++;
+		finally {
+			JdbcUtils.closeStatement(stmt);
+			DataSourceUtils.closeConnectionIfNecessary(con, getDataSource());
 		}
-		return this.nextId;
 	}
 
 }
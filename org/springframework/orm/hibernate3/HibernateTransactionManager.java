@@ -545,7 +545,9 @@ public class HibernateTransactionManager extends AbstractPlatformTransactionMana
 
 		// Remove the JDBC connection holder from the thread, if set.
 		if (getDataSource() != null) {
-			TransactionSynchronizationManager.unbindResource(getDataSource());
+			ConnectionHolder conHolder =
+					(ConnectionHolder) TransactionSynchronizationManager.unbindResource(getDataSource());
+			conHolder.closePreparedStatementCache();
 		}
 
 		try {
@@ -398,6 +398,7 @@ public class JdoTransactionManager extends AbstractPlatformTransactionManager im
 		// Remove the JDBC connection holder from the thread, if set.
 		if (txObject.getConnectionHolder() != null) {
 			TransactionSynchronizationManager.unbindResource(getDataSource());
+			txObject.getConnectionHolder().closePreparedStatementCache();
 			try {
 				getJdoDialect().releaseJdbcConnection(txObject.getConnectionHolder().getConnectionHandle(),
 						txObject.getPersistenceManagerHolder().getPersistenceManager());
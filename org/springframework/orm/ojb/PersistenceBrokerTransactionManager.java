@@ -306,7 +306,9 @@ public class PersistenceBrokerTransactionManager extends AbstractPlatformTransac
 
 		// Remove the JDBC connection holder from the thread, if set.
 		if (getDataSource() != null) {
-			TransactionSynchronizationManager.unbindResource(getDataSource());
+			ConnectionHolder conHolder =
+					(ConnectionHolder) TransactionSynchronizationManager.unbindResource(getDataSource());
+			conHolder.closePreparedStatementCache();
 		}
 
 		PersistenceBroker pb = txObject.getPersistenceBrokerHolder().getPersistenceBroker();
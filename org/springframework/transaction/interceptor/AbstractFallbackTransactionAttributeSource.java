@@ -18,7 +18,6 @@ package org.springframework.transaction.interceptor;
 
 import java.lang.reflect.Method;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -28,6 +27,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.aop.support.AopUtils;
+import org.springframework.core.CollectionFactory;
 
 /**
  * Abstract implementation of TransactionAttributeSource that caches attributes
@@ -43,6 +43,12 @@ import org.springframework.aop.support.AopUtils;
  * (unlikely) caching could be made configurable. Caching is desirable because
  * of the cost of evaluating rollback rules.
  *
+ * <p>The cache is safe for concurrent use: cached attributes are read without
+ * locking on JDK 1.5+. Each method is resolved only once, as rollback rules get
+ * applied to shared attribute instances: the first caller puts a placeholder
+ * for the method into the cache, and concurrent callers for the same method
+ * wait for that resolution. Different methods are resolved concurrently.
+ *
  * @author Rod Johnson
  * @author Juergen Hoeller
  * @since 1.1
@@ -61,7 +67,7 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 	/**
 	 * Cache of TransactionAttributes, keyed by Method and target class
 	 */
-	private Map cache = new HashMap();
+	private final Map cache = CollectionFactory.createConcurrentMapIfPossible(64);
 
 
 	/**
@@ -76,27 +82,52 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 		// First, see if we have a cached value
 		Object cacheKey = getCacheKey(method, targetClass);
 		Object cached = this.cache.get(cacheKey);
-		if (cached != null) {
-			// Value will either be canonical value indicating there is no transaction attribute,
-			// or an actual transaction attribute
-			if (cached == NULL_TRANSACTION_ATTRIBUTE) {
-				return null;
+		while (cached == null || cached instanceof PendingResolution) {
+			if (cached == null) {
+				// We need to work it out, unless another thread got there first.
+				PendingResolution pending = new PendingResolution();
+				cached = CollectionFactory.putIfAbsent(this.cache, cacheKey, pending);
+				if (cached == null) {
+					cached = resolveTransactionAttribute(cacheKey, method, targetClass, pending);
+				}
 			}
 			else {
-				return (TransactionAttribute) cached;
+				// Null if the resolution failed: try again.
+				cached = ((PendingResolution) cached).await();
 			}
 		}
+		// Value will either be canonical value indicating there is no transaction attribute,
+		// or an actual transaction attribute
+		if (cached == NULL_TRANSACTION_ATTRIBUTE) {
+			return null;
+		}
 		else {
-			// We need to work it out
+			return (TransactionAttribute) cached;
+		}
+	}
+
+	/**
+	 * Resolve the transaction attribute for the given method and put it into
+	 * the cache, replacing the given placeholder, which is then completed for
+	 * callers waiting on it. Removes the placeholder if resolution fails.
+	 * @return the cached value: a TransactionAttribute or NULL_TRANSACTION_ATTRIBUTE
+	 */
+	private Object resolveTransactionAttribute(
+			Object cacheKey, Method method, Class targetClass, PendingResolution pending) {
+
+		Object resolved = null;
+		try {
 			TransactionAttribute txAtt = computeTransactionAttribute(method, targetClass);
 			// Put it in the cache
-			if (txAtt == null) {
-				this.cache.put(cacheKey, NULL_TRANSACTION_ATTRIBUTE);
-			}
-			else {
-				this.cache.put(cacheKey, txAtt);
+			resolved = (txAtt != null ? (Object) txAtt : NULL_TRANSACTION_ATTRIBUTE);
+			this.cache.put(cacheKey, resolved);
+			return resolved;
+		}
+		finally {
+			if (resolved == null) {
+				this.cache.remove(cacheKey);
 			}
-			return txAtt;
+			pending.complete(resolved);
 		}
 	}
 
@@ -109,9 +140,7 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 	 * @return the cache key
 	 */
 	protected Object getCacheKey(Method method, Class targetClass) {
-		// TODO this works fine, but could consider making it faster in future:
-		// Method.toString() is relatively (although not disastrously) slow.
-		return targetClass + "." + method;
+		return new DefaultCacheKey(method, targetClass);
 	}
 	
 	/**
@@ -216,4 +245,74 @@ public abstract class AbstractFallbackTransactionAttributeSource implements Tran
 		return txAttribute;
 	}
 
+
+
+	/**
+	 * Placeholder in the cache for an attribute being resolved by another thread.
+	 */
+	private static class PendingResolution {
+
+		private boolean completed = false;
+
+		private Object result;
+
+		public synchronized void complete(Object result) {
+			this.result = result;
+			this.completed = true;
+			notifyAll();
+		}
+
+		/**
+		 * Wait for the resolution to complete.
+		 * @return the resolved cache value, or <code>null</code> if resolution failed
+		 */
+		public synchronized Object await() {
+			boolean interrupted = false;
+			while (!this.completed) {
+				try {
+					wait();
+				}
+				catch (InterruptedException ex) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return this.result;
+		}
+	}
+
+
+	/**
+	 * Default cache key for the TransactionAttribute cache. Compares Method
+	 * and target class directly, avoiding the cost of Method.toString().
+	 */
+	private static class DefaultCacheKey {
+
+		private final Method method;
+
+		private final Class targetClass;
+
+		public DefaultCacheKey(Method method, Class targetClass) {
+			this.method = method;
+			this.targetClass = targetClass;
+		}
+
+		public boolean equals(Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof DefaultCacheKey)) {
+				return false;
+			}
+			DefaultCacheKey otherKey = (DefaultCacheKey) other;
+			return (this.method.equals(otherKey.method) && this.targetClass == otherKey.targetClass);
+		}
+
+		public int hashCode() {
+			return this.method.hashCode() * 29 + (this.targetClass != null ? this.targetClass.hashCode() : 0);
+		}
+	}
+
 }
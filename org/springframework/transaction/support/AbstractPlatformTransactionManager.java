@@ -525,9 +525,9 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
 	private void triggerBeforeCommit(DefaultTransactionStatus status) {
 		if (status.isNewSynchronization()) {
 			logger.debug("Triggering beforeCommit synchronization");
-			for (Iterator it = TransactionSynchronizationManager.getSynchronizations().iterator(); it.hasNext();) {
-				TransactionSynchronization synchronization = (TransactionSynchronization) it.next();
-				synchronization.beforeCommit(status.isReadOnly());
+			TransactionSynchronization[] synchronizations = TransactionSynchronizationManager.getSynchronizationArray();
+			for (int i = 0; i < synchronizations.length; i++) {
+				synchronizations[i].beforeCommit(status.isReadOnly());
 			}
 		}
 	}
@@ -541,9 +541,10 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
 		if (status.isNewSynchronization()) {
 			logger.debug("Triggering beforeCompletion synchronization");
 			try {
-				for (Iterator it = TransactionSynchronizationManager.getSynchronizations().iterator(); it.hasNext();) {
-					TransactionSynchronization synchronization = (TransactionSynchronization) it.next();
-					synchronization.beforeCompletion();
+				TransactionSynchronization[] synchronizations =
+						TransactionSynchronizationManager.getSynchronizationArray();
+				for (int i = 0; i < synchronizations.length; i++) {
+					synchronizations[i].beforeCompletion();
 				}
 			}
 			catch (RuntimeException tsex) {
@@ -571,9 +572,10 @@ public abstract class AbstractPlatformTransactionManager implements PlatformTran
 		if (status.isNewSynchronization()) {
 			logger.debug("Triggering afterCompletion synchronization");
 			try {
-				for (Iterator it = TransactionSynchronizationManager.getSynchronizations().iterator(); it.hasNext();) {
-					TransactionSynchronization synchronization = (TransactionSynchronization) it.next();
-					synchronization.afterCompletion(completionStatus);
+				TransactionSynchronization[] synchronizations =
+						TransactionSynchronizationManager.getSynchronizationArray();
+				for (int i = 0; i < synchronizations.length; i++) {
+					synchronizations[i].afterCompletion(completionStatus);
 				}
 			}
 			catch (RuntimeException tsex) {
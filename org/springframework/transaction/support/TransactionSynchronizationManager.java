@@ -16,10 +16,11 @@
 
 package org.springframework.transaction.support;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -59,6 +60,13 @@ import org.springframework.core.OrderComparator;
  * close calls allow for proper transactional JVM-level caching even without a
  * custom TransactionManagerLookup in Hibernate configuration.
  *
+ * <p>All state for a thread is kept in a single context object, which stays bound
+ * to the thread and gets reused for subsequent transactions. Resources are held
+ * in small arrays rather than a Map, as there are typically just one or two of
+ * them per transaction. Once a transaction has completed, the context does not
+ * reference any resources or synchronizations anymore; threads that outlive the
+ * application, like pooled server threads, can drop it via <code>releaseContext</code>.
+ *
  * @author Juergen Hoeller
  * @since 02.06.2003
  * @see #isSynchronizationActive
@@ -75,13 +83,56 @@ public abstract class TransactionSynchronizationManager {
 
 	private static final Log logger = LogFactory.getLog(TransactionSynchronizationManager.class);
 
-	private static final ThreadLocal resources = new ThreadLocal();
-
-	private static final ThreadLocal synchronizations = new ThreadLocal();
+	private static final ThreadLocal transactionContext = new ThreadLocal();
 
 	private static final Comparator synchronizationComparator = new OrderComparator();
 
-	private static final ThreadLocal currentTransactionReadOnly = new ThreadLocal();
+	private static final TransactionSynchronization[] EMPTY_SYNCHRONIZATION_ARRAY =
+			new TransactionSynchronization[0];
+
+
+	/**
+	 * Return the transaction context for the current thread, if any.
+	 * @return the context, or <code>null</code> if none has been bound yet
+	 */
+	private static TransactionContext getContext() {
+		return (TransactionContext) transactionContext.get();
+	}
+
+	/**
+	 * Return the transaction context for the current thread,
+	 * binding a new one if none has been bound yet.
+	 */
+	private static TransactionContext obtainContext() {
+		TransactionContext context = (TransactionContext) transactionContext.get();
+		if (context == null) {
+			context = new TransactionContext();
+			transactionContext.set(context);
+		}
+		return context;
+	}
+
+	/**
+	 * Unbind the transaction context from the current thread.
+	 * <p>The context otherwise stays bound to the thread for reuse by subsequent
+	 * transactions, and with it the class loader that loaded this class. Call this
+	 * on threads that outlive the application, for example at the end of a task
+	 * on a shared thread pool, to not keep that class loader reachable after the
+	 * application has been shut down.
+	 * @throws IllegalStateException if the current thread still has resources
+	 * bound, an active synchronization, or a read-only transaction marker
+	 */
+	public static void releaseContext() throws IllegalStateException {
+		TransactionContext context = getContext();
+		if (context == null) {
+			return;
+		}
+		if (context.resourceCount > 0 || context.synchronizationActive || context.currentTransactionReadOnly) {
+			throw new IllegalStateException("Cannot release transaction context of thread [" +
+					Thread.currentThread().getName() + "] - transaction state still bound");
+		}
+		transactionContext.set(null);
+	}
 
 
 	//-------------------------------------------------------------------------
@@ -97,9 +148,12 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #hasResource
 	 */
 	public static Map getResourceMap() {
-		Map map = (Map) resources.get();
-		if (map == null) {
-			map = new HashMap();
+		Map map = new HashMap();
+		TransactionContext context = getContext();
+		if (context != null) {
+			for (int i = 0; i < context.resourceCount; i++) {
+				map.put(context.resourceKeys[i], context.resourceValues[i]);
+			}
 		}
 		return Collections.unmodifiableMap(map);
 	}
@@ -110,8 +164,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @return if there is a value bound to the current thread
 	 */
 	public static boolean hasResource(Object key) {
-		Map map = (Map) resources.get();
-		return (map != null && map.containsKey(key));
+		TransactionContext context = getContext();
+		return (context != null && context.indexOfResource(key) != -1);
 	}
 
 	/**
@@ -120,11 +174,15 @@ public abstract class TransactionSynchronizationManager {
 	 * @return a value bound to the current thread, or null if none
 	 */
 	public static Object getResource(Object key) {
-		Map map = (Map) resources.get();
-		if (map == null) {
+		TransactionContext context = getContext();
+		if (context == null) {
 			return null;
 		}
-		Object value = map.get(key);
+		int index = context.indexOfResource(key);
+		if (index == -1) {
+			return null;
+		}
+		Object value = context.resourceValues[index];
 		if (value != null && logger.isDebugEnabled()) {
 			logger.debug("Retrieved value [" + value + "] for key [" + key + "] bound to thread [" +
 					Thread.currentThread().getName() + "]");
@@ -139,17 +197,13 @@ public abstract class TransactionSynchronizationManager {
 	 * @throws IllegalStateException if there is already a value bound to the thread
 	 */
 	public static void bindResource(Object key, Object value) throws IllegalStateException {
-		Map map = (Map) resources.get();
-		// set ThreadLocal Map if none found
-		if (map == null) {
-			map = new HashMap();
-			resources.set(map);
-		}
-		if (map.containsKey(key)) {
-			throw new IllegalStateException("Already value [" + map.get(key) + "] for key [" + key +
-					"] bound to thread [" + Thread.currentThread().getName() + "]");
+		TransactionContext context = obtainContext();
+		int index = context.indexOfResource(key);
+		if (index != -1) {
+			throw new IllegalStateException("Already value [" + context.resourceValues[index] + "] for key [" +
+					key + "] bound to thread [" + Thread.currentThread().getName() + "]");
 		}
-		map.put(key, value);
+		context.addResource(key, value);
 		if (logger.isDebugEnabled()) {
 			logger.debug("Bound value [" + value + "] for key [" + key + "] to thread [" +
 					Thread.currentThread().getName() + "]");
@@ -163,16 +217,13 @@ public abstract class TransactionSynchronizationManager {
 	 * @throws IllegalStateException if there is no value bound to the thread
 	 */
 	public static Object unbindResource(Object key) throws IllegalStateException {
-		Map map = (Map) resources.get();
-		if (map == null || !map.containsKey(key)) {
+		TransactionContext context = getContext();
+		int index = (context != null ? context.indexOfResource(key) : -1);
+		if (index == -1) {
 			throw new IllegalStateException(
 					"No value for key [" + key + "] bound to thread [" + Thread.currentThread().getName() + "]");
 		}
-		Object value = map.remove(key);
-		// remove entire ThreadLocal if empty
-		if (map.isEmpty()) {
-			resources.set(null);
-		}
+		Object value = context.removeResource(index);
 		if (logger.isDebugEnabled()) {
 			logger.debug("Removed value [" + value + "] for key [" + key + "] from thread [" +
 					Thread.currentThread().getName() + "]");
@@ -191,7 +242,8 @@ public abstract class TransactionSynchronizationManager {
 	 * @see #registerSynchronization
 	 */
 	public static boolean isSynchronizationActive() {
-		return (synchronizations.get() != null);
+		TransactionContext context = getContext();
+		return (context != null && context.synchronizationActive);
 	}
 
 	/**
@@ -204,7 +256,7 @@ public abstract class TransactionSynchronizationManager {
 			throw new IllegalStateException("Cannot activate transaction synchronization - already active");
 		}
 		logger.debug("Initializing transaction synchronization");
-		synchronizations.set(new LinkedList());
+		obtainContext().synchronizationActive = true;
 	}
 
 	/**
@@ -220,9 +272,7 @@ public abstract class TransactionSynchronizationManager {
 		if (!isSynchronizationActive()) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
-		List synchs = (List) synchronizations.get();
-		synchs.add(synchronization);
-		Collections.sort(synchs, synchronizationComparator);
+		getContext().addSynchronization(synchronization);
 	}
 
 	/**
@@ -233,11 +283,23 @@ public abstract class TransactionSynchronizationManager {
 	 * @see TransactionSynchronization
 	 */
 	public static List getSynchronizations() throws IllegalStateException {
+		return Collections.unmodifiableList(Arrays.asList(getSynchronizationArray()));
+	}
+
+	/**
+	 * Return a snapshot array of all registered synchronizations for the
+	 * current thread. The same array is returned until the registered
+	 * synchronizations change, and must not be modified.
+	 * <p>Used by AbstractPlatformTransactionManager to trigger synchronization
+	 * callbacks without copying the synchronization list for every callback.
+	 * @return array of TransactionSynchronization instances
+	 * @throws IllegalStateException if synchronization is not active
+	 */
+	static TransactionSynchronization[] getSynchronizationArray() throws IllegalStateException {
 		if (!isSynchronizationActive()) {
 			throw new IllegalStateException("Transaction synchronization is not active");
 		}
-		List synchs = (List) synchronizations.get();
-		return Collections.unmodifiableList(new LinkedList(synchs));
+		return getContext().getSynchronizationSnapshot();
 	}
 
 	/**
@@ -250,7 +312,7 @@ public abstract class TransactionSynchronizationManager {
 			throw new IllegalStateException("Cannot deactivate transaction synchronization - not active");
 		}
 		logger.debug("Clearing transaction synchronization");
-		synchronizations.set(null);
+		getContext().clearSynchronizations();
 	}
 
 
@@ -262,7 +324,15 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.springframework.transaction.TransactionDefinition#isReadOnly
 	 */
 	public static void setCurrentTransactionReadOnly(boolean readOnly) {
-		currentTransactionReadOnly.set(readOnly ? Boolean.TRUE : null);
+		if (readOnly) {
+			obtainContext().currentTransactionReadOnly = true;
+		}
+		else {
+			TransactionContext context = getContext();
+			if (context != null) {
+				context.currentTransactionReadOnly = false;
+			}
+		}
 	}
 
 	/**
@@ -280,7 +350,96 @@ public abstract class TransactionSynchronizationManager {
 	 * @see org.hibernate.FlushMode#NEVER
 	 */
 	public static boolean isCurrentTransactionReadOnly() {
-		return (currentTransactionReadOnly.get() != null);
+		TransactionContext context = getContext();
+		return (context != null && context.currentTransactionReadOnly);
+	}
+
+
+	/**
+	 * Holder for all transaction state of one thread. Bound to the thread
+	 * on first use, and reused for all subsequent transactions of the thread.
+	 * @see #releaseContext
+	 */
+	private static class TransactionContext {
+
+		private Object[] resourceKeys = new Object[2];
+
+		private Object[] resourceValues = new Object[2];
+
+		private int resourceCount = 0;
+
+		private boolean synchronizationActive = false;
+
+		private final List synchronizations = new ArrayList(4);
+
+		/** Cached snapshot of the synchronizations, or null if outdated */
+		private TransactionSynchronization[] synchronizationSnapshot = EMPTY_SYNCHRONIZATION_ARRAY;
+
+		private boolean currentTransactionReadOnly = false;
+
+		public int indexOfResource(Object key) {
+			for (int i = 0; i < this.resourceCount; i++) {
+				Object candidate = this.resourceKeys[i];
+				if (candidate == key || (key != null && key.equals(candidate))) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		public void addResource(Object key, Object value) {
+			if (this.resourceCount == this.resourceKeys.length) {
+				Object[] newKeys = new Object[this.resourceCount * 2];
+				Object[] newValues = new Object[this.resourceCount * 2];
+				System.arraycopy(this.resourceKeys, 0, newKeys, 0, this.resourceCount);
+				System.arraycopy(this.resourceValues, 0, newValues, 0, this.resourceCount);
+				this.resourceKeys = newKeys;
+				this.resourceValues = newValues;
+			}
+			this.resourceKeys[this.resourceCount] = key;
+			this.resourceValues[this.resourceCount] = value;
+			this.resourceCount++;
+		}
+
+		public Object removeResource(int index) {
+			Object value = this.resourceValues[index];
+			int numMoved = this.resourceCount - index - 1;
+			if (numMoved > 0) {
+				System.arraycopy(this.resourceKeys, index + 1, this.resourceKeys, index, numMoved);
+				System.arraycopy(this.resourceValues, index + 1, this.resourceValues, index, numMoved);
+			}
+			this.resourceCount--;
+			// Release references, as the context stays bound to the thread.
+			this.resourceKeys[this.resourceCount] = null;
+			this.resourceValues[this.resourceCount] = null;
+			return value;
+		}
+
+		public void addSynchronization(TransactionSynchronization synchronization) {
+			// Insert after all synchronizations with lower or equal order,
+			// keeping registration order for equal ones.
+			int index = this.synchronizations.size();
+			while (index > 0 && synchronizationComparator.compare(
+					this.synchronizations.get(index - 1), synchronization) > 0) {
+				index--;
+			}
+			this.synchronizations.add(index, synchronization);
+			this.synchronizationSnapshot = null;
+		}
+
+		public TransactionSynchronization[] getSynchronizationSnapshot() {
+			if (this.synchronizationSnapshot == null) {
+				this.synchronizationSnapshot = (TransactionSynchronization[])
+						this.synchronizations.toArray(new TransactionSynchronization[this.synchronizations.size()]);
+			}
+			return this.synchronizationSnapshot;
+		}
+
+		public void clearSynchronizations() {
+			this.synchronizationActive = false;
+			this.synchronizations.clear();
+			this.synchronizationSnapshot = EMPTY_SYNCHRONIZATION_ARRAY;
+		}
 	}
 
 }
@@ -16,6 +16,10 @@
 
 package org.springframework.util;
 
+import java.util.Map;
+
+import org.springframework.core.CollectionFactory;
+
 /**
  * PathMatcher implementation for Ant-style path patterns.
  * Examples are provided below.
@@ -41,158 +45,97 @@ package org.springframework.util;
  * but also org/springframework/testing/servlet/bla.jsp and com/servlet/bla.jsp</li>
  * </ul>
  *
+ * <p>Patterns are compiled into {@link CompiledPattern} objects once and
+ * cached, so repeated matches against the same pattern do not tokenize the
+ * pattern again. Callers matching a path against many patterns can split the
+ * path once via {@link #tokenizePath} and pass the segments to each
+ * compiled pattern.
+ *
  * @author Alef Arendsen
  * @author Juergen Hoeller
  * @since 16.07.2003
  */
 public class AntPathMatcher implements PathMatcher {
 
-	public boolean isPattern(String str) {
-		return (str.indexOf('*') != -1 || str.indexOf('?') != -1);
-	}
-
-	public boolean match(String pattern, String str) {
-		if (str.startsWith("/") != pattern.startsWith("/")) {
-			return false;
-		}
-
-		String[] patDirs = StringUtils.tokenizeToStringArray(pattern, "/");
-		String[] strDirs = StringUtils.tokenizeToStringArray(str, "/");
+	private static final String PATH_SEPARATOR = "/";
 
-		int patIdxStart = 0;
-		int patIdxEnd = patDirs.length - 1;
-		int strIdxStart = 0;
-		int strIdxEnd = strDirs.length - 1;
+	private static final String DOUBLE_WILDCARD = "**";
 
-		// Match all elements up to the first **
-		while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
-			String patDir = (String) patDirs[patIdxStart];
-			if (patDir.equals("**")) {
-				break;
-			}
-			if (!matchStrings(patDir, (String) strDirs[strIdxStart])) {
-				return false;
-			}
-			patIdxStart++;
-			strIdxStart++;
-		}
+	/**
+	 * Maximum number of compiled patterns to cache. The cache needs to be
+	 * bounded, as patterns may be built from request-specific paths
+	 * (for example, by PathMatchingResourcePatternResolver): once full,
+	 * it gets cleared and rebuilt from the patterns in current use.
+	 */
+	private static final int COMPILED_PATTERN_CACHE_LIMIT = 256;
 
-		if (strIdxStart > strIdxEnd) {
-			// String is exhausted, only match if rest of pattern is **'s
-			for (int i = patIdxStart; i <= patIdxEnd; i++) {
-				if (!patDirs[i].equals("**")) {
-					return false;
-				}
-			}
-			return true;
-		}
-		else {
-			if (patIdxStart > patIdxEnd) {
-				// String not exhausted, but pattern is. Failure.
-				return false;
-			}
-		}
 
-		// up to last '**'
-		while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
-			String patDir = (String) patDirs[patIdxEnd];
-			if (patDir.equals("**")) {
-				break;
-			}
-			if (!matchStrings(patDir, (String) strDirs[strIdxEnd])) {
-				return false;
-			}
-			patIdxEnd--;
-			strIdxEnd--;
-		}
-		if (strIdxStart > strIdxEnd) {
-			// String is exhausted
-			for (int i = patIdxStart; i <= patIdxEnd; i++) {
-				if (!patDirs[i].equals("**")) {
-					return false;
-				}
-			}
-			return true;
-		}
+	/** Cache of compiled patterns: pattern String --> CompiledPattern */
+	private final Map compiledPatternCache = CollectionFactory.createConcurrentMapIfPossible(64);
 
-		while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
-			int patIdxTmp = -1;
-			for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
-				if (patDirs[i].equals("**")) {
-					patIdxTmp = i;
-					break;
-				}
-			}
-			if (patIdxTmp == patIdxStart + 1) {
-				// '**/**' situation, so skip one
-				patIdxStart++;
-				continue;
-			}
-			// Find the pattern between padIdxStart & padIdxTmp in str between
-			// strIdxStart & strIdxEnd
-			int patLength = (patIdxTmp - patIdxStart - 1);
-			int strLength = (strIdxEnd - strIdxStart + 1);
-			int foundIdx = -1;
-			strLoop:
-			    for (int i = 0; i <= strLength - patLength; i++) {
-				    for (int j = 0; j < patLength; j++) {
-					    String subPat = (String) patDirs[patIdxStart + j + 1];
-					    String subStr = (String) strDirs[strIdxStart + i + j];
-					    if (!matchStrings(subPat, subStr)) {
-						    continue strLoop;
-					    }
-				    }
-
-				    foundIdx = strIdxStart + i;
-				    break;
-			    }
 
-			if (foundIdx == -1) {
-				return false;
-			}
+	public boolean isPattern(String str) {
+		return (str.indexOf('*') != -1 || str.indexOf('?') != -1);
+	}
 
-			patIdxStart = patIdxTmp;
-			strIdxStart = foundIdx + patLength;
-		}
+	public boolean match(String pattern, String str) {
+		return compile(pattern).matches(str);
+	}
 
-		for (int i = patIdxStart; i <= patIdxEnd; i++) {
-			if (!patDirs[i].equals("**")) {
-				return false;
+	/**
+	 * Return a compiled form of the given pattern, for matching it repeatedly
+	 * without parsing it again. Compiled patterns are cached by this matcher.
+	 * @param pattern the pattern to compile
+	 * @return the (potentially shared) compiled pattern
+	 */
+	public CompiledPattern compile(String pattern) {
+		CompiledPattern compiledPattern = (CompiledPattern) this.compiledPatternCache.get(pattern);
+		if (compiledPattern == null) {
+			compiledPattern = new CompiledPattern(pattern);
+			// Concurrent threads may compile the same pattern: equivalent results,
+			// so it does not matter which one ends up in the cache.
+			if (this.compiledPatternCache.size() >= COMPILED_PATTERN_CACHE_LIMIT) {
+				this.compiledPatternCache.clear();
 			}
+			this.compiledPatternCache.put(pattern, compiledPattern);
 		}
+		return compiledPattern;
+	}
 
-		return true;
+	/**
+	 * Split the given path into the segments that compiled patterns match against.
+	 * Empty segments are omitted, and segments are trimmed.
+	 * @param path the path to split
+	 * @return the path segments
+	 * @see CompiledPattern#matches(String, String[])
+	 */
+	public String[] tokenizePath(String path) {
+		return StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR);
 	}
 
+
 	/**
 	 * Tests whether or not a string matches against a pattern.
 	 * The pattern may contain two special characters:<br>
 	 * '*' means zero or more characters<br>
 	 * '?' means one and only one character
-	 * @param pattern pattern to match against.
+	 * <p>Does not create any objects, in contrast to converting both strings
+	 * to char arrays first.
+	 * @param patArr pattern to match against.
 	 * Must not be <code>null</code>.
+	 * @param containsStar whether the pattern contains a '*'
 	 * @param str string which must be matched against the pattern.
 	 * Must not be <code>null</code>.
 	 * @return <code>true</code> if the string matches against the
 	 * pattern, or <code>false</code> otherwise.
 	 */
-	private boolean matchStrings(String pattern, String str) {
-		char[] patArr = pattern.toCharArray();
-		char[] strArr = str.toCharArray();
+	private static boolean matchStrings(char[] patArr, boolean containsStar, String str) {
 		int patIdxStart = 0;
 		int patIdxEnd = patArr.length - 1;
 		int strIdxStart = 0;
-		int strIdxEnd = strArr.length - 1;
+		int strIdxEnd = str.length() - 1;
 		char ch;
 
-		boolean containsStar = false;
-		for (int i = 0; i < patArr.length; i++) {
-			if (patArr[i] == '*') {
-				containsStar = true;
-				break;
-			}
-		}
-
 		if (!containsStar) {
 			// No '*'s, so we make a shortcut
 			if (patIdxEnd != strIdxEnd) {
@@ -201,7 +144,7 @@ public class AntPathMatcher implements PathMatcher {
 			for (int i = 0; i <= patIdxEnd; i++) {
 				ch = patArr[i];
 				if (ch != '?') {
-					if (ch != strArr[i]) {
+					if (ch != str.charAt(i)) {
 						return false;// Character mismatch
 					}
 				}
@@ -217,7 +160,7 @@ public class AntPathMatcher implements PathMatcher {
 		// Process characters before first star
 		while ((ch = patArr[patIdxStart]) != '*' && strIdxStart <= strIdxEnd) {
 			if (ch != '?') {
-				if (ch != strArr[strIdxStart]) {
+				if (ch != str.charAt(strIdxStart)) {
 					return false;// Character mismatch
 				}
 			}
@@ -238,7 +181,7 @@ public class AntPathMatcher implements PathMatcher {
 		// Process characters after last star
 		while ((ch = patArr[patIdxEnd]) != '*' && strIdxStart <= strIdxEnd) {
 			if (ch != '?') {
-				if (ch != strArr[strIdxEnd]) {
+				if (ch != str.charAt(strIdxEnd)) {
 					return false;// Character mismatch
 				}
 			}
@@ -281,7 +224,7 @@ public class AntPathMatcher implements PathMatcher {
 				for (int j = 0; j < patLength; j++) {
 					ch = patArr[patIdxStart + j + 1];
 					if (ch != '?') {
-						if (ch != strArr[strIdxStart + i + j]) {
+						if (ch != str.charAt(strIdxStart + i + j)) {
 							continue strLoop;
 						}
 					}
@@ -310,4 +253,190 @@ public class AntPathMatcher implements PathMatcher {
 		return true;
 	}
 
+
+	/**
+	 * An Ant-style pattern, split into its segments once. Immutable and
+	 * thread-safe: a compiled pattern can be shared and matched concurrently.
+	 * <p>Matching a compiled pattern against pre-split path segments does
+	 * not create any objects.
+	 * @see AntPathMatcher#compile
+	 */
+	public static final class CompiledPattern {
+
+		private final String pattern;
+
+		private final boolean absolute;
+
+		/** Pattern segments as char arrays; null for "**" segments */
+		private final char[][] patSegments;
+
+		/** Whether the corresponding pattern segment contains a '*' */
+		private final boolean[] containsStar;
+
+		private CompiledPattern(String pattern) {
+			this.pattern = pattern;
+			this.absolute = pattern.startsWith(PATH_SEPARATOR);
+			String[] patDirs = StringUtils.tokenizeToStringArray(pattern, PATH_SEPARATOR);
+			this.patSegments = new char[patDirs.length][];
+			this.containsStar = new boolean[patDirs.length];
+			for (int i = 0; i < patDirs.length; i++) {
+				if (!DOUBLE_WILDCARD.equals(patDirs[i])) {
+					this.patSegments[i] = patDirs[i].toCharArray();
+					this.containsStar[i] = (patDirs[i].indexOf('*') != -1);
+				}
+			}
+		}
+
+		/**
+		 * Return the original pattern String.
+		 */
+		public String getPattern() {
+			return this.pattern;
+		}
+
+		/**
+		 * Match the given path against this pattern.
+		 * @param path the path to test
+		 * @return whether the path matches
+		 */
+		public boolean matches(String path) {
+			return matches(path, StringUtils.tokenizeToStringArray(path, PATH_SEPARATOR));
+		}
+
+		/**
+		 * Match the given path against this pattern, reusing its segments.
+		 * @param path the path to test
+		 * @param pathSegments the segments of the path,
+		 * as returned by <code>AntPathMatcher.tokenizePath</code>
+		 * @return whether the path matches
+		 * @see AntPathMatcher#tokenizePath
+		 */
+		public boolean matches(String path, String[] pathSegments) {
+			if (path.startsWith(PATH_SEPARATOR) != this.absolute) {
+				return false;
+			}
+			return matchSegments(pathSegments);
+		}
+
+		/**
+		 * Match a single path segment against this pattern, which is
+		 * expected to consist of a single segment itself. A "**" pattern
+		 * matches any segment.
+		 * @param segment the path segment to test
+		 * @return whether the segment matches
+		 */
+		public boolean matchesSegment(String segment) {
+			if (this.patSegments.length != 1) {
+				return false;
+			}
+			return isDoubleWildcard(0) || matchStrings(this.patSegments[0], this.containsStar[0], segment);
+		}
+
+		private boolean isDoubleWildcard(int patIdx) {
+			return (this.patSegments[patIdx] == null);
+		}
+
+		private boolean matchSegment(int patIdx, String strDir) {
+			return matchStrings(this.patSegments[patIdx], this.containsStar[patIdx], strDir);
+		}
+
+		private boolean matchSegments(String[] strDirs) {
+			int patIdxStart = 0;
+			int patIdxEnd = this.patSegments.length - 1;
+			int strIdxStart = 0;
+			int strIdxEnd = strDirs.length - 1;
+
+			// Match all elements up to the first **
+			while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
+				if (isDoubleWildcard(patIdxStart)) {
+					break;
+				}
+				if (!matchSegment(patIdxStart, strDirs[strIdxStart])) {
+					return false;
+				}
+				patIdxStart++;
+				strIdxStart++;
+			}
+
+			if (strIdxStart > strIdxEnd) {
+				// String is exhausted, only match if rest of pattern is **'s
+				return onlyDoubleWildcards(patIdxStart, patIdxEnd);
+			}
+			else {
+				if (patIdxStart > patIdxEnd) {
+					// String not exhausted, but pattern is. Failure.
+					return false;
+				}
+			}
+
+			// up to last '**'
+			while (patIdxStart <= patIdxEnd && strIdxStart <= strIdxEnd) {
+				if (isDoubleWildcard(patIdxEnd)) {
+					break;
+				}
+				if (!matchSegment(patIdxEnd, strDirs[strIdxEnd])) {
+					return false;
+				}
+				patIdxEnd--;
+				strIdxEnd--;
+			}
+			if (strIdxStart > strIdxEnd) {
+				// String is exhausted
+				return onlyDoubleWildcards(patIdxStart, patIdxEnd);
+			}
+
+			while (patIdxStart != patIdxEnd && strIdxStart <= strIdxEnd) {
+				int patIdxTmp = -1;
+				for (int i = patIdxStart + 1; i <= patIdxEnd; i++) {
+					if (isDoubleWildcard(i)) {
+						patIdxTmp = i;
+						break;
+					}
+				}
+				if (patIdxTmp == patIdxStart + 1) {
+					// '**/**' situation, so skip one
+					patIdxStart++;
+					continue;
+				}
+				// Find the pattern between padIdxStart & padIdxTmp in str between
+				// strIdxStart & strIdxEnd
+				int patLength = (patIdxTmp - patIdxStart - 1);
+				int strLength = (strIdxEnd - strIdxStart + 1);
+				int foundIdx = -1;
+				strLoop:
+				for (int i = 0; i <= strLength - patLength; i++) {
+					for (int j = 0; j < patLength; j++) {
+						if (!matchSegment(patIdxStart + j + 1, strDirs[strIdxStart + i + j])) {
+							continue strLoop;
+						}
+					}
+					foundIdx = strIdxStart + i;
+					break;
+				}
+
+				if (foundIdx == -1) {
+					return false;
+				}
+
+				patIdxStart = patIdxTmp;
+				strIdxStart = foundIdx + patLength;
+			}
+
+			return onlyDoubleWildcards(patIdxStart, patIdxEnd);
+		}
+
+		private boolean onlyDoubleWildcards(int patIdxStart, int patIdxEnd) {
+			for (int i = patIdxStart; i <= patIdxEnd; i++) {
+				if (!isDoubleWildcard(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		public String toString() {
+			return this.pattern;
+		}
+	}
+
 }
@@ -22,7 +22,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.springframework.beans.BeansException;
-import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.SelectiveBeanPostProcessor;
 import org.springframework.web.context.ServletContextAware;
 
 /**
@@ -38,7 +38,7 @@ import org.springframework.web.context.ServletContextAware;
  * @see org.springframework.web.context.ServletContextAware
  * @see org.springframework.web.context.support.XmlWebApplicationContext#postProcessBeanFactory
  */
-public class ServletContextAwareProcessor implements BeanPostProcessor {
+public class ServletContextAwareProcessor implements SelectiveBeanPostProcessor {
 
 	protected final Log logger = LogFactory.getLog(getClass());
 
@@ -51,6 +51,14 @@ public class ServletContextAwareProcessor implements BeanPostProcessor {
 		this.servletContext = servletContext;
 	}
 
+	public boolean isApplicableBeforeInitialization(Class beanClass, String beanName) {
+		return ServletContextAware.class.isAssignableFrom(beanClass);
+	}
+
+	public boolean isApplicableAfterInitialization(Class beanClass, String beanName) {
+		return false;
+	}
+
 	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
 		if (bean instanceof ServletContextAware) {
 			if (this.servletContext == null) {
@@ -56,6 +56,9 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 
 	private final Map handlerMap = new HashMap();
 
+	/** Registered URL paths, compiled into a segment trie for pattern lookups */
+	private final PathPatternTrie patternTrie = new PathPatternTrie();
+
 
 	/**
 	 * Set if URL lookup should always use full path within current servlet
@@ -137,6 +140,11 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 	 * <p>Supports direct matches, e.g. a registered "/test" matches "/test",
 	 * and various Ant-style pattern matches, e.g. a registered "/t*" matches
 	 * both "/test" and "/team". For details, see the PathMatcher class.
+	 * <p>Looks for the most specific pattern match, i.e. the longest matching
+	 * pattern. With the default AntPathMatcher, registered patterns are looked
+	 * up through a segment trie rather than matched one by one, so only
+	 * patterns sharing a prefix with the given path are considered. A custom
+	 * PathMatcher is applied to every registered pattern in turn.
 	 * @param urlPath URL the bean is mapped to
 	 * @return the associated handler instance, or null if not found
 	 * @see org.springframework.util.PathMatcher
@@ -146,13 +154,22 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		Object handler = this.handlerMap.get(urlPath);
 		if (handler == null) {
 			// pattern match?
-			String bestPathMatch = null;
-			for (Iterator it = this.handlerMap.keySet().iterator(); it.hasNext();) {
-				String registeredPath = (String) it.next();
-				if (this.pathMatcher.match(registeredPath, urlPath) &&
-						(bestPathMatch == null || bestPathMatch.length() <= registeredPath.length())) {
-					handler = this.handlerMap.get(registeredPath);
-					bestPathMatch = registeredPath;
+			if (this.pathMatcher.getClass() == AntPathMatcher.class) {
+				// AntPathMatcher semantics are known: use the pattern trie.
+				String bestPathMatch = this.patternTrie.findBestMatch(urlPath);
+				if (bestPathMatch != null) {
+					handler = this.handlerMap.get(bestPathMatch);
+				}
+			}
+			else {
+				String bestPathMatch = null;
+				for (Iterator it = this.handlerMap.keySet().iterator(); it.hasNext();) {
+					String registeredPath = (String) it.next();
+					if (this.pathMatcher.match(registeredPath, urlPath) &&
+							(bestPathMatch == null || bestPathMatch.length() <= registeredPath.length())) {
+						handler = this.handlerMap.get(registeredPath);
+						bestPathMatch = registeredPath;
+					}
 				}
 			}
 		}
@@ -186,6 +203,7 @@ public abstract class AbstractUrlHandlerMapping extends AbstractHandlerMapping {
 		}
 		else {
 			this.handlerMap.put(urlPath, handler);
+			this.patternTrie.addPattern(urlPath);
 			if (logger.isDebugEnabled()) {
 				logger.debug("Mapped URL path [" + urlPath + "] onto handler [" + handler + "]");
 			}
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.servlet.handler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Segment trie over Ant-style URL patterns, used by AbstractUrlHandlerMapping
+ * to avoid matching every registered pattern against every request path.
+ *
+ * <p>Patterns are split into path segments once, at registration time.
+ * Literal segments are resolved through a hash lookup per trie level, so only
+ * the branches that can still match a given path are ever visited. Segments
+ * containing '*' or '?' are compiled once and matched against a single path
+ * segment, and "**" segments consume zero or more path segments - the same
+ * semantics as AntPathMatcher's <code>match</code> method. The lookup path
+ * is split into segments only once.
+ *
+ * <p>Of all patterns matching a path, the longest one wins, analogous to
+ * the linear pattern scan in AbstractUrlHandlerMapping.
+ *
+ * <p>Not thread-safe for registration: patterns are expected to be added
+ * during initialization only, with concurrent lookups afterwards.
+ *
+ * @since 1.2
+ * @see AbstractUrlHandlerMapping#lookupHandler
+ * @see org.springframework.util.AntPathMatcher
+ */
+class PathPatternTrie {
+
+	private static final String PATH_SEPARATOR = "/";
+
+	private static final String DOUBLE_WILDCARD = "**";
+
+	private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+	/** Root for patterns starting with a slash */
+	private final Node absoluteRoot = new Node();
+
+	/** Root for patterns not starting with a slash */
+	private final Node relativeRoot = new Node();
+
+
+	/**
+	 * Add the given pattern (or plain path) to this trie.
+	 * @param pattern the pattern to add
+	 */
+	public void addPattern(String pattern) {
+		Node node = (pattern.startsWith(PATH_SEPARATOR) ? this.absoluteRoot : this.relativeRoot);
+		String[] segments = this.pathMatcher.tokenizePath(pattern);
+		for (int i = 0; i < segments.length; i++) {
+			node = node.getOrCreateChild(segments[i], this.pathMatcher);
+		}
+		// Patterns ending at the same node match exactly the same paths,
+		// so only the longest one can ever be the best match.
+		if (node.pattern == null || node.pattern.length() < pattern.length()) {
+			node.pattern = pattern;
+		}
+	}
+
+	/**
+	 * Find the longest registered pattern that matches the given path.
+	 * @param path the path to match
+	 * @return the best matching pattern, or <code>null</code> if none matches
+	 */
+	public String findBestMatch(String path) {
+		Node root = (path.startsWith(PATH_SEPARATOR) ? this.absoluteRoot : this.relativeRoot);
+		return findBestMatch(root, this.pathMatcher.tokenizePath(path), 0);
+	}
+
+	private String findBestMatch(Node node, String[] segments, int index) {
+		if (index == segments.length) {
+			String bestMatch = node.pattern;
+			if (node.doubleWildcardChild != null) {
+				// "**" matches zero segments as well
+				bestMatch = longer(bestMatch,
+						findBestMatch(node.doubleWildcardChild, segments, index));
+			}
+			return bestMatch;
+		}
+
+		String bestMatch = null;
+		String segment = segments[index];
+		if (node.literalChildren != null) {
+			Node child = (Node) node.literalChildren.get(segment);
+			if (child != null) {
+				bestMatch = findBestMatch(child, segments, index + 1);
+			}
+		}
+		if (node.wildcardSegments != null) {
+			for (int i = 0; i < node.wildcardSegments.size(); i++) {
+				AntPathMatcher.CompiledPattern wildcardSegment =
+						(AntPathMatcher.CompiledPattern) node.wildcardSegments.get(i);
+				if (wildcardSegment.matchesSegment(segment)) {
+					Node child = (Node) node.wildcardChildren.get(i);
+					bestMatch = longer(bestMatch, findBestMatch(child, segments, index + 1));
+				}
+			}
+		}
+		if (node.doubleWildcardChild != null) {
+			for (int i = index; i <= segments.length; i++) {
+				bestMatch = longer(bestMatch,
+						findBestMatch(node.doubleWildcardChild, segments, i));
+			}
+		}
+		return bestMatch;
+	}
+
+	private static String longer(String pattern1, String pattern2) {
+		if (pattern1 == null) {
+			return pattern2;
+		}
+		if (pattern2 == null || pattern1.length() >= pattern2.length()) {
+			return pattern1;
+		}
+		return pattern2;
+	}
+
+
+	/**
+	 * Trie node for one pattern segment.
+	 */
+	private static class Node {
+
+		/** Longest pattern ending at this node, if any */
+		private String pattern;
+
+		/** Children for plain segments, keyed by segment */
+		private Map literalChildren;
+
+		/** Compiled segments containing '*' or '?', in registration order */
+		private List wildcardSegments;
+
+		/** Children for the corresponding wildcard segments */
+		private List wildcardChildren;
+
+		/** Child for a "**" segment */
+		private Node doubleWildcardChild;
+
+		public Node getOrCreateChild(String segment, AntPathMatcher pathMatcher) {
+			if (DOUBLE_WILDCARD.equals(segment)) {
+				if (this.doubleWildcardChild == null) {
+					this.doubleWildcardChild = new Node();
+				}
+				return this.doubleWildcardChild;
+			}
+			if (segment.indexOf('*') != -1 || segment.indexOf('?') != -1) {
+				if (this.wildcardSegments == null) {
+					this.wildcardSegments = new ArrayList(2);
+					this.wildcardChildren = new ArrayList(2);
+				}
+				for (int i = 0; i < this.wildcardSegments.size(); i++) {
+					AntPathMatcher.CompiledPattern wildcardSegment =
+							(AntPathMatcher.CompiledPattern) this.wildcardSegments.get(i);
+					if (wildcardSegment.getPattern().equals(segment)) {
+						return (Node) this.wildcardChildren.get(i);
+					}
+				}
+				Node child = new Node();
+				this.wildcardSegments.add(pathMatcher.compile(segment));
+				this.wildcardChildren.add(child);
+				return child;
+			}
+			if (this.literalChildren == null) {
+				this.literalChildren = new HashMap(4);
+			}
+			Node child = (Node) this.literalChildren.get(segment);
+			if (child == null) {
+				child = new Node();
+				this.literalChildren.put(segment, child);
+			}
+			return child;
+		}
+	}
+
+}
@@ -1,16 +1,19 @@
 package com.gaussic.controller;
 
 import com.gaussic.model.BlogEntity;
+import com.gaussic.model.BlogSummary;
 import com.gaussic.model.UserEntity;
 import com.gaussic.repository.BlogRepository;
 import com.gaussic.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -26,11 +29,26 @@ public class BlogController {
     @Autowired
     UserRepository userRepository;
 
-    // 查看所有博文
+    // 每页默认条数与允许的最大条数
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+
+    // 分页查看博文，after为上一页最后一条博文的id，每次只查询一页
     @RequestMapping(value = "/admin/blogs", method = RequestMethod.GET)
-    public String showBlogs(ModelMap modelMap) {
-        List<BlogEntity> blogList = blogRepository.findAll();
+    public String showBlogs(@RequestParam(value = "after", defaultValue = "0") int afterId,
+                            @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                            ModelMap modelMap) {
+        size = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // 多取一条，用于判断是否还有下一页
+        // 列表只需要作者昵称和姓名，使用投影查询，避免每条博文再查一次user
+        List<BlogSummary> blogList = blogRepository.findSummaryPageAfter(afterId, new PageRequest(0, size + 1));
+        if (blogList.size() > size) {
+            blogList = blogList.subList(0, size);
+            modelMap.addAttribute("nextAfter", blogList.get(size - 1).getId());
+        }
         modelMap.addAttribute("blogList", blogList);
+        modelMap.addAttribute("after", afterId);
+        modelMap.addAttribute("size", size);
         return "admin/blogs";
     }
 
@@ -0,0 +1,40 @@
+package com.gaussic.controller;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.ModelMap;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 查看二级缓存和查询缓存的命中情况
+ */
+@Controller
+public class CacheController {
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    // 缓存统计页面，需要开启 hibernate.generate_statistics
+    @RequestMapping(value = "/admin/cache", method = RequestMethod.GET)
+    public String showCacheStatistics(ModelMap modelMap) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // 按缓存区域统计命中、未命中和写入次数
+        Map<String, SecondLevelCacheStatistics> regionMap = new LinkedHashMap<String, SecondLevelCacheStatistics>();
+        for (String regionName : statistics.getSecondLevelCacheRegionNames()) {
+            regionMap.put(regionName, statistics.getSecondLevelCacheStatistics(regionName));
+        }
+
+        modelMap.addAttribute("statistics", statistics);
+        modelMap.addAttribute("regionMap", regionMap);
+        return "admin/cache";
+    }
+}
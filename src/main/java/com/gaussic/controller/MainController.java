@@ -3,12 +3,14 @@ package com.gaussic.controller;
 import com.gaussic.model.UserEntity;
 import com.gaussic.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.ModelMap;
 import org.springframework.web.bind.annotation.ModelAttribute;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.util.List;
 
@@ -27,13 +29,26 @@ public class MainController {
         return "index";
     }
 
-    @RequestMapping(value = "/admin/users", method = RequestMethod.GET)
-    public String getUsers(ModelMap modelMap) {
-        // 查询user表中所有记录
-        List<UserEntity> userList = userRepository.findAll();
+    // 每页默认条数与允许的最大条数
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
 
-        // 将所有记录传递给要返回的jsp页面，放在userList当中
+    @RequestMapping(value = "/admin/users", method = RequestMethod.GET)
+    public String getUsers(@RequestParam(value = "after", defaultValue = "0") int afterId,
+                           @RequestParam(value = "size", defaultValue = "" + DEFAULT_PAGE_SIZE) int size,
+                           ModelMap modelMap) {
+        size = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        // 只查询id大于after的一页记录，多取一条用于判断是否还有下一页
+        List<UserEntity> userList = userRepository.findPageAfter(afterId, new PageRequest(0, size + 1));
+        if (userList.size() > size) {
+            userList = userList.subList(0, size);
+            modelMap.addAttribute("nextAfter", userList.get(size - 1).getId());
+        }
+
+        // 将当前页记录传递给要返回的jsp页面，放在userList当中
         modelMap.addAttribute("userList", userList);
+        modelMap.addAttribute("after", afterId);
+        modelMap.addAttribute("size", size);
 
         // 返回pages目录下的admin/users.jsp页面
         return "admin/users";
@@ -2,6 +2,9 @@ package com.gaussic.model;
 
 import org.springframework.format.annotation.DateTimeFormat;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Date;
 
@@ -9,6 +12,8 @@ import java.util.Date;
  * Created by dzkan on 2016/3/8.
  */
 @Entity
+@Cacheable  // 启用二级缓存，缓存区域配置见ehcache.xml
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "blog", schema = "springdemo", catalog = "")
 public class BlogEntity {
     private int id;
@@ -0,0 +1,49 @@
+package com.gaussic.model;
+
+import java.util.Date;
+
+/**
+ * 博文列表页使用的投影，只包含列表中展示的列
+ */
+public class BlogSummary {
+    private final int id;
+    private final String title;
+    private final String nickname;
+    private final String firstName;
+    private final String lastName;
+    private final Date pubDate;
+
+    // JPQL构造器表达式 select new ... 使用
+    public BlogSummary(int id, String title, String nickname, String firstName, String lastName, Date pubDate) {
+        this.id = id;
+        this.title = title;
+        this.nickname = nickname;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.pubDate = pubDate;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public Date getPubDate() {
+        return pubDate;
+    }
+}
@@ -1,5 +1,8 @@
 package com.gaussic.model;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import java.util.Collection;
 
@@ -7,6 +10,8 @@ import java.util.Collection;
  * Created by dzkan on 2016/3/8.
  */
 @Entity
+@Cacheable  // 启用二级缓存，缓存区域配置见ehcache.xml
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 @Table(name = "user", schema = "springdemo", catalog = "")
 public class UserEntity {
     private int id;
@@ -1,6 +1,8 @@
 package com.gaussic.repository;
 
 import com.gaussic.model.BlogEntity;
+import com.gaussic.model.BlogSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
@@ -9,6 +11,7 @@ import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Date;
+import java.util.List;
 
 /**
  * Created by dzkan on 2016/3/18.
@@ -16,8 +19,15 @@ import java.util.Date;
 @Repository
 public interface BlogRepository extends JpaRepository<BlogEntity, Integer> {
 
-    // 修改博文操作
-    @Modifying
+    // 列表页按主键游标分页：查询id大于afterId的博文，按id升序，条数由pageable限定，不执行count查询
+    // 投影只查询id、标题、作者昵称和姓名、发布日期，一条SQL完成，不加载实体，也就没有逐条加载user的N+1查询
+    @Query("select new com.gaussic.model.BlogSummary(blog.id, blog.title, author.nickname," +
+            " author.firstName, author.lastName, blog.pubDate)" +
+            " from BlogEntity blog join blog.userByUserId author where blog.id > :afterId order by blog.id asc")
+    List<BlogSummary> findSummaryPageAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    // 修改博文操作，批量更新会使blog的二级缓存区域和相关查询缓存失效
+    @Modifying(clearAutomatically = true)
     @Transactional
     @Query("update BlogEntity blog set blog.title=:qTitle, blog.userByUserId.id=:qUserId," +
             " blog.content=:qContent, blog.pubDate=:qPubDate where blog.id=:qId")
@@ -1,22 +1,38 @@
 package com.gaussic.repository;
 
 import com.gaussic.model.UserEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+
+import java.util.List;
+
 /**
  * Created by dzkan on 2016/3/8.
  */
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Integer> {
 
-    @Modifying      // 说明该方法是修改操作
+    // 查询所有用户（作者下拉框使用），结果放入查询缓存
+    @Override
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
+    List<UserEntity> findAll();
+
+    // 按主键游标分页：查询id大于afterId的用户，按id升序，条数由pageable限定
+    // 返回List而非Page，不会额外执行count查询
+    @Query("select us from UserEntity us where us.id > :afterId order by us.id asc")
+    List<UserEntity> findPageAfter(@Param("afterId") int afterId, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)   // 说明该方法是修改操作，执行后清空持久化上下文
     @Transactional  // 说明该方法是事务性操作
-    // 定义查询
+    // 定义查询，批量更新时Hibernate会使user的二级缓存区域和相关查询缓存失效
     // @Param注解用于提取参数
     @Query("update UserEntity us set us.nickname=:qNickname, us.firstName=:qFirstName, us.lastName=:qLastName, us.password=:qPassword where us.id=:qId")
     public void updateUser(@Param("qNickname") String nickname, @Param("qFirstName") String firstName,
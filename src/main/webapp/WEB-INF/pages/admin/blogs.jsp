@@ -28,7 +28,7 @@
     <h3>所有博客 <a href="/admin/blogs/add" type="button" class="btn btn-primary btn-sm">添加</a></h3>
 
     <!-- 如果用户列表为空 -->
-    <c:if test="${empty blogList}">
+    <c:if test="${empty blogList && after == 0}">
         <div class="alert alert-warning" role="alert">
             <span class="glyphicon glyphicon-info-sign" aria-hidden="true"></span>Blog表为空，请<a href="/admin/blogs/add" type="button" class="btn btn-primary btn-sm">添加</a>
         </div>
@@ -49,7 +49,7 @@
                 <tr>
                     <td>${blog.id}</td>
                     <td>${blog.title}</td>
-                    <td>${blog.userByUserId.nickname}, ${blog.userByUserId.firstName} ${blog.userByUserId.lastName}</td>
+                    <td>${blog.nickname}, ${blog.firstName} ${blog.lastName}</td>
                     <td><fmt:formatDate value="${blog.pubDate }" pattern="yyyy-MM-dd"/></td>
                     <td>
                         <a href="/admin/blogs/show/${blog.id}" type="button" class="btn btn-sm btn-success">详情</a>
@@ -60,6 +60,16 @@
             </c:forEach>
         </table>
     </c:if>
+
+    <!-- 分页导航 -->
+    <ul class="pager">
+        <c:if test="${after > 0}">
+            <li class="previous"><a href="/admin/blogs?size=${size}">首页</a></li>
+        </c:if>
+        <c:if test="${!empty nextAfter}">
+            <li class="next"><a href="/admin/blogs?after=${nextAfter}&size=${size}">下一页</a></li>
+        </c:if>
+    </ul>
 </div>
 
 <!-- jQuery文件。务必在bootstrap.min.js 之前引入 -->
@@ -0,0 +1,77 @@
+<%@ page contentType="text/html;charset=UTF-8" language="java" %>
+<%@ taglib prefix="c" uri="http://java.sun.com/jsp/jstl/core" %>
+<!DOCTYPE html>
+<html lang="zh-CN">
+<head>
+    <meta charset="utf-8">
+    <meta http-equiv="X-UA-Compatible" content="IE=edge">
+    <meta name="viewport" content="width=device-width, initial-scale=1">
+    <!-- 上述3个meta标签*必须*放在最前面，任何其他内容都*必须*跟随其后！ -->
+    <title>SpringMVC 缓存统计</title>
+
+    <!-- 新 Bootstrap 核心 CSS 文件 -->
+    <link rel="stylesheet" href="//cdn.bootcss.com/bootstrap/3.3.5/css/bootstrap.min.css">
+
+    <!-- HTML5 shim and Respond.js for IE8 support of HTML5 elements and media queries -->
+    <!-- WARNING: Respond.js doesn't work if you view the page via file:// -->
+    <!--[if lt IE 9]>
+    <script src="//cdn.bootcss.com/html5shiv/3.7.2/html5shiv.min.js"></script>
+    <script src="//cdn.bootcss.com/respond.js/1.4.2/respond.min.js"></script>
+    <![endif]-->
+</head>
+<body>
+<div class="container">
+    <h1>SpringMVC 博客系统-缓存统计</h1>
+    <hr/>
+
+    <h3>汇总</h3>
+    <table class="table table-bordered table-striped">
+        <tr>
+            <th>缓存</th>
+            <th>命中</th>
+            <th>未命中</th>
+            <th>写入</th>
+        </tr>
+        <tr>
+            <td>二级缓存</td>
+            <td>${statistics.secondLevelCacheHitCount}</td>
+            <td>${statistics.secondLevelCacheMissCount}</td>
+            <td>${statistics.secondLevelCachePutCount}</td>
+        </tr>
+        <tr>
+            <td>查询缓存</td>
+            <td>${statistics.queryCacheHitCount}</td>
+            <td>${statistics.queryCacheMissCount}</td>
+            <td>${statistics.queryCachePutCount}</td>
+        </tr>
+    </table>
+
+    <h3>缓存区域</h3>
+    <table class="table table-bordered table-striped">
+        <tr>
+            <th>区域</th>
+            <th>命中</th>
+            <th>未命中</th>
+            <th>写入</th>
+            <th>内存中条数</th>
+        </tr>
+
+        <c:forEach items="${regionMap}" var="region">
+            <tr>
+                <td>${region.key}</td>
+                <td>${region.value.hitCount}</td>
+                <td>${region.value.missCount}</td>
+                <td>${region.value.putCount}</td>
+                <td>${region.value.elementCountInMemory}</td>
+            </tr>
+        </c:forEach>
+    </table>
+</div>
+
+<!-- jQuery文件。务必在bootstrap.min.js 之前引入 -->
+<script src="//cdn.bootcss.com/jquery/1.11.3/jquery.min.js"></script>
+
+<!-- 最新的 Bootstrap 核心 JavaScript 文件 -->
+<script src="//cdn.bootcss.com/bootstrap/3.3.5/js/bootstrap.min.js"></script>
+</body>
+</html>
\ No newline at end of file
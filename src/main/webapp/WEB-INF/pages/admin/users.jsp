@@ -27,7 +27,7 @@
     <h3>所有用户 <a href="/admin/users/add" type="button" class="btn btn-primary btn-sm">添加</a></h3>
 
     <!-- 如果用户列表为空 -->
-    <c:if test="${empty userList}">
+    <c:if test="${empty userList && after == 0}">
         <div class="alert alert-warning" role="alert">
             <span class="glyphicon glyphicon-info-sign" aria-hidden="true"></span>User表为空，请<a href="/admin/users/add" type="button" class="btn btn-primary btn-sm">添加</a>
         </div>
@@ -59,6 +59,16 @@
             </c:forEach>
         </table>
     </c:if>
+
+    <!-- 分页导航 -->
+    <ul class="pager">
+        <c:if test="${after > 0}">
+            <li class="previous"><a href="/admin/users?size=${size}">首页</a></li>
+        </c:if>
+        <c:if test="${!empty nextAfter}">
+            <li class="next"><a href="/admin/users?after=${nextAfter}&size=${size}">下一页</a></li>
+        </c:if>
+    </ul>
 </div>
 
 <!-- jQuery文件。务必在bootstrap.min.js 之前引入 -->
@@ -0,0 +1,97 @@
+package com.gaussic.repository;
+
+import com.gaussic.model.BlogEntity;
+import com.gaussic.model.BlogSummary;
+import com.gaussic.model.UserEntity;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 博文列表页的SQL条数测试：无论列表中有多少个不同的作者，一页只能发出一条SQL，防止N+1查询再次出现
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration("classpath:test-context.xml")
+@Transactional
+public class BlogRepositoryTest {
+
+    private static final int BLOG_COUNT = 20;
+
+    @Autowired
+    private BlogRepository blogRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void createBlogs() {
+        // 每篇博文一个不同的作者，N+1时每个作者都会多出一条select
+        for (int i = 1; i <= BLOG_COUNT; i++) {
+            UserEntity user = new UserEntity();
+            user.setId(i);
+            user.setNickname("nick" + i);
+            user.setPassword("password");
+            user.setFirstName("first" + i);
+            user.setLastName("last" + i);
+            entityManager.persist(user);
+
+            BlogEntity blog = new BlogEntity();
+            blog.setId(i);
+            blog.setTitle("title" + i);
+            blog.setPubDate(new Date());
+            blog.setUserByUserId(user);
+            entityManager.persist(blog);
+        }
+        entityManager.flush();
+        // 清空持久化上下文，作者不能从一级缓存中取到
+        entityManager.clear();
+    }
+
+    @Test
+    public void summaryPageIssuesOneStatement() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BlogSummary> blogList = blogRepository.findSummaryPageAfter(0, new PageRequest(0, BLOG_COUNT + 1));
+
+        assertEquals(BLOG_COUNT, blogList.size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount());
+
+        BlogSummary first = blogList.get(0);
+        assertEquals(1, first.getId());
+        assertEquals("nick1", first.getNickname());
+        assertEquals("first1", first.getFirstName());
+        assertEquals("last1", first.getLastName());
+    }
+
+    @Test
+    public void summaryPageStartsAfterGivenId() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<BlogSummary> blogList = blogRepository.findSummaryPageAfter(BLOG_COUNT - 5, new PageRequest(0, 10));
+
+        assertEquals(5, blogList.size());
+        assertEquals(BLOG_COUNT - 4, blogList.get(0).getId());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
@@ -0,0 +1,384 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests for PoolingDataSource against a stub JDBC driver that counts
+ * the physical Connections it has open.
+ *
+ * @since 1.2
+ */
+public class PoolingDataSourceTests extends TestCase {
+
+	private static final String URL = "jdbc:stub:pool";
+
+	static {
+		try {
+			DriverManager.registerDriver(new StubDriver());
+		}
+		catch (SQLException ex) {
+			throw new IllegalStateException("Could not register stub driver: " + ex.getMessage());
+		}
+	}
+
+
+	private PoolingDataSource dataSource;
+
+	protected void setUp() {
+		StubDriver.reset();
+		this.dataSource = new PoolingDataSource(URL, "sa", "");
+	}
+
+	protected void tearDown() {
+		this.dataSource.destroy();
+	}
+
+
+	public void testPoolSizeBoundWithDiscards() throws Exception {
+		this.dataSource.setMaxPoolSize(5);
+		this.dataSource.setMaxWait(10000);
+		this.dataSource.setValidationQuery("SELECT 1");
+		this.dataSource.setValidationInterval(0);
+		this.dataSource.setMaxIdleTime(1);
+		this.dataSource.setMaintenanceInterval(1);
+		this.dataSource.afterPropertiesSet();
+		// Fail every third validation, discarding the Connection.
+		StubDriver.failEveryNthValidation = 3;
+
+		final List failures = new ArrayList();
+		Thread[] threads = new Thread[40];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						for (int j = 0; j < 50; j++) {
+							Connection con = dataSource.getConnection();
+							try {
+								Thread.sleep(j % 3);
+							}
+							finally {
+								con.close();
+							}
+						}
+					}
+					catch (Throwable ex) {
+						synchronized (failures) {
+							failures.add(ex);
+						}
+					}
+				}
+			};
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+
+		assertTrue("Failures: " + failures, failures.isEmpty());
+		assertTrue("Connections must have been discarded", StubDriver.getClosedCount() > 0);
+		assertTrue("At most 5 physical Connections may be open at once, but were " + StubDriver.getMaxOpenCount(),
+				StubDriver.getMaxOpenCount() <= 5);
+		assertEquals(2000, this.dataSource.getCheckoutCount());
+		assertEquals(0, this.dataSource.getActiveCount());
+	}
+
+	public void testTimeout() throws Exception {
+		this.dataSource.setMaxPoolSize(1);
+		this.dataSource.setMaxWait(50);
+		Connection con = this.dataSource.getConnection();
+		try {
+			long startTime = System.currentTimeMillis();
+			try {
+				this.dataSource.getConnection();
+				fail("Should have thrown SQLException");
+			}
+			catch (SQLException ex) {
+				// expected
+			}
+			assertTrue(System.currentTimeMillis() - startTime >= 50);
+			assertEquals(1, this.dataSource.getTimeoutCount());
+			assertEquals(0, this.dataSource.getWaitingCount());
+		}
+		finally {
+			con.close();
+		}
+		assertEquals(1, StubDriver.getOpenCount());
+		assertEquals(1, this.dataSource.getIdleCount());
+	}
+
+	public void testHandoff() throws Exception {
+		this.dataSource.setMaxPoolSize(1);
+		this.dataSource.setMaxWait(10000);
+		Connection con = this.dataSource.getConnection();
+		final Connection target = ((ConnectionProxy) con).getTargetConnection();
+		final List received = new ArrayList();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					Connection con2 = dataSource.getConnection();
+					synchronized (received) {
+						received.add(((ConnectionProxy) con2).getTargetConnection());
+					}
+					con2.close();
+				}
+				catch (SQLException ex) {
+					synchronized (received) {
+						received.add(ex);
+					}
+				}
+			}
+		};
+		waiter.start();
+		while (this.dataSource.getWaitingCount() == 0) {
+			Thread.sleep(1);
+		}
+		con.close();
+		waiter.join();
+
+		assertEquals(1, received.size());
+		assertSame(target, received.get(0));
+		assertEquals(1, StubDriver.getMaxOpenCount());
+		assertEquals(2, this.dataSource.getCheckoutCount());
+	}
+
+	public void testDestroy() throws Exception {
+		this.dataSource.setMaxPoolSize(2);
+		this.dataSource.setMaxWait(10000);
+		this.dataSource.setInitialSize(1);
+		this.dataSource.afterPropertiesSet();
+		assertEquals(1, this.dataSource.getIdleCount());
+
+		Connection con1 = this.dataSource.getConnection();
+		Connection con2 = this.dataSource.getConnection();
+		final List received = new ArrayList();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					received.add(dataSource.getConnection());
+				}
+				catch (SQLException ex) {
+					received.add(ex);
+				}
+			}
+		};
+		waiter.start();
+		while (this.dataSource.getWaitingCount() == 0) {
+			Thread.sleep(1);
+		}
+		con1.close();
+		waiter.join();
+		Connection con3 = (Connection) received.get(0);
+		assertEquals(2, StubDriver.getOpenCount());
+
+		this.dataSource.destroy();
+		try {
+			this.dataSource.getConnection();
+			fail("Should have thrown SQLException");
+		}
+		catch (SQLException ex) {
+			// expected
+		}
+		// Active Connections get closed when returned.
+		assertEquals(2, StubDriver.getOpenCount());
+		con2.close();
+		con3.close();
+		assertEquals(0, StubDriver.getOpenCount());
+		assertEquals(0, this.dataSource.getIdleCount());
+	}
+
+	public void testDestroyWakesUpWaiters() throws Exception {
+		this.dataSource.setMaxPoolSize(1);
+		this.dataSource.setMaxWait(-1);
+		Connection con = this.dataSource.getConnection();
+		final List received = new ArrayList();
+		Thread waiter = new Thread() {
+			public void run() {
+				try {
+					received.add(dataSource.getConnection());
+				}
+				catch (SQLException ex) {
+					received.add(ex);
+				}
+			}
+		};
+		waiter.start();
+		while (this.dataSource.getWaitingCount() == 0) {
+			Thread.sleep(1);
+		}
+		this.dataSource.destroy();
+		waiter.join();
+
+		assertTrue(received.get(0) instanceof SQLException);
+		con.close();
+		assertEquals(0, StubDriver.getOpenCount());
+	}
+
+
+	/**
+	 * Stub JDBC driver for the "jdbc:stub:" URL prefix, handing out Connections
+	 * that do nothing but count how many of them are open.
+	 */
+	public static class StubDriver implements Driver {
+
+		private static int openCount;
+
+		private static int maxOpenCount;
+
+		private static int closedCount;
+
+		private static int validationCount;
+
+		private static volatile int failEveryNthValidation;
+
+		public static synchronized void reset() {
+			openCount = 0;
+			maxOpenCount = 0;
+			closedCount = 0;
+			validationCount = 0;
+			failEveryNthValidation = 0;
+		}
+
+		public static synchronized int getOpenCount() {
+			return openCount;
+		}
+
+		public static synchronized int getMaxOpenCount() {
+			return maxOpenCount;
+		}
+
+		public static synchronized int getClosedCount() {
+			return closedCount;
+		}
+
+		private static synchronized void opened() {
+			openCount++;
+			maxOpenCount = Math.max(maxOpenCount, openCount);
+		}
+
+		private static synchronized void closed() {
+			openCount--;
+			closedCount++;
+		}
+
+		private static synchronized boolean validate() {
+			validationCount++;
+			return (failEveryNthValidation == 0 || validationCount % failEveryNthValidation != 0);
+		}
+
+		public boolean acceptsURL(String url) {
+			return url.startsWith("jdbc:stub:");
+		}
+
+		public Connection connect(String url, Properties info) {
+			if (!acceptsURL(url)) {
+				return null;
+			}
+			opened();
+			return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class[] {Connection.class}, new StubConnectionHandler());
+		}
+
+		public int getMajorVersion() {
+			return 1;
+		}
+
+		public int getMinorVersion() {
+			return 0;
+		}
+
+		public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+			return new DriverPropertyInfo[0];
+		}
+
+		public boolean jdbcCompliant() {
+			return false;
+		}
+
+		public Logger getParentLogger() {
+			return Logger.getLogger(StubDriver.class.getName());
+		}
+	}
+
+
+	/**
+	 * Handler for stub Connections and their Statements.
+	 */
+	private static class StubConnectionHandler implements InvocationHandler {
+
+		private boolean closed = false;
+
+		public synchronized Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (name.equals("equals")) {
+				return (proxy == args[0] ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (name.equals("hashCode")) {
+				return new Integer(System.identityHashCode(proxy));
+			}
+			else if (name.equals("close")) {
+				if (!this.closed && Connection.class.isInstance(proxy)) {
+					this.closed = true;
+					StubDriver.closed();
+				}
+				return null;
+			}
+			else if (name.equals("isClosed")) {
+				return (this.closed ? Boolean.TRUE : Boolean.FALSE);
+			}
+			else if (name.equals("getAutoCommit")) {
+				return Boolean.TRUE;
+			}
+			else if (name.equals("createStatement")) {
+				return Proxy.newProxyInstance(getClass().getClassLoader(),
+						new Class[] {Statement.class}, new StubConnectionHandler());
+			}
+			else if (name.equals("execute")) {
+				if (!StubDriver.validate()) {
+					throw new SQLException("Stub validation failure");
+				}
+				return Boolean.TRUE;
+			}
+			Class returnType = method.getReturnType();
+			if (returnType == boolean.class) {
+				return Boolean.FALSE;
+			}
+			else if (returnType == int.class) {
+				return new Integer(0);
+			}
+			return null;
+		}
+	}
+
+}
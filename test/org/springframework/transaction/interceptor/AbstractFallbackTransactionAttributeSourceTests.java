@@ -0,0 +1,186 @@
+/*
+ * Copyright 2002-2005 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.interceptor;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Stress test for the attribute cache of AbstractFallbackTransactionAttributeSource:
+ * many threads warm up the cache for the same methods at the same time.
+ *
+ * @since 1.2
+ */
+public class AbstractFallbackTransactionAttributeSourceTests extends TestCase {
+
+	private static final int THREAD_COUNT = 16;
+
+	private static final long RESOLUTION_MILLIS = 20;
+
+
+	public void testConcurrentWarmUp() throws Exception {
+		final Method[] methods = TestService.class.getMethods();
+		final SlowTransactionAttributeSource tas = new SlowTransactionAttributeSource(methods);
+		final List failures = new ArrayList();
+
+		Thread[] threads = new Thread[THREAD_COUNT];
+		for (int i = 0; i < threads.length; i++) {
+			final int offset = i;
+			threads[i] = new Thread() {
+				public void run() {
+					try {
+						// Start each thread at a different method, to have misses for
+						// different methods in flight at the same time.
+						for (int j = 0; j < methods.length; j++) {
+							Method method = methods[(offset + j) % methods.length];
+							TransactionAttribute txAtt = tas.getTransactionAttribute(method, TestServiceImpl.class);
+							if (txAtt != tas.getExpectedAttribute(method.getName())) {
+								throw new IllegalStateException("Wrong attribute for " + method + ": " + txAtt);
+							}
+						}
+					}
+					catch (Throwable ex) {
+						synchronized (failures) {
+							failures.add(ex);
+						}
+					}
+				}
+			};
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+
+		assertTrue("Failures: " + failures, failures.isEmpty());
+		assertEquals("Each method must be resolved once", methods.length, tas.getResolutionCount());
+		assertTrue("Different methods must be resolved concurrently",
+				tas.getMaxConcurrentResolutions() > 1);
+
+		for (int i = 0; i < methods.length; i++) {
+			RuleBasedTransactionAttribute expected = tas.getExpectedAttribute(methods[i].getName());
+			assertEquals(1, expected.getRollbackRules().size());
+		}
+
+		// Once warmed up, all lookups are served from the cache.
+		int resolutionCount = tas.getResolutionCount();
+		for (int i = 0; i < methods.length; i++) {
+			TransactionAttribute txAtt = tas.getTransactionAttribute(methods[i], TestServiceImpl.class);
+			assertSame(tas.getExpectedAttribute(methods[i].getName()), txAtt);
+		}
+		assertEquals(resolutionCount, tas.getResolutionCount());
+	}
+
+
+	public static interface TestService {
+
+		void create();
+
+		void read();
+
+		void update();
+
+		void delete();
+	}
+
+
+	public static class TestServiceImpl implements TestService {
+
+		public void create() {
+		}
+
+		public void read() {
+		}
+
+		public void update() {
+		}
+
+		public void delete() {
+		}
+	}
+
+
+	/**
+	 * TransactionAttributeSource that takes a while to find the attributes
+	 * of a method, tracking how many resolutions are in flight at once.
+	 */
+	private static class SlowTransactionAttributeSource extends AbstractFallbackTransactionAttributeSource {
+
+		/** Method name to RuleBasedTransactionAttribute */
+		private final Map attributes = new HashMap();
+
+		private int resolutionCount = 0;
+
+		private int concurrentResolutions = 0;
+
+		private int maxConcurrentResolutions = 0;
+
+		public SlowTransactionAttributeSource(Method[] methods) {
+			for (int i = 0; i < methods.length; i++) {
+				this.attributes.put(methods[i].getName(), new RuleBasedTransactionAttribute());
+			}
+		}
+
+		public RuleBasedTransactionAttribute getExpectedAttribute(String methodName) {
+			return (RuleBasedTransactionAttribute) this.attributes.get(methodName);
+		}
+
+		public synchronized int getResolutionCount() {
+			return this.resolutionCount;
+		}
+
+		public synchronized int getMaxConcurrentResolutions() {
+			return this.maxConcurrentResolutions;
+		}
+
+		protected Collection findAllAttributes(Method method) {
+			synchronized (this) {
+				this.resolutionCount++;
+				this.concurrentResolutions++;
+				this.maxConcurrentResolutions = Math.max(this.maxConcurrentResolutions, this.concurrentResolutions);
+			}
+			try {
+				Thread.sleep(RESOLUTION_MILLIS);
+			}
+			catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+			finally {
+				synchronized (this) {
+					this.concurrentResolutions--;
+				}
+			}
+			List atts = new ArrayList(2);
+			atts.add(getExpectedAttribute(method.getName()));
+			atts.add(new RollbackRuleAttribute(Exception.class));
+			return atts;
+		}
+
+		protected Collection findAllAttributes(Class clazz) {
+			return null;
+		}
+	}
+
+}